@@ -0,0 +1,143 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Inputs shared by the JMH benchmarks.
+ *
+ * <p>The benchmarks use the class files of the R8 graph package as a realistic and self-contained
+ * program input, such that no downloaded dependencies are needed to run them.
+ */
+class BenchmarkInputs {
+
+  static final int MIN_API = AndroidApiLevel.O.getLevel();
+
+  private static final String PACKAGE_DIRECTORY = "com/android/tools/r8/graph/";
+
+  static List<byte[]> readClassFiles() throws IOException {
+    Path location;
+    try {
+      location =
+          Paths.get(
+              DexItemFactory.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+    List<byte[]> classFiles = new ArrayList<>();
+    if (Files.isDirectory(location)) {
+      List<Path> files;
+      try (Stream<Path> stream = Files.walk(location.resolve(PACKAGE_DIRECTORY))) {
+        files = stream.filter(FileUtils::isClassFile).sorted().collect(Collectors.toList());
+      }
+      for (Path file : files) {
+        classFiles.add(Files.readAllBytes(file));
+      }
+    } else {
+      try (ZipFile zipFile = new ZipFile(location.toFile())) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+          ZipEntry entry = entries.nextElement();
+          String name = entry.getName();
+          if (name.startsWith(PACKAGE_DIRECTORY) && name.endsWith(FileUtils.CLASS_EXTENSION)) {
+            try (InputStream stream = zipFile.getInputStream(entry)) {
+              classFiles.add(ByteStreams.toByteArray(stream));
+            }
+          }
+        }
+      }
+    }
+    return classFiles;
+  }
+
+  static byte[] compileToDex(List<byte[]> classFiles) throws CompilationFailedException {
+    List<byte[]> result = new ArrayList<>();
+    D8Command.Builder builder =
+        D8Command.builder()
+            .setMode(CompilationMode.RELEASE)
+            .setMinApiLevel(MIN_API)
+            .setProgramConsumer(
+                new DexIndexedConsumer.ForwardingConsumer(null) {
+                  @Override
+                  public void accept(
+                      int fileIndex,
+                      ByteDataView data,
+                      Set<String> descriptors,
+                      DiagnosticsHandler handler) {
+                    if (fileIndex != 0) {
+                      throw new RuntimeException("Unexpected multidex output");
+                    }
+                    result.add(data.copyByteData());
+                  }
+                });
+    for (byte[] classFile : classFiles) {
+      builder.addClassProgramData(classFile, Origin.unknown());
+    }
+    D8.run(builder.build());
+    return result.get(0);
+  }
+
+  static String createProguardMap(int numberOfClasses) {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < numberOfClasses; i++) {
+      lines.add("com.example.pkg" + (i % 50) + ".Class" + i + " -> a.a" + i + ":");
+      lines.add("    int field" + i + " -> a");
+      lines.add("    java.lang.String name -> b");
+      for (int j = 0; j < 10; j++) {
+        int line = j * 10 + 1;
+        lines.add(
+            "    "
+                + line
+                + ":"
+                + (line + 4)
+                + ":void method"
+                + j
+                + "(int,java.lang.String):"
+                + (line + 100)
+                + ":"
+                + (line + 104)
+                + " -> "
+                + (char) ('a' + j));
+        // An inline frame for the same range.
+        lines.add(
+            "    "
+                + line
+                + ":"
+                + (line + 4)
+                + ":void com.example.Util.inlined"
+                + j
+                + "():20:24 -> "
+                + (char) ('a' + j));
+      }
+    }
+    return StringUtils.lines(lines);
+  }
+}
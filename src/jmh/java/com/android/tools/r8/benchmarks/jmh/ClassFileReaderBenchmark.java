@@ -0,0 +1,82 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.Code;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.JarApplicationReader;
+import com.android.tools.r8.graph.JarClassFileReader;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.InternalOptions;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures reading class files into program classes with the {@link JarClassFileReader}, including
+ * the eager parsing of the method code.
+ *
+ * <p>Each invocation uses a fresh item factory to account for the interning of new items. The
+ * readers of a batch of invocations are created before each iteration, and the batch is measured
+ * as a single shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = ClassFileReaderBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = ClassFileReaderBenchmark.BATCH_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class ClassFileReaderBenchmark {
+
+  static final int BATCH_SIZE = 5;
+
+  private List<byte[]> classFiles;
+  private final JarApplicationReader[] applicationReaders = new JarApplicationReader[BATCH_SIZE];
+  private int nextApplicationReader;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws IOException {
+    classFiles = BenchmarkInputs.readClassFiles();
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      applicationReaders[i] = new JarApplicationReader(new InternalOptions());
+    }
+    nextApplicationReader = 0;
+  }
+
+  @Benchmark
+  public void readClasses(Blackhole blackhole) {
+    JarClassFileReader<DexProgramClass> reader =
+        new JarClassFileReader<>(
+            applicationReaders[nextApplicationReader++],
+            clazz ->
+                clazz.forEachProgramMethod(
+                    method -> {
+                      Code code = method.getDefinition().getCode();
+                      if (code != null) {
+                        blackhole.consume(code.asCfCode());
+                      }
+                    }),
+            ClassKind.PROGRAM);
+    for (byte[] classFile : classFiles) {
+      reader.read(Origin.unknown(), classFile);
+    }
+  }
+}
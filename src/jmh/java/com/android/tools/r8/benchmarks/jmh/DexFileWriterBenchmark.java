@@ -0,0 +1,100 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.dex.ApplicationWriter;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.GraphLens;
+import com.android.tools.r8.graph.InitClassLens;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing an application to a dex file with the {@link ApplicationWriter}, which
+ * collects the indexed items and writes the output with the {@link
+ * com.android.tools.r8.dex.FileWriter}.
+ *
+ * <p>Writing updates the state of the application, so each invocation writes an application that
+ * has been read for it. The applications of a batch of invocations are read before each
+ * iteration, and the batch is measured as a single shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = DexFileWriterBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = DexFileWriterBenchmark.BATCH_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class DexFileWriterBenchmark {
+
+  static final int BATCH_SIZE = 5;
+
+  private AndroidApp app;
+  private final List<AppView<AppInfo>> appViews = new ArrayList<>(BATCH_SIZE);
+  private int nextAppView;
+  private ExecutorService executorService;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws CompilationFailedException, IOException {
+    byte[] dex = BenchmarkInputs.compileToDex(BenchmarkInputs.readClassFiles());
+    app = AndroidApp.builder().addDexProgramData(dex, Origin.unknown()).build();
+    executorService = Executors.newSingleThreadExecutor();
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() throws IOException {
+    appViews.clear();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      InternalOptions options = new InternalOptions();
+      options.minApiLevel = BenchmarkInputs.MIN_API;
+      options.programConsumer = DexIndexedConsumer.emptyConsumer();
+      DexApplication application = new ApplicationReader(app, options, Timing.empty()).read();
+      appViews.add(AppView.createForD8(AppInfo.createInitialAppInfo(application)));
+    }
+    nextAppView = 0;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    executorService.shutdown();
+  }
+
+  @Benchmark
+  public void writeDex() throws ExecutionException, IOException {
+    new ApplicationWriter(
+            appViews.get(nextAppView++),
+            null,
+            GraphLens.getIdentityLens(),
+            InitClassLens.getDefault(),
+            NamingLens.getIdentityLens(),
+            null)
+        .write(executorService);
+  }
+}
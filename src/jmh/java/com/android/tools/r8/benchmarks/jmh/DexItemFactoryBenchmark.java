@@ -0,0 +1,130 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexString;
+import com.android.tools.r8.graph.DexType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures interning of strings, types, fields and methods in the {@link DexItemFactory}, both when
+ * the items already exist (the common case when reading classes) and when they are created.
+ *
+ * <p>Creating types needs a fresh factory for each invocation. The factories of a batch of
+ * invocations are created before each iteration, and {@link #createNewTypes} is measured as a
+ * single shot of the whole batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DexItemFactoryBenchmark {
+
+  private static final int BATCH_SIZE = 10;
+
+  @Param({"10000"})
+  public int numberOfItems;
+
+  private String[] descriptors;
+  private DexItemFactory existingItemsFactory;
+  // The holders and names of the existing fields and methods.
+  private DexType[] holders;
+  private DexString[] names;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    descriptors = new String[numberOfItems];
+    for (int i = 0; i < numberOfItems; i++) {
+      descriptors[i] = "Lcom/example/pkg" + (i % 100) + "/Class" + i + ";";
+    }
+    existingItemsFactory = new DexItemFactory();
+    holders = new DexType[numberOfItems];
+    names = new DexString[numberOfItems];
+    for (int i = 0; i < numberOfItems; i++) {
+      holders[i] = existingItemsFactory.createType(descriptors[i]);
+      names[i] = existingItemsFactory.createString("member" + (i % 100));
+      existingItemsFactory.createField(holders[i], existingItemsFactory.intType, names[i]);
+      existingItemsFactory.createMethod(
+          holders[i], existingItemsFactory.createProto(existingItemsFactory.voidType), names[i]);
+    }
+  }
+
+  @Benchmark
+  public void lookupExistingStrings(Blackhole blackhole) {
+    for (String descriptor : descriptors) {
+      blackhole.consume(existingItemsFactory.createString(descriptor));
+    }
+  }
+
+  @Benchmark
+  public void lookupExistingTypes(Blackhole blackhole) {
+    for (String descriptor : descriptors) {
+      blackhole.consume(existingItemsFactory.createType(descriptor));
+    }
+  }
+
+  @Benchmark
+  public void lookupExistingFields(Blackhole blackhole) {
+    DexType type = existingItemsFactory.intType;
+    for (int i = 0; i < numberOfItems; i++) {
+      blackhole.consume(existingItemsFactory.createField(holders[i], type, names[i]));
+    }
+  }
+
+  @Benchmark
+  public void lookupExistingMethods(Blackhole blackhole) {
+    DexProto proto = existingItemsFactory.createProto(existingItemsFactory.voidType);
+    for (int i = 0; i < numberOfItems; i++) {
+      blackhole.consume(existingItemsFactory.createMethod(holders[i], proto, names[i]));
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = BATCH_SIZE)
+  @Measurement(iterations = 10, batchSize = BATCH_SIZE)
+  public void createNewTypes(FreshFactories freshFactories, Blackhole blackhole) {
+    DexItemFactory factory = freshFactories.next();
+    for (String descriptor : descriptors) {
+      blackhole.consume(factory.createType(descriptor));
+    }
+  }
+
+  /** The fresh factories for one batch of invocations of {@link #createNewTypes}. */
+  @State(Scope.Thread)
+  public static class FreshFactories {
+
+    private final DexItemFactory[] factories = new DexItemFactory[BATCH_SIZE];
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        factories[i] = new DexItemFactory();
+      }
+      next = 0;
+    }
+
+    DexItemFactory next() {
+      return factories[next++];
+    }
+  }
+}
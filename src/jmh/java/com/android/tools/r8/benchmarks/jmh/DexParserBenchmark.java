@@ -0,0 +1,66 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures parsing of a dex file with the {@link com.android.tools.r8.dex.DexParser}. The dex file
+ * is read on a single thread through the {@link ApplicationReader}.
+ *
+ * <p>Each invocation uses fresh options, and thereby a fresh item factory. The options of a batch
+ * of invocations are created before each iteration, and the batch is measured as a single shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = DexParserBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = DexParserBenchmark.BATCH_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class DexParserBenchmark {
+
+  static final int BATCH_SIZE = 5;
+
+  private AndroidApp app;
+  private final InternalOptions[] options = new InternalOptions[BATCH_SIZE];
+  private int nextOptions;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws CompilationFailedException, IOException {
+    byte[] dex = BenchmarkInputs.compileToDex(BenchmarkInputs.readClassFiles());
+    app = AndroidApp.builder().addDexProgramData(dex, Origin.unknown()).build();
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      options[i] = new InternalOptions();
+    }
+    nextOptions = 0;
+  }
+
+  @Benchmark
+  public void parseDex(Blackhole blackhole) throws IOException {
+    blackhole.consume(new ApplicationReader(app, options[nextOptions++], Timing.empty()).read());
+  }
+}
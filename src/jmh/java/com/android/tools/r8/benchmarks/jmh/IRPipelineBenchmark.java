@@ -0,0 +1,105 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.conversion.DexBuilder;
+import com.android.tools.r8.ir.optimize.CodeRewriter;
+import com.android.tools.r8.ir.optimize.DeadCodeRemover;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-method conversion from CF to DEX: building IR with the {@link
+ * com.android.tools.r8.ir.conversion.IRBuilder}, allocating registers with the {@link
+ * LinearScanRegisterAllocator}, and emitting DEX code with the {@link DexBuilder}.
+ *
+ * <p>Each benchmark includes the steps of the previous ones, since register allocation and DEX
+ * building consume the IR.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class IRPipelineBenchmark {
+
+  private AppView<AppInfo> appView;
+  private DeadCodeRemover deadCodeRemover;
+  private final List<ProgramMethod> methods = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws IOException {
+    InternalOptions options = new InternalOptions();
+    options.minApiLevel = BenchmarkInputs.MIN_API;
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    AndroidApp app =
+        AndroidApp.builder().addClassProgramData(BenchmarkInputs.readClassFiles()).build();
+    DexApplication application =
+        new ApplicationReader(app, options, Timing.empty()).read().toDirect();
+    appView = AppView.createForD8(AppInfo.createInitialAppInfo(application));
+    deadCodeRemover = new DeadCodeRemover(appView, new CodeRewriter(appView, null));
+    for (DexProgramClass clazz : application.classes()) {
+      clazz.forEachProgramMethodMatching(DexEncodedMethod::hasCode, methods::add);
+    }
+  }
+
+  @Benchmark
+  public void buildIR(Blackhole blackhole) {
+    for (ProgramMethod method : methods) {
+      blackhole.consume(method.buildIR(appView));
+    }
+  }
+
+  @Benchmark
+  public void allocateRegisters(Blackhole blackhole) {
+    for (ProgramMethod method : methods) {
+      blackhole.consume(allocateRegisters(method.buildIR(appView)));
+    }
+  }
+
+  @Benchmark
+  public void buildDexCode(Blackhole blackhole) {
+    for (ProgramMethod method : methods) {
+      IRCode code = method.buildIR(appView);
+      LinearScanRegisterAllocator registerAllocator = allocateRegisters(code);
+      blackhole.consume(new DexBuilder(code, registerAllocator).build());
+    }
+  }
+
+  private LinearScanRegisterAllocator allocateRegisters(IRCode code) {
+    // The register allocator does not allow dead code.
+    deadCodeRemover.run(code, Timing.empty());
+    LinearScanRegisterAllocator registerAllocator = new LinearScanRegisterAllocator(appView, code);
+    registerAllocator.allocateRegisters();
+    return registerAllocator;
+  }
+}
@@ -0,0 +1,178 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks.jmh;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.IADD;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.ISTORE;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.optimize.CodeRewriter;
+import com.android.tools.r8.ir.optimize.DeadCodeRemover;
+import com.android.tools.r8.ir.regalloc.LinearScanRegisterAllocator;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link LinearScanRegisterAllocator} on large synthetic methods, in the style of
+ * generated parsers: a number of values that are all live into a large switch.
+ *
+ * <p>With more than 16 live values the allocation cannot use 4-bit registers. The gc profiler
+ * reports the garbage produced by the allocator.
+ *
+ * <p>Register allocation modifies the IR, so each invocation allocates registers for IR that has
+ * been built for it. The IR of a batch of invocations is built before each iteration, and the batch
+ * is measured as a single shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = RegisterAllocationBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = RegisterAllocationBenchmark.BATCH_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class RegisterAllocationBenchmark {
+
+  private static final String CLASS_NAME = "com/example/LargeMethods";
+  private static final int NUMBER_OF_METHODS = 10;
+
+  static final int BATCH_SIZE = 5;
+
+  @Param({"8", "64", "512"})
+  public int numberOfLiveValues;
+
+  @Param({"1000"})
+  public int numberOfSwitchCases;
+
+  private AppView<AppInfo> appView;
+  private DeadCodeRemover deadCodeRemover;
+  private final List<ProgramMethod> methods = new ArrayList<>();
+  private final List<List<IRCode>> codes = new ArrayList<>(BATCH_SIZE);
+  private int nextCodes;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws IOException {
+    InternalOptions options = new InternalOptions();
+    options.minApiLevel = BenchmarkInputs.MIN_API;
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    AndroidApp app = AndroidApp.builder().addClassProgramData(createClassFile()).build();
+    DexApplication application =
+        new ApplicationReader(app, options, Timing.empty()).read().toDirect();
+    appView = AppView.createForD8(AppInfo.createInitialAppInfo(application));
+    deadCodeRemover = new DeadCodeRemover(appView, new CodeRewriter(appView, null));
+    methods.clear();
+    for (DexProgramClass clazz : application.classes()) {
+      clazz.forEachProgramMethodMatching(DexEncodedMethod::hasCode, methods::add);
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    codes.clear();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      List<IRCode> batch = new ArrayList<>(methods.size());
+      for (ProgramMethod method : methods) {
+        IRCode code = method.buildIR(appView);
+        // The register allocator does not allow dead code.
+        deadCodeRemover.run(code, Timing.empty());
+        batch.add(code);
+      }
+      codes.add(batch);
+    }
+    nextCodes = 0;
+  }
+
+  @Benchmark
+  public void allocateRegisters(Blackhole blackhole) {
+    for (IRCode code : codes.get(nextCodes++)) {
+      LinearScanRegisterAllocator registerAllocator =
+          new LinearScanRegisterAllocator(appView, code);
+      registerAllocator.allocateRegisters();
+      blackhole.consume(registerAllocator.registersUsed());
+    }
+  }
+
+  // Creates a class with methods of the form:
+  //
+  //   static int m(int x) {
+  //     int v0 = x + 0; ...; int vN = x + N;
+  //     switch (x) {
+  //       case 0: return v0 + v1;
+  //       ...
+  //       default: return v0 + ... + vN;
+  //     }
+  //   }
+  private byte[] createClassFile() {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    writer.visit(V1_8, ACC_PUBLIC, CLASS_NAME, null, "java/lang/Object", null);
+    for (int i = 0; i < NUMBER_OF_METHODS; i++) {
+      MethodVisitor method =
+          writer.visitMethod(ACC_PUBLIC | ACC_STATIC, "m" + i, "(I)I", null, null);
+      method.visitCode();
+      for (int value = 0; value < numberOfLiveValues; value++) {
+        method.visitVarInsn(ILOAD, 0);
+        method.visitLdcInsn(value + i);
+        method.visitInsn(IADD);
+        method.visitVarInsn(ISTORE, value + 1);
+      }
+      Label defaultLabel = new Label();
+      Label[] caseLabels = new Label[numberOfSwitchCases];
+      for (int switchCase = 0; switchCase < numberOfSwitchCases; switchCase++) {
+        caseLabels[switchCase] = new Label();
+      }
+      method.visitVarInsn(ILOAD, 0);
+      method.visitTableSwitchInsn(0, numberOfSwitchCases - 1, defaultLabel, caseLabels);
+      for (int switchCase = 0; switchCase < numberOfSwitchCases; switchCase++) {
+        method.visitLabel(caseLabels[switchCase]);
+        method.visitVarInsn(ILOAD, switchCase % numberOfLiveValues + 1);
+        method.visitVarInsn(ILOAD, (switchCase + 1) % numberOfLiveValues + 1);
+        method.visitInsn(IADD);
+        method.visitInsn(IRETURN);
+      }
+      method.visitLabel(defaultLabel);
+      method.visitVarInsn(ILOAD, 1);
+      for (int value = 1; value < numberOfLiveValues; value++) {
+        method.visitVarInsn(ILOAD, value + 1);
+        method.visitInsn(IADD);
+      }
+      method.visitInsn(IRETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+}
@@ -47,6 +47,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
   private final BiPredicate<String, Long> dexClassChecksumFilter;
   private final List<AssertionsConfiguration> assertionsConfiguration;
   private final List<Consumer<Inspector>> outputInspections;
+  private final StringConsumer traceConsumer;
   private int threadCount;
 
   BaseCompilerCommand(boolean printHelp, boolean printVersion) {
@@ -62,6 +63,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     dexClassChecksumFilter = (name, checksum) -> true;
     assertionsConfiguration = new ArrayList<>();
     outputInspections = null;
+    traceConsumer = null;
     threadCount = ThreadUtils.NOT_SPECIFIED;
   }
 
@@ -78,6 +80,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
       BiPredicate<String, Long> dexClassChecksumFilter,
       List<AssertionsConfiguration> assertionsConfiguration,
       List<Consumer<Inspector>> outputInspections,
+      StringConsumer traceConsumer,
       int threadCount) {
     super(app);
     assert minApiLevel > 0;
@@ -93,6 +96,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     this.dexClassChecksumFilter = dexClassChecksumFilter;
     this.assertionsConfiguration = assertionsConfiguration;
     this.outputInspections = outputInspections;
+    this.traceConsumer = traceConsumer;
     this.threadCount = threadCount;
   }
 
@@ -112,6 +116,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
   void dumpBaseCommandOptions(DumpOptions.Builder builder) {
     builder
         .setCompilationMode(getMode())
+        .setGeneratingClassFiles(getProgramConsumer() instanceof ClassFileConsumer)
         .setMinApi(getMinApiLevel())
         .setOptimizeMultidexForLinearAlloc(isOptimizeMultidexForLinearAlloc())
         .setThreadCount(getThreadCount())
@@ -169,6 +174,11 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     return Collections.unmodifiableList(outputInspections);
   }
 
+  /** Get the consumer that will receive the compilation trace, or null if tracing is disabled. */
+  public StringConsumer getTraceConsumer() {
+    return traceConsumer;
+  }
+
   /** Get the number of threads to use for the compilation. */
   public int getThreadCount() {
     return threadCount;
@@ -206,6 +216,7 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     private BiPredicate<String, Long> dexClassChecksumFilter = (name, checksum) -> true;
     private List<AssertionsConfiguration> assertionsConfiguration = new ArrayList<>();
     private List<Consumer<Inspector>> outputInspections = new ArrayList<>();
+    private StringConsumer traceConsumer = null;
     protected StringConsumer proguardMapConsumer = null;
 
     abstract CompilationMode defaultCompilationMode();
@@ -654,5 +665,41 @@ public abstract class BaseCompilerCommand extends BaseCommand {
     List<Consumer<Inspector>> getOutputInspections() {
       return outputInspections;
     }
+
+    /**
+     * Set an output destination to which a trace of the compilation should be written.
+     *
+     * <p>This is a short-hand for setting a {@link StringConsumer.FileConsumer} using {@link
+     * #setTraceConsumer}. Note that any subsequent call to this method or {@link
+     * #setTraceConsumer} will override the previous setting.
+     *
+     * @param traceOutputPath File-system path to write output at.
+     */
+    public B setTraceOutputPath(Path traceOutputPath) {
+      traceConsumer = new StringConsumer.FileConsumer(traceOutputPath);
+      return self();
+    }
+
+    /**
+     * Set a consumer for receiving a trace of the compilation.
+     *
+     * <p>The trace is in the Chrome trace event format and can be opened in chrome://tracing or
+     * https://ui.perfetto.dev. It has a span for each compilation phase and for the processing of
+     * each method, and counters and histograms on, e.g., inlining and tree shaking. The format of
+     * the span names, counters and histograms is not stable and may change between versions.
+     *
+     * <p>Note that any subsequent call to this method or {@link #setTraceOutputPath} will override
+     * the previous setting.
+     *
+     * @param traceConsumer Consumer to receive the trace once the compilation has finished.
+     */
+    public B setTraceConsumer(StringConsumer traceConsumer) {
+      this.traceConsumer = traceConsumer;
+      return self();
+    }
+
+    StringConsumer getTraceConsumer() {
+      return traceConsumer;
+    }
   }
 }
@@ -0,0 +1,329 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thread-safe pool of class file resources from library and classpath archives that can be shared
+ * between compilations in a long-running process, such as a build daemon.
+ *
+ * <p>The pool keeps each archive open and its descriptor index in memory, such that subsequent
+ * compilations do not open and index the archive again, and keeps the content of the most recently
+ * used class files in memory up to a size budget, such that they are not decompressed again. An
+ * archive that has changed on disk since it was opened is opened again on the next request.
+ *
+ * <p>The providers of the pool are passed to a compilation like any other provider, e.g.:
+ *
+ * <pre>
+ *   D8Command.builder()
+ *       .addLibraryResourceProvider(pool.getArchiveProvider(androidJar))
+ *       ...
+ * </pre>
+ *
+ * <p>The classes are parsed by each compilation, since the parsed classes are specific to a
+ * compilation. A provider should be closed when the compilation that uses it has finished, such
+ * that an archive that has changed on disk is closed once none of its providers are in use. The
+ * pool must be closed when it is no longer used, after all compilations that use its providers
+ * have finished.
+ */
+@Keep
+public final class ClassFileResourcePool implements Closeable {
+
+  private final long maximumSizeInBytes;
+
+  private final Map<Path, OpenArchive> archives = new HashMap<>();
+  // Archives that have been replaced by a newer version of the same file, but still have open
+  // providers.
+  private final List<OpenArchive> staleArchives = new ArrayList<>();
+
+  // Access ordered, such that the least recently used class file is evicted first.
+  private final LinkedHashMap<ResourceKey, ProgramResource> resources =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long sizeInBytes = 0;
+  private boolean closed = false;
+
+  private ClassFileResourcePool(long maximumSizeInBytes) {
+    this.maximumSizeInBytes = maximumSizeInBytes;
+  }
+
+  /**
+   * Creates a pool that keeps at most {@param maximumSizeInBytes} bytes of class file content in
+   * memory, in addition to the descriptor index of each archive.
+   */
+  public static ClassFileResourcePool create(long maximumSizeInBytes) {
+    if (maximumSizeInBytes < 0) {
+      throw new IllegalArgumentException("The maximum size must not be negative");
+    }
+    return new ClassFileResourcePool(maximumSizeInBytes);
+  }
+
+  /**
+   * Get a provider of the class files in the archive at {@param archive}.
+   *
+   * <p>Providers for the same unchanged archive share the open archive and the cached class files.
+   * The provider should be closed when the compilation that uses it has finished.
+   */
+  public PooledProvider getArchiveProvider(Path archive) throws IOException {
+    Path key = archive.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    synchronized (this) {
+      checkNotClosed();
+      OpenArchive openArchive = archives.get(key);
+      if (openArchive != null && openArchive.isUpToDate(attributes)) {
+        return newProvider(openArchive);
+      }
+    }
+    // Open and index the archive outside the lock, such that other archives remain available.
+    OpenArchive openArchive = new OpenArchive(new ArchiveClassFileProvider(key), attributes);
+    OpenArchive unusedStaleArchive = null;
+    PooledProvider provider;
+    synchronized (this) {
+      OpenArchive existing = archives.get(key);
+      if (closed || (existing != null && existing.isUpToDate(attributes))) {
+        // The pool was closed or another thread opened the archive concurrently.
+        openArchive.provider.close();
+        checkNotClosed();
+        return newProvider(existing);
+      }
+      if (existing != null) {
+        // Compilations may still use providers for the stale archive, in which case it is closed
+        // when its last provider is closed. Its class files are no longer cached.
+        existing.isStale = true;
+        if (existing.openProviders == 0) {
+          unusedStaleArchive = existing;
+        } else {
+          staleArchives.add(existing);
+        }
+        resources
+            .entrySet()
+            .removeIf(
+                entry -> {
+                  if (entry.getKey().archive == existing) {
+                    sizeInBytes -= getSize(entry.getValue());
+                    return true;
+                  }
+                  return false;
+                });
+      }
+      archives.put(key, openArchive);
+      provider = newProvider(openArchive);
+    }
+    if (unusedStaleArchive != null) {
+      unusedStaleArchive.provider.close();
+    }
+    return provider;
+  }
+
+  // Guarded by the pool.
+  private PooledProvider newProvider(OpenArchive archive) {
+    archive.openProviders++;
+    return new PooledProvider(archive);
+  }
+
+  private void closeProvider(OpenArchive archive) throws IOException {
+    synchronized (this) {
+      archive.openProviders--;
+      if (archive.openProviders > 0 || !archive.isStale || !staleArchives.remove(archive)) {
+        // The archive is still in use, is still the current version, or was closed with the pool.
+        return;
+      }
+    }
+    archive.provider.close();
+  }
+
+  /** Returns the number of archives that have changed on disk but still have open providers. */
+  synchronized int getNumberOfStaleArchives() {
+    return staleArchives.size();
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("The class file resource pool is closed");
+    }
+  }
+
+  /** Returns the number of bytes of class file content that are currently in memory. */
+  public synchronized long getSizeInBytes() {
+    return sizeInBytes;
+  }
+
+  private ProgramResource getProgramResource(OpenArchive archive, String descriptor) {
+    ResourceKey key = new ResourceKey(archive, descriptor);
+    synchronized (this) {
+      ProgramResource resource = resources.get(key);
+      if (resource != null) {
+        return resource;
+      }
+    }
+    // Read the class file outside the lock. Concurrent requests for the same class file may read
+    // it more than once, which is harmless.
+    ProgramResource resource = archive.provider.getProgramResource(descriptor);
+    if (resource == null) {
+      return null;
+    }
+    long size = getSize(resource);
+    if (size > maximumSizeInBytes) {
+      return resource;
+    }
+    synchronized (this) {
+      if (closed || archive.isStale) {
+        return resource;
+      }
+      ProgramResource existing = resources.putIfAbsent(key, resource);
+      if (existing != null) {
+        return existing;
+      }
+      sizeInBytes += size;
+      Iterator<ProgramResource> iterator = resources.values().iterator();
+      while (sizeInBytes > maximumSizeInBytes) {
+        sizeInBytes -= getSize(iterator.next());
+        iterator.remove();
+      }
+    }
+    return resource;
+  }
+
+  private static long getSize(ProgramResource resource) {
+    try {
+      return resource.getBytes().length;
+    } catch (ResourceException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    List<OpenArchive> toClose;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      toClose = new ArrayList<>(archives.values());
+      toClose.addAll(staleArchives);
+      archives.clear();
+      staleArchives.clear();
+      resources.clear();
+      sizeInBytes = 0;
+    }
+    IOException exception = null;
+    for (OpenArchive archive : toClose) {
+      try {
+        archive.provider.close();
+      } catch (IOException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private static class OpenArchive {
+
+    private final ArchiveClassFileProvider provider;
+    private final FileTime lastModifiedTime;
+    private final long size;
+    // Guarded by the pool.
+    private boolean isStale = false;
+    private int openProviders = 0;
+
+    private OpenArchive(ArchiveClassFileProvider provider, BasicFileAttributes attributes) {
+      this.provider = provider;
+      this.lastModifiedTime = attributes.lastModifiedTime();
+      this.size = attributes.size();
+    }
+
+    private boolean isUpToDate(BasicFileAttributes attributes) {
+      return lastModifiedTime.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+  }
+
+  private static class ResourceKey {
+
+    // Compared by identity, such that the class files of a stale archive are never returned for
+    // the archive that replaced it.
+    private final OpenArchive archive;
+    private final String descriptor;
+
+    private ResourceKey(OpenArchive archive, String descriptor) {
+      this.archive = archive;
+      this.descriptor = descriptor;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ResourceKey)) {
+        return false;
+      }
+      ResourceKey key = (ResourceKey) other;
+      return archive == key.archive && descriptor.equals(key.descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(archive), descriptor);
+    }
+  }
+
+  /** Provider of the class files of an archive in the pool. */
+  @Keep
+  public final class PooledProvider implements ClassFileResourceProvider, Closeable {
+
+    private final OpenArchive archive;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private PooledProvider(OpenArchive archive) {
+      this.archive = archive;
+    }
+
+    @Override
+    public Set<String> getClassDescriptors() {
+      checkNotClosed();
+      return archive.provider.getClassDescriptors();
+    }
+
+    @Override
+    public ProgramResource getProgramResource(String descriptor) {
+      checkNotClosed();
+      return ClassFileResourcePool.this.getProgramResource(archive, descriptor);
+    }
+
+    private void checkNotClosed() {
+      if (closed.get()) {
+        throw new IllegalStateException("The class file resource provider is closed");
+      }
+    }
+
+    /**
+     * Releases the archive of this provider. An archive that has changed on disk is closed when
+     * its last provider is closed.
+     */
+    @Override
+    public void close() throws IOException {
+      if (closed.compareAndSet(false, true)) {
+        closeProvider(archive);
+      }
+    }
+  }
+}
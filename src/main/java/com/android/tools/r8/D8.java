@@ -179,6 +179,12 @@ public final class D8 {
       throws IOException {
     Timing timing = Timing.create("D8", options);
     try {
+      if (options.perClassDexCache != null) {
+        timing.begin("Per-class dex cache lookup");
+        inputApp = options.perClassDexCache.lookupAndRemoveCachedClasses(inputApp, options);
+        timing.end();
+      }
+
       // Disable global optimizations.
       options.disableGlobalOptimizations();
 
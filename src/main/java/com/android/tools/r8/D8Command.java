@@ -7,6 +7,7 @@ import static com.android.tools.r8.utils.InternalOptions.DETERMINISTIC_DEBUGGING
 
 import com.android.tools.r8.AssertionsConfiguration.AssertionTransformation;
 import com.android.tools.r8.dex.Marker.Tool;
+import com.android.tools.r8.dex.PerClassDexCache;
 import com.android.tools.r8.errors.DexFileOverflowDiagnostic;
 import com.android.tools.r8.graph.DexItemFactory;
 import com.android.tools.r8.inspector.Inspector;
@@ -26,6 +27,7 @@ import com.android.tools.r8.utils.InternalOptions.DesugarState;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Tracer;
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -85,6 +87,8 @@ public final class D8Command extends BaseCompilerCommand {
     private boolean minimalMainDex = false;
     private boolean skipDump = false;
     private final List<ProguardConfigurationSource> mainDexRules = new ArrayList<>();
+    private Path perClassDexCacheDirectory = null;
+    private long perClassDexCacheMaximumSizeInBytes = 0;
 
     private Builder() {
       this(new DefaultD8DiagnosticsHandler());
@@ -175,6 +179,25 @@ public final class D8Command extends BaseCompilerCommand {
       return self();
     }
 
+    /**
+     * Set a directory for caching the DEX output of individual class files across compilations.
+     *
+     * <p>The cache can only be used when compiling to a {@link DexFilePerClassFileConsumer} that
+     * combines synthetic classes with their primary class, and the program only consists of class
+     * files. A class file that has been compiled before by the same compiler version and with the
+     * same options is not compiled again, unless the class file or any of its supertypes and nest
+     * mates on the program, classpath or library has changed. The cache directory can be shared by
+     * concurrent compilations.
+     *
+     * @param directory Directory of the cache, which is created if it does not exist.
+     * @param maximumSizeInBytes Bound on the total size of the cache entries in the directory.
+     */
+    public Builder setPerClassDexCache(Path directory, long maximumSizeInBytes) {
+      this.perClassDexCacheDirectory = directory;
+      this.perClassDexCacheMaximumSizeInBytes = maximumSizeInBytes;
+      return self();
+    }
+
     /**
      * Allow to skip to dump into file and dump into directory instruction, this is primarily used
      * for chained compilation in L8 so there are no duplicated dumps.
@@ -275,6 +298,19 @@ public final class D8Command extends BaseCompilerCommand {
       if (hasDesugaredLibraryConfiguration() && getDisableDesugaring()) {
         reporter.error("Using desugared library configuration requires desugaring to be enabled");
       }
+      if (perClassDexCacheDirectory != null) {
+        if (!(getProgramConsumer() instanceof DexFilePerClassFileConsumer)
+            || !((DexFilePerClassFileConsumer) getProgramConsumer())
+                .combineSyntheticClassesWithPrimaryClass()) {
+          reporter.error("The per-class dex cache requires a file-per-class-file output");
+        }
+        if (desugarGraphConsumer != null) {
+          reporter.error("The per-class dex cache cannot be used with a desugar graph consumer");
+        }
+        if (perClassDexCacheMaximumSizeInBytes <= 0) {
+          reporter.error("The maximum size of the per-class dex cache must be positive");
+        }
+      }
       super.validate();
     }
 
@@ -310,11 +346,16 @@ public final class D8Command extends BaseCompilerCommand {
           libraryConfiguration,
           getAssertionsConfiguration(),
           getOutputInspections(),
+          getTraceConsumer(),
           synthesizedClassPrefix,
           skipDump,
           enableMainDexListCheck,
           minimalMainDex,
           mainDexKeepRules,
+          perClassDexCacheDirectory == null
+              ? null
+              : new PerClassDexCache(
+                  perClassDexCacheDirectory, perClassDexCacheMaximumSizeInBytes),
           getThreadCount(),
           factory);
     }
@@ -331,6 +372,7 @@ public final class D8Command extends BaseCompilerCommand {
   private final boolean enableMainDexListCheck;
   private final boolean minimalMainDex;
   private final ImmutableList<ProguardConfigurationRule> mainDexKeepRules;
+  private final PerClassDexCache perClassDexCache;
   private final DexItemFactory factory;
 
   public static Builder builder() {
@@ -390,11 +432,13 @@ public final class D8Command extends BaseCompilerCommand {
       DesugaredLibraryConfiguration libraryConfiguration,
       List<AssertionsConfiguration> assertionsConfiguration,
       List<Consumer<Inspector>> outputInspections,
+      StringConsumer traceConsumer,
       String synthesizedClassPrefix,
       boolean skipDump,
       boolean enableMainDexListCheck,
       boolean minimalMainDex,
       ImmutableList<ProguardConfigurationRule> mainDexKeepRules,
+      PerClassDexCache perClassDexCache,
       int threadCount,
       DexItemFactory factory) {
     super(
@@ -410,6 +454,7 @@ public final class D8Command extends BaseCompilerCommand {
         dexClassChecksumFilter,
         assertionsConfiguration,
         outputInspections,
+        traceConsumer,
         threadCount);
     this.intermediate = intermediate;
     this.desugarGraphConsumer = desugarGraphConsumer;
@@ -420,6 +465,7 @@ public final class D8Command extends BaseCompilerCommand {
     this.enableMainDexListCheck = enableMainDexListCheck;
     this.minimalMainDex = minimalMainDex;
     this.mainDexKeepRules = mainDexKeepRules;
+    this.perClassDexCache = perClassDexCache;
     this.factory = factory;
   }
 
@@ -434,6 +480,7 @@ public final class D8Command extends BaseCompilerCommand {
     enableMainDexListCheck = true;
     minimalMainDex = false;
     mainDexKeepRules = null;
+    perClassDexCache = null;
     factory = null;
   }
 
@@ -459,6 +506,7 @@ public final class D8Command extends BaseCompilerCommand {
     internal.readCompileTimeAnnotations = intermediate;
     internal.desugarGraphConsumer = desugarGraphConsumer;
     internal.mainDexKeepRules = mainDexKeepRules;
+    internal.perClassDexCache = perClassDexCache;
 
     // Assert and fixup defaults.
     assert !internal.isShrinking();
@@ -494,6 +542,7 @@ public final class D8Command extends BaseCompilerCommand {
             AssertionTransformation.DISABLE, getAssertionsConfiguration());
 
     internal.outputInspections = InspectorImpl.wrapInspections(getOutputInspections());
+    internal.tracer = Tracer.create(getTraceConsumer());
 
     if (!DETERMINISTIC_DEBUGGING) {
       assert internal.threadCount == ThreadUtils.NOT_SPECIFIED;
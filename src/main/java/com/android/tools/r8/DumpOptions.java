@@ -20,23 +20,27 @@ public class DumpOptions {
   // The following keys and values should not be changed to keep the dump utility backward
   // compatible with previous versions. They are also used by the python script compileDump and
   // the corresponding CompileDumpCompatR8 java class.
-  private static final String TOOL_KEY = "tool";
-  private static final String MODE_KEY = "mode";
-  private static final String DEBUG_MODE_VALUE = "debug";
-  private static final String RELEASE_MODE_VALUE = "release";
-  private static final String MIN_API_KEY = "min-api";
-  private static final String OPTIMIZE_MULTIDEX_FOR_LINEAR_ALLOC_KEY =
+  public static final String TOOL_KEY = "tool";
+  public static final String MODE_KEY = "mode";
+  public static final String DEBUG_MODE_VALUE = "debug";
+  public static final String RELEASE_MODE_VALUE = "release";
+  public static final String BACKEND_KEY = "backend";
+  public static final String CF_BACKEND_VALUE = "cf";
+  public static final String DEX_BACKEND_VALUE = "dex";
+  public static final String MIN_API_KEY = "min-api";
+  public static final String OPTIMIZE_MULTIDEX_FOR_LINEAR_ALLOC_KEY =
       "optimize-multidex-for-linear-alloc";
-  private static final String THREAD_COUNT_KEY = "thread-count";
-  private static final String DESUGAR_STATE_KEY = "desugar-state";
-  private static final String INTERMEDIATE_KEY = "intermediate";
-  private static final String INCLUDE_DATA_RESOURCES_KEY = "include-data-resources";
-  private static final String TREE_SHAKING_KEY = "tree-shaking";
-  private static final String MINIFICATION_KEY = "minification";
-  private static final String FORCE_PROGUARD_COMPATIBILITY_KEY = "force-proguard-compatibility";
+  public static final String THREAD_COUNT_KEY = "thread-count";
+  public static final String DESUGAR_STATE_KEY = "desugar-state";
+  public static final String INTERMEDIATE_KEY = "intermediate";
+  public static final String INCLUDE_DATA_RESOURCES_KEY = "include-data-resources";
+  public static final String TREE_SHAKING_KEY = "tree-shaking";
+  public static final String MINIFICATION_KEY = "minification";
+  public static final String FORCE_PROGUARD_COMPATIBILITY_KEY = "force-proguard-compatibility";
 
   private final Tool tool;
   private final CompilationMode compilationMode;
+  private final boolean isGeneratingClassFiles;
   private final int minApi;
   private final boolean optimizeMultidexForLinearAlloc;
   private final int threadCount;
@@ -59,6 +63,7 @@ public class DumpOptions {
   private DumpOptions(
       Tool tool,
       CompilationMode compilationMode,
+      boolean isGeneratingClassFiles,
       int minAPI,
       DesugaredLibraryConfiguration desugaredLibraryConfiguration,
       boolean optimizeMultidexForLinearAlloc,
@@ -75,6 +80,7 @@ public class DumpOptions {
       boolean dumpInputToFile) {
     this.tool = tool;
     this.compilationMode = compilationMode;
+    this.isGeneratingClassFiles = isGeneratingClassFiles;
     this.minApi = minAPI;
     this.desugaredLibraryConfiguration = desugaredLibraryConfiguration;
     this.optimizeMultidexForLinearAlloc = optimizeMultidexForLinearAlloc;
@@ -99,6 +105,8 @@ public class DumpOptions {
         builder,
         MODE_KEY,
         compilationMode == CompilationMode.DEBUG ? DEBUG_MODE_VALUE : RELEASE_MODE_VALUE);
+    addDumpEntry(
+        builder, BACKEND_KEY, isGeneratingClassFiles ? CF_BACKEND_VALUE : DEX_BACKEND_VALUE);
     addDumpEntry(builder, MIN_API_KEY, minApi);
     addDumpEntry(builder, OPTIMIZE_MULTIDEX_FOR_LINEAR_ALLOC_KEY, optimizeMultidexForLinearAlloc);
     if (threadCount != ThreadUtils.NOT_SPECIFIED) {
@@ -161,6 +169,7 @@ public class DumpOptions {
   public static class Builder {
     private final Tool tool;
     private CompilationMode compilationMode;
+    private boolean isGeneratingClassFiles;
     private int minApi;
     private boolean optimizeMultidexForLinearAlloc;
     private int threadCount;
@@ -188,6 +197,11 @@ public class DumpOptions {
       return this;
     }
 
+    public Builder setGeneratingClassFiles(boolean isGeneratingClassFiles) {
+      this.isGeneratingClassFiles = isGeneratingClassFiles;
+      return this;
+    }
+
     public Builder setMinApi(int minAPI) {
       this.minApi = minAPI;
       return this;
@@ -264,6 +278,7 @@ public class DumpOptions {
       return new DumpOptions(
           tool,
           compilationMode,
+          isGeneratingClassFiles,
           minApi,
           desugaredLibraryConfiguration,
           optimizeMultidexForLinearAlloc,
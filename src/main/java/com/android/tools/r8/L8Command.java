@@ -21,6 +21,7 @@ import com.android.tools.r8.utils.Pair;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Tracer;
 import com.google.common.collect.ImmutableList;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -94,6 +95,7 @@ public final class L8Command extends BaseCompilerCommand {
       DesugaredLibraryConfiguration libraryConfiguration,
       List<AssertionsConfiguration> assertionsConfiguration,
       List<Consumer<Inspector>> outputInspections,
+      StringConsumer traceConsumer,
       int threadCount,
       DexItemFactory factory) {
     super(
@@ -109,6 +111,7 @@ public final class L8Command extends BaseCompilerCommand {
         dexClassChecksumFilter,
         assertionsConfiguration,
         outputInspections,
+        traceConsumer,
         threadCount);
     this.d8Command = d8Command;
     this.r8Command = r8Command;
@@ -160,6 +163,7 @@ public final class L8Command extends BaseCompilerCommand {
     assert internal.readCompileTimeAnnotations;
     internal.programConsumer = getProgramConsumer();
     assert internal.programConsumer instanceof ClassFileConsumer;
+    internal.tracer = Tracer.create(getTraceConsumer());
 
     // Assert and fixup defaults.
     assert !internal.isShrinking();
@@ -394,6 +398,7 @@ public final class L8Command extends BaseCompilerCommand {
           libraryConfiguration,
           getAssertionsConfiguration(),
           getOutputInspections(),
+          getTraceConsumer(),
           getThreadCount(),
           factory);
     }
@@ -107,6 +107,7 @@ import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.CfgPrinter;
 import com.android.tools.r8.utils.CollectionUtils;
+import com.android.tools.r8.utils.CompilationResultCache;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.LineNumberOptimizer;
@@ -262,7 +263,17 @@ public class R8 {
 
   private static void run(AndroidApp app, InternalOptions options, ExecutorService executor)
       throws IOException {
+    CompilationResultCache cache = CompilationResultCache.create(app, options);
+    if (cache != null) {
+      if (cache.replay()) {
+        return;
+      }
+      cache.startRecording();
+    }
     new R8(options).run(app, executor);
+    if (cache != null) {
+      cache.store();
+    }
   }
 
   private static DirectMappedDexApplication getDirectApp(AppView<?> appView) {
@@ -500,7 +511,7 @@ public class R8 {
           timing.begin("HorizontalClassMerger");
           HorizontalClassMerger merger = new HorizontalClassMerger(appViewWithLiveness);
           HorizontalClassMergerResult horizontalClassMergerResult =
-              merger.run(runtimeTypeCheckInfo, timing);
+              merger.run(runtimeTypeCheckInfo, executorService, timing);
           if (horizontalClassMergerResult != null) {
             // Must rewrite AppInfoWithLiveness before pruning the merged classes, to ensure that
             // allocations sites, fields accesses, etc. are correctly transferred to the target
@@ -749,7 +760,8 @@ public class R8 {
       // used. We still run the line number optimizer to collect line numbers and inline frame
       // information for the mapping file.
       ClassNameMapper classNameMapper =
-          LineNumberOptimizer.run(appView, getDirectApp(appView), inputApp, namingLens);
+          LineNumberOptimizer.run(
+              appView, getDirectApp(appView), inputApp, namingLens, executorService);
       timing.end();
 
       // Overwrite SourceFile if specified. This step should be done after IR conversion.
@@ -35,6 +35,7 @@ import com.android.tools.r8.utils.InternalOptions.LineNumberOptimization;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Tracer;
 import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -102,6 +103,7 @@ public final class R8Command extends BaseCompilerCommand {
     private boolean disableVerticalClassMerging = false;
     private boolean forceProguardCompatibility = false;
     private Optional<Boolean> includeDataResources = Optional.empty();
+    private Path binaryProguardMapOutput = null;
     private StringConsumer proguardUsageConsumer = null;
     private StringConsumer proguardSeedsConsumer = null;
     private StringConsumer proguardConfigurationConsumer = null;
@@ -111,6 +113,8 @@ public final class R8Command extends BaseCompilerCommand {
     private final List<FeatureSplit> featureSplits = new ArrayList<>();
     private String synthesizedClassPrefix = "";
     private boolean skipDump = false;
+    private Path compilationResultCacheDirectory = null;
+    private long compilationResultCacheMaximumSizeInBytes = 0;
 
     private boolean allowPartiallyImplementedProguardOptions = false;
     private boolean allowTestProguardOptions =
@@ -254,6 +258,40 @@ public final class R8Command extends BaseCompilerCommand {
       return super.setProguardMapConsumer(proguardMapConsumer);
     }
 
+    /**
+     * Set an output destination to which a binary companion of the proguard map should be written.
+     *
+     * <p>The binary file has the same content as the proguard map, in a format that a retracer
+     * created with {@link com.android.tools.r8.retrace.ProguardMapProducer#fromPath} reads without
+     * parsing. It is only written when the proguard map is written, see {@link
+     * #setProguardMapOutputPath} and {@link #setProguardMapConsumer}.
+     *
+     * @param binaryProguardMapOutput File-system path to write output at.
+     */
+    public Builder setBinaryProguardMapOutputPath(Path binaryProguardMapOutput) {
+      this.binaryProguardMapOutput = binaryProguardMapOutput;
+      return self();
+    }
+
+    /**
+     * Set a directory for caching the results of entire compilations across compilations.
+     *
+     * <p>A compilation with the same compiler, settings, keep rules, program, classpath and library
+     * as a cached compilation passes the cached outputs to the consumers and reports the infos and
+     * warnings of the cached compilation, instead of compiling again. Any change leads to a full
+     * compilation. Compilations with feature splits or with outputs other than the program, the
+     * data resources and the proguard map are not cached. The cache directory can be shared by
+     * concurrent compilations.
+     *
+     * @param directory Directory of the cache, which is created if it does not exist.
+     * @param maximumSizeInBytes Bound on the total size of the cache entries in the directory.
+     */
+    public Builder setCompilationResultCache(Path directory, long maximumSizeInBytes) {
+      this.compilationResultCacheDirectory = directory;
+      this.compilationResultCacheMaximumSizeInBytes = maximumSizeInBytes;
+      return self();
+    }
+
     /**
      * Set a consumer for receiving the keep rules to use when compiling the desugared library for
      * the program being compiled in this compilation.
@@ -456,6 +494,10 @@ public final class R8Command extends BaseCompilerCommand {
       if (hasDesugaredLibraryConfiguration() && getDisableDesugaring()) {
         reporter.error("Using desugared library configuration requires desugaring to be enabled");
       }
+      if (compilationResultCacheDirectory != null
+          && compilationResultCacheMaximumSizeInBytes <= 0) {
+        reporter.error("The maximum size of the compilation result cache must be positive");
+      }
       super.validate();
     }
 
@@ -569,6 +611,7 @@ public final class R8Command extends BaseCompilerCommand {
               forceProguardCompatibility,
               includeDataResources,
               proguardMapConsumer,
+              binaryProguardMapOutput,
               proguardUsageConsumer,
               proguardSeedsConsumer,
               proguardConfigurationConsumer,
@@ -583,8 +626,11 @@ public final class R8Command extends BaseCompilerCommand {
               featureSplitConfiguration,
               getAssertionsConfiguration(),
               getOutputInspections(),
+              getTraceConsumer(),
               synthesizedClassPrefix,
               skipDump,
+              compilationResultCacheDirectory,
+              compilationResultCacheMaximumSizeInBytes,
               getThreadCount());
 
       return command;
@@ -659,6 +705,7 @@ public final class R8Command extends BaseCompilerCommand {
   private final boolean forceProguardCompatibility;
   private final Optional<Boolean> includeDataResources;
   private final StringConsumer proguardMapConsumer;
+  private final Path binaryProguardMapOutput;
   private final StringConsumer proguardUsageConsumer;
   private final StringConsumer proguardSeedsConsumer;
   private final StringConsumer proguardConfigurationConsumer;
@@ -670,6 +717,8 @@ public final class R8Command extends BaseCompilerCommand {
   private final FeatureSplitConfiguration featureSplitConfiguration;
   private final String synthesizedClassPrefix;
   private final boolean skipDump;
+  private final Path compilationResultCacheDirectory;
+  private final long compilationResultCacheMaximumSizeInBytes;
 
   /** Get a new {@link R8Command.Builder}. */
   public static Builder builder() {
@@ -734,6 +783,7 @@ public final class R8Command extends BaseCompilerCommand {
       boolean forceProguardCompatibility,
       Optional<Boolean> includeDataResources,
       StringConsumer proguardMapConsumer,
+      Path binaryProguardMapOutput,
       StringConsumer proguardUsageConsumer,
       StringConsumer proguardSeedsConsumer,
       StringConsumer proguardConfigurationConsumer,
@@ -748,8 +798,11 @@ public final class R8Command extends BaseCompilerCommand {
       FeatureSplitConfiguration featureSplitConfiguration,
       List<AssertionsConfiguration> assertionsConfiguration,
       List<Consumer<Inspector>> outputInspections,
+      StringConsumer traceConsumer,
       String synthesizedClassPrefix,
       boolean skipDump,
+      Path compilationResultCacheDirectory,
+      long compilationResultCacheMaximumSizeInBytes,
       int threadCount) {
     super(
         inputApp,
@@ -764,6 +817,7 @@ public final class R8Command extends BaseCompilerCommand {
         dexClassChecksumFilter,
         assertionsConfiguration,
         outputInspections,
+        traceConsumer,
         threadCount);
     assert proguardConfiguration != null;
     assert mainDexKeepRules != null;
@@ -775,6 +829,7 @@ public final class R8Command extends BaseCompilerCommand {
     this.forceProguardCompatibility = forceProguardCompatibility;
     this.includeDataResources = includeDataResources;
     this.proguardMapConsumer = proguardMapConsumer;
+    this.binaryProguardMapOutput = binaryProguardMapOutput;
     this.proguardUsageConsumer = proguardUsageConsumer;
     this.proguardSeedsConsumer = proguardSeedsConsumer;
     this.proguardConfigurationConsumer = proguardConfigurationConsumer;
@@ -786,6 +841,8 @@ public final class R8Command extends BaseCompilerCommand {
     this.featureSplitConfiguration = featureSplitConfiguration;
     this.synthesizedClassPrefix = synthesizedClassPrefix;
     this.skipDump = skipDump;
+    this.compilationResultCacheDirectory = compilationResultCacheDirectory;
+    this.compilationResultCacheMaximumSizeInBytes = compilationResultCacheMaximumSizeInBytes;
   }
 
   private R8Command(boolean printHelp, boolean printVersion) {
@@ -798,6 +855,7 @@ public final class R8Command extends BaseCompilerCommand {
     forceProguardCompatibility = false;
     includeDataResources = null;
     proguardMapConsumer = null;
+    binaryProguardMapOutput = null;
     proguardUsageConsumer = null;
     proguardSeedsConsumer = null;
     proguardConfigurationConsumer = null;
@@ -809,6 +867,8 @@ public final class R8Command extends BaseCompilerCommand {
     featureSplitConfiguration = null;
     synthesizedClassPrefix = null;
     skipDump = false;
+    compilationResultCacheDirectory = null;
+    compilationResultCacheMaximumSizeInBytes = 0;
   }
 
   /** Get the enable-tree-shaking state. */
@@ -886,6 +946,7 @@ public final class R8Command extends BaseCompilerCommand {
             proguardMapConsumer,
             proguardConfiguration.isPrintMapping(),
             proguardConfiguration.getPrintMappingFile());
+    internal.binaryProguardMapOutput = binaryProguardMapOutput;
 
     // Amend the usage information consumer with options from the proguard configuration.
     internal.usageInformationConsumer =
@@ -919,6 +980,7 @@ public final class R8Command extends BaseCompilerCommand {
     internal.syntheticProguardRulesConsumer = syntheticProguardRulesConsumer;
 
     internal.outputInspections = InspectorImpl.wrapInspections(getOutputInspections());
+    internal.tracer = Tracer.create(getTraceConsumer());
 
     // Default is to remove all javac generated assertion code when generating dex.
     assert internal.assertionsConfiguration == null;
@@ -951,6 +1013,9 @@ public final class R8Command extends BaseCompilerCommand {
     internal.synthesizedClassPrefix = synthesizedClassPrefix;
     internal.desugaredLibraryKeepRuleConsumer = desugaredLibraryKeepRuleConsumer;
 
+    internal.compilationResultCacheDirectory = compilationResultCacheDirectory;
+    internal.compilationResultCacheMaximumSizeInBytes = compilationResultCacheMaximumSizeInBytes;
+
     if (!DETERMINISTIC_DEBUGGING) {
       assert internal.threadCount == ThreadUtils.NOT_SPECIFIED;
       internal.threadCount = getThreadCount();
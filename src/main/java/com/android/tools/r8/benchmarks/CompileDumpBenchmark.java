@@ -0,0 +1,494 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.ClassFileConsumer;
+import com.android.tools.r8.CompatProguardCommandBuilder;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.DataDirectoryResource;
+import com.android.tools.r8.DataEntryResource;
+import com.android.tools.r8.DataResourceConsumer;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.Diagnostic;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.DumpOptions;
+import com.android.tools.r8.R8;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.utils.ArchiveResourceProvider;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.InternalOptions.DesugarState;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.ZipUtils;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays compilation dumps, as produced with -Dcom.android.tools.r8.dumpinputtodirectory, and
+ * records the run time, the peak old generation usage and the time of each {@link
+ * com.android.tools.r8.utils.Timing} phase in JSON. The phase times are collected in a separate
+ * run after the measured runs, since tracing affects the run time.
+ *
+ * <p>Dumps written before the backend was recorded in the build properties are compiled to DEX,
+ * unless --classfile is given.
+ *
+ * <p>The memory metric is the peak usage of the old generation, which holds the long-lived data of
+ * the compilation. The young generation is left out, since its usage mostly depends on when the
+ * last young collection happened, which makes the peak of the whole heap noisy. For collectors
+ * that do not have an old generation, the peak usage of the whole heap is used.
+ *
+ * <p>If a baseline from a previous run is given, the results are compared to the baseline and the
+ * benchmark exits with status 1 if the run time or the peak old generation usage of any dump
+ * regressed by more than the threshold. The heap is controlled by the -Xmx of the JVM running the
+ * benchmark, and the maximum heap size is recorded in the results.
+ *
+ * <pre>
+ *   java -Xmx8g -cp r8.jar com.android.tools.r8.benchmarks.CompileDumpBenchmark \
+ *       --threads 8 --warmup 2 --iterations 5 --output results.json \
+ *       --baseline baseline.json --threshold 0.05 dump1.zip dump2.zip
+ * </pre>
+ */
+public class CompileDumpBenchmark {
+
+  private static final String USAGE =
+      "Usage: CompileDumpBenchmark [--threads <n>] [--warmup <n>] [--iterations <n>]"
+          + " [--output <file>] [--baseline <file>] [--threshold <fraction>] [--classfile]"
+          + " <dump.zip>...";
+
+  private static final String RUNTIME_KEY = "runtime_ms";
+  private static final String PEAK_MEMORY_KEY = "peak_old_gen_bytes";
+  private static final String PHASES_KEY = "phases_ms";
+
+  private int threads = ThreadUtils.NOT_SPECIFIED;
+  private int warmupIterations = 1;
+  private int iterations = 3;
+  private Path output = null;
+  private Path baseline = null;
+  private double threshold = 0.05;
+  private boolean classfile = false;
+  private final List<Path> dumps = new ArrayList<>();
+
+  public static void main(String[] args) throws Exception {
+    CompileDumpBenchmark benchmark = new CompileDumpBenchmark();
+    benchmark.parseArguments(args);
+    Map<String, Result> results = benchmark.run();
+    String json = benchmark.toJson(results);
+    if (benchmark.output != null) {
+      FileUtils.writeTextFile(benchmark.output, json);
+    } else {
+      System.out.println(json);
+    }
+    if (benchmark.baseline != null && !benchmark.compareToBaseline(results)) {
+      System.exit(1);
+    }
+  }
+
+  private void parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (!arg.startsWith("--")) {
+        dumps.add(Paths.get(arg));
+        continue;
+      }
+      if (arg.equals("--classfile")) {
+        classfile = true;
+        continue;
+      }
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("Missing value for " + arg + "\n" + USAGE);
+      }
+      String value = args[++i];
+      switch (arg) {
+        case "--threads":
+          threads = Integer.parseInt(value);
+          break;
+        case "--warmup":
+          warmupIterations = Integer.parseInt(value);
+          break;
+        case "--iterations":
+          iterations = Integer.parseInt(value);
+          break;
+        case "--output":
+          output = Paths.get(value);
+          break;
+        case "--baseline":
+          baseline = Paths.get(value);
+          break;
+        case "--threshold":
+          threshold = Double.parseDouble(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + arg + "\n" + USAGE);
+      }
+    }
+    if (dumps.isEmpty() || iterations < 1 || warmupIterations < 0) {
+      throw new IllegalArgumentException(USAGE);
+    }
+  }
+
+  private Map<String, Result> run() throws Exception {
+    Map<String, Result> results = new LinkedHashMap<>();
+    ExecutorService executor = ThreadUtils.getExecutorService(threads);
+    try {
+      for (Path dump : dumps) {
+        Path directory = Files.createTempDirectory("dump");
+        try {
+          ZipUtils.unzip(dump, directory);
+          List<Result> runs = new ArrayList<>();
+          for (int i = 0; i < warmupIterations + iterations; i++) {
+            Result result = compile(directory, executor);
+            if (i >= warmupIterations) {
+              runs.add(result);
+            }
+          }
+          results.put(
+              dump.getFileName().toString(),
+              Result.median(runs, collectPhases(directory, executor)));
+        } finally {
+          deleteRecursively(directory);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return results;
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(directory)) {
+      files = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      Files.delete(file);
+    }
+  }
+
+  private Result compile(Path dump, ExecutorService executor)
+      throws IOException, CompilationFailedException {
+    R8Command command = createCommand(dump, null);
+    System.gc();
+    List<MemoryPoolMXBean> measuredPools = getMeasuredPools();
+    for (MemoryPoolMXBean pool : measuredPools) {
+      pool.resetPeakUsage();
+    }
+    long start = System.nanoTime();
+    R8.run(command, executor);
+    double runtime = (System.nanoTime() - start) / 1000000.0;
+    long peakMemory = 0;
+    for (MemoryPoolMXBean pool : measuredPools) {
+      peakMemory += pool.getPeakUsage().getUsed();
+    }
+    return new Result(runtime, peakMemory, Collections.emptyMap());
+  }
+
+  // Returns the old generation pool, or all heap pools if the collector has no old generation.
+  private static List<MemoryPoolMXBean> getMeasuredPools() {
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        // The old generation is named "Tenured Gen" by the serial collector and "<collector> Old
+        // Gen" by the others.
+        if (pool.getName().endsWith("Old Gen") || pool.getName().equals("Tenured Gen")) {
+          return Collections.singletonList(pool);
+        }
+        heapPools.add(pool);
+      }
+    }
+    return heapPools;
+  }
+
+  // Compiles the dump with tracing enabled and returns the time of each phase. Tracing slows down
+  // the compilation, so this is done in a separate run that is not measured.
+  private Map<String, Double> collectPhases(Path dump, ExecutorService executor)
+      throws IOException, CompilationFailedException {
+    StringBuilder trace = new StringBuilder();
+    R8.run(
+        createCommand(
+            dump,
+            new StringConsumer() {
+              @Override
+              public void accept(String string, DiagnosticsHandler handler) {
+                trace.append(string);
+              }
+            }),
+        executor);
+    return getPhases(trace.toString());
+  }
+
+  // Creates the command for the dump from its build.properties, which uses the keys of
+  // DumpOptions, as also done by tools/compiledump.py and CompileDumpCompatR8.
+  private R8Command createCommand(Path dump, StringConsumer traceConsumer)
+      throws IOException, CompilationFailedException {
+    Properties properties = new Properties();
+    try (InputStream input = Files.newInputStream(dump.resolve("build.properties"))) {
+      properties.load(input);
+    }
+    if (!properties.getProperty(DumpOptions.TOOL_KEY, "R8").equals("R8")) {
+      throw new IllegalArgumentException("Only R8 dumps are supported: " + dump);
+    }
+    R8Command.Builder builder =
+        new CompatProguardCommandBuilder(
+            Boolean.parseBoolean(
+                properties.getProperty(DumpOptions.FORCE_PROGUARD_COMPATIBILITY_KEY)),
+            new DiagnosticsHandler() {
+              @Override
+              public void warning(Diagnostic warning) {
+                // Ignore warnings such that they do not interfere with the results.
+              }
+
+              @Override
+              public void info(Diagnostic info) {
+                // Ignore infos such that they do not interfere with the results.
+              }
+            });
+    builder
+        .addProgramResourceProvider(
+            ArchiveResourceProvider.fromArchive(dump.resolve("program.jar"), true))
+        .setMode(
+            properties
+                    .getProperty(DumpOptions.MODE_KEY, DumpOptions.RELEASE_MODE_VALUE)
+                    .equals(DumpOptions.DEBUG_MODE_VALUE)
+                ? CompilationMode.DEBUG
+                : CompilationMode.RELEASE)
+        .setDisableTreeShaking(
+            !Boolean.parseBoolean(properties.getProperty(DumpOptions.TREE_SHAKING_KEY, "true")))
+        .setDisableMinification(
+            !Boolean.parseBoolean(properties.getProperty(DumpOptions.MINIFICATION_KEY, "true")))
+        .setDisableDesugaring(
+            properties
+                .getProperty(DumpOptions.DESUGAR_STATE_KEY, DesugarState.ON.name())
+                .equals(DesugarState.OFF.name()))
+        .setOptimizeMultidexForLinearAlloc(
+            Boolean.parseBoolean(
+                properties.getProperty(DumpOptions.OPTIMIZE_MULTIDEX_FOR_LINEAR_ALLOC_KEY)))
+        .setProguardMapConsumer(StringConsumer.emptyConsumer());
+    addIfExists(dump.resolve("library.jar"), builder::addLibraryFiles);
+    addIfExists(dump.resolve("classpath.jar"), builder::addClasspathFiles);
+    addIfExists(dump.resolve("proguard.config"), builder::addProguardConfigurationFiles);
+    addIfExists(dump.resolve("main-dex-rules.txt"), builder::addMainDexRulesFiles);
+    addIfExists(dump.resolve("main-dex-list.txt"), builder::addMainDexListFiles);
+    Path desugaredLibrary = dump.resolve("desugared-library.json");
+    if (Files.exists(desugaredLibrary)) {
+      builder.addDesugaredLibraryConfiguration(
+          FileUtils.readTextFile(desugaredLibrary, StandardCharsets.UTF_8));
+    }
+    for (int i = 1; Files.exists(dump.resolve("feature-" + i + ".jar")); i++) {
+      Path feature = dump.resolve("feature-" + i + ".jar");
+      builder.addFeatureSplit(
+          featureBuilder ->
+              featureBuilder
+                  .addProgramResourceProvider(ArchiveResourceProvider.fromArchive(feature, true))
+                  .setProgramConsumer(DexIndexedConsumer.emptyConsumer())
+                  .build());
+    }
+    // The data resources are only processed if the program consumer has a data resource consumer.
+    DataResourceConsumer dataResourceConsumer =
+        Boolean.parseBoolean(properties.getProperty(DumpOptions.INCLUDE_DATA_RESOURCES_KEY))
+            ? new EmptyDataResourceConsumer()
+            : null;
+    if (classfile
+        || properties
+            .getProperty(DumpOptions.BACKEND_KEY, DumpOptions.DEX_BACKEND_VALUE)
+            .equals(DumpOptions.CF_BACKEND_VALUE)) {
+      builder.setProgramConsumer(
+          new ClassFileConsumer.ForwardingConsumer(null) {
+            @Override
+            public DataResourceConsumer getDataResourceConsumer() {
+              return dataResourceConsumer;
+            }
+          });
+    } else {
+      builder
+          .setProgramConsumer(
+              new DexIndexedConsumer.ForwardingConsumer(null) {
+                @Override
+                public DataResourceConsumer getDataResourceConsumer() {
+                  return dataResourceConsumer;
+                }
+              })
+          .setMinApiLevel(Integer.parseInt(properties.getProperty(DumpOptions.MIN_API_KEY, "1")));
+    }
+    if (traceConsumer != null) {
+      builder.setTraceConsumer(traceConsumer);
+    }
+    return builder.build();
+  }
+
+  private interface FileAdder {
+    void add(Path... files);
+  }
+
+  private static void addIfExists(Path file, FileAdder adder) {
+    if (Files.exists(file)) {
+      adder.add(file);
+    }
+  }
+
+  // Sums the durations of the Timing spans of the compilation, which run on the current thread,
+  // by the name of the phase.
+  private static Map<String, Double> getPhases(String trace) {
+    Map<String, Double> phases = new TreeMap<>();
+    long threadId = Thread.currentThread().getId();
+    JsonObject json = new JsonParser().parse(trace).getAsJsonObject();
+    for (JsonElement element : json.getAsJsonArray("traceEvents")) {
+      JsonObject event = element.getAsJsonObject();
+      if (event.get("ph").getAsString().equals("X")
+          && event.get("cat").getAsString().equals("timing")
+          && event.get("tid").getAsLong() == threadId) {
+        phases.merge(
+            event.get("name").getAsString(), event.get("dur").getAsDouble() / 1000.0, Double::sum);
+      }
+    }
+    return phases;
+  }
+
+  private String toJson(Map<String, Result> results) throws IOException {
+    StringWriter output = new StringWriter();
+    try (JsonWriter writer = new JsonWriter(output)) {
+      writer.setIndent("  ");
+      writer.beginObject();
+      writer.name("settings").beginObject();
+      writer.name("threads").value(threads);
+      writer.name("warmup").value(warmupIterations);
+      writer.name("iterations").value(iterations);
+      writer.name("max_heap_bytes").value(Runtime.getRuntime().maxMemory());
+      writer.endObject();
+      writer.name("results").beginObject();
+      for (Entry<String, Result> entry : results.entrySet()) {
+        Result result = entry.getValue();
+        writer.name(entry.getKey()).beginObject();
+        writer.name(RUNTIME_KEY).value(result.runtime);
+        writer.name(PEAK_MEMORY_KEY).value(result.peakMemory);
+        writer.name(PHASES_KEY).beginObject();
+        for (Entry<String, Double> phase : result.phases.entrySet()) {
+          writer.name(phase.getKey()).value(phase.getValue());
+        }
+        writer.endObject();
+        writer.endObject();
+      }
+      writer.endObject();
+      writer.endObject();
+    }
+    return output.toString();
+  }
+
+  // Returns false if any dump regressed compared to the baseline.
+  private boolean compareToBaseline(Map<String, Result> results) throws IOException {
+    JsonObject baselineResults =
+        new JsonParser()
+            .parse(new String(Files.readAllBytes(baseline), StandardCharsets.UTF_8))
+            .getAsJsonObject()
+            .getAsJsonObject("results");
+    boolean success = true;
+    for (Entry<String, Result> entry : results.entrySet()) {
+      JsonObject baselineResult = baselineResults.getAsJsonObject(entry.getKey());
+      if (baselineResult == null) {
+        System.err.println("No baseline for " + entry.getKey());
+        continue;
+      }
+      Result result = entry.getValue();
+      success &=
+          compare(
+              entry.getKey(), RUNTIME_KEY, result.runtime, baselineResult.get(RUNTIME_KEY));
+      success &=
+          compare(
+              entry.getKey(),
+              PEAK_MEMORY_KEY,
+              result.peakMemory,
+              baselineResult.get(PEAK_MEMORY_KEY));
+    }
+    return success;
+  }
+
+  private boolean compare(String dump, String key, double value, JsonElement baselineValue) {
+    if (baselineValue == null) {
+      return true;
+    }
+    double ratio = value / baselineValue.getAsDouble();
+    boolean regressed = ratio > 1 + threshold;
+    System.err.println(
+        (regressed ? "REGRESSION " : "OK ")
+            + dump
+            + " "
+            + key
+            + ": "
+            + value
+            + " (baseline "
+            + baselineValue.getAsDouble()
+            + ", "
+            + String.format("%+.1f%%", (ratio - 1) * 100)
+            + ")");
+    return !regressed;
+  }
+
+  private static class EmptyDataResourceConsumer implements DataResourceConsumer {
+
+    @Override
+    public void accept(DataDirectoryResource directory, DiagnosticsHandler diagnosticsHandler) {}
+
+    @Override
+    public void accept(DataEntryResource file, DiagnosticsHandler diagnosticsHandler) {}
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {}
+  }
+
+  private static class Result {
+
+    private final double runtime;
+    private final long peakMemory;
+    private final Map<String, Double> phases;
+
+    private Result(double runtime, long peakMemory, Map<String, Double> phases) {
+      this.runtime = runtime;
+      this.peakMemory = peakMemory;
+      this.phases = phases;
+    }
+
+    // The median of each measurement, such that a single noisy run does not affect the result.
+    private static Result median(List<Result> results, Map<String, Double> phases) {
+      List<Double> runtimes = new ArrayList<>();
+      List<Double> peakMemories = new ArrayList<>();
+      for (Result result : results) {
+        runtimes.add(result.runtime);
+        peakMemories.add((double) result.peakMemory);
+      }
+      return new Result(medianOf(runtimes), (long) medianOf(peakMemories), phases);
+    }
+
+    private static double medianOf(List<Double> values) {
+      Collections.sort(values);
+      int middle = values.size() / 2;
+      return values.size() % 2 == 1
+          ? values.get(middle)
+          : (values.get(middle - 1) + values.get(middle)) / 2;
+    }
+  }
+}
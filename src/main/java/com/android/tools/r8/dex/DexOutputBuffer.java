@@ -40,15 +40,25 @@ public class DexOutputBuffer {
 
   private void ensureSpaceFor(int bytes) {
     if (byteBuffer.remaining() < bytes) {
-      int newSize = byteBuffer.capacity() + Math.max(byteBuffer.capacity(), bytes * 2);
-      CompatByteBuffer newBuffer = allocateByteBuffer(newSize);
-      System.arraycopy(byteBuffer.array(), 0, newBuffer.array(), 0, position());
-      newBuffer.position(byteBuffer.position());
-      freeByteBuffer(byteBuffer);
-      byteBuffer = newBuffer;
+      grow(byteBuffer.capacity() + Math.max(byteBuffer.capacity(), bytes * 2));
     }
   }
 
+  /** Ensures that the buffer can hold {@param size} bytes without growing. */
+  public void ensureCapacity(int size) {
+    if (byteBuffer.capacity() < size) {
+      grow(size);
+    }
+  }
+
+  private void grow(int newSize) {
+    CompatByteBuffer newBuffer = allocateByteBuffer(newSize);
+    System.arraycopy(byteBuffer.array(), 0, newBuffer.array(), 0, position());
+    newBuffer.position(byteBuffer.position());
+    freeByteBuffer(byteBuffer);
+    byteBuffer = newBuffer;
+  }
+
   private CompatByteBuffer allocateByteBuffer(int size) {
     CompatByteBuffer buffer = new CompatByteBuffer(byteBufferProvider.acquireByteBuffer(size));
     if (!buffer.hasArray()) {
@@ -186,8 +186,14 @@ public class FileWriter {
     // Sort the codes first, as their order might impact size due to alignment constraints.
     List<ProgramDexCode> codes = sortDexCodesByClassName();
 
+    // Reserve space for the code items and the string data up front. Together with the fixed
+    // sections they make up the bulk of the file, so the buffer rarely has to grow and copy.
+    int codesEnd = layout.getCodesOffset() + sizeOfCodeItems(codes);
+    int estimatedSize = codesEnd + sizeOfStringData(mapping.getStrings());
+    dest.ensureCapacity(estimatedSize + estimatedSize / 4);
+
     // Output the debug_info_items first, as they have no dependencies.
-    dest.moveTo(layout.getCodesOffset() + sizeOfCodeItems(codes));
+    dest.moveTo(codesEnd);
     if (mixedSectionOffsets.getDebugInfos().isEmpty()) {
       layout.setDebugInfosOffset(0);
     } else {
@@ -409,6 +415,14 @@ public class FileWriter {
     return size;
   }
 
+  private static int sizeOfStringData(Collection<DexString> strings) {
+    int size = 0;
+    for (DexString string : strings) {
+      size += sizeAsUleb128(string.size) + string.content.length;
+    }
+    return size;
+  }
+
   private int sizeOfCodeItem(DexCode code) {
     int result = 16;
     int insnSize = 0;
@@ -0,0 +1,530 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.AssertionsConfiguration;
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.DataResourceProvider;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.dex.Marker.Tool;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.AssertionConfigurationWithDefault;
+import com.android.tools.r8.utils.CompilerIdentity;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * Persistent cache of the DEX output that D8 produces for individual class files.
+ *
+ * <p>The cache is only used when compiling to a {@link DexFilePerClassFileConsumer} that combines
+ * synthetic classes with their primary class, since each input class file then gives rise to
+ * exactly one DEX file. Entries are keyed by the content of the class file, the content of all
+ * its supertypes and nest mates, and the compiler version and options. Desugaring a class depends
+ * on these, for example a class inherits the desugared default methods of its interfaces. Classes
+ * that are found in the cache are not compiled, but remain available on the classpath. Their
+ * cached output is passed to the program consumer when the compilation succeeds.
+ *
+ * <p>The cache is not used when the program contains DEX inputs. The classes of DEX inputs, which
+ * are selected by the DEX class checksum filter, can be supertypes of the class files but are not
+ * part of the keys.
+ *
+ * <p>Entries are written to a temporary file that is atomically moved into place, such that
+ * compilations in concurrent processes that share a cache directory never observe a partially
+ * written entry. When the compilation finishes, the least recently used entries are evicted until
+ * the size of the cache is within the configured bound.
+ */
+public class PerClassDexCache {
+
+  private static final String ENTRY_EXTENSION = ".dexentry";
+  private static final String TEMPORARY_EXTENSION = ".tmp";
+  private static final int ENTRY_MAGIC = 0x52384443;
+
+  private final Path directory;
+  private final long maximumSizeInBytes;
+
+  public PerClassDexCache(Path directory, long maximumSizeInBytes) {
+    assert maximumSizeInBytes > 0;
+    this.directory = directory;
+    this.maximumSizeInBytes = maximumSizeInBytes;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public long getMaximumSizeInBytes() {
+    return maximumSizeInBytes;
+  }
+
+  /**
+   * Looks up the output of all class files in the program of {@param app} and returns an
+   * application with the program resources that are not in the cache.
+   *
+   * <p>The program consumer of {@param options} is replaced by a consumer that adds the output of
+   * the remaining class files to the cache, and passes the cached output to the program consumer
+   * when the compilation finishes.
+   */
+  public AndroidApp lookupAndRemoveCachedClasses(AndroidApp app, InternalOptions options)
+      throws IOException {
+    assert options.isGeneratingDexFilePerClassFile();
+    DexFilePerClassFileConsumer consumer = options.getDexFilePerClassFileConsumer();
+    assert consumer.combineSyntheticClassesWithPrimaryClass();
+    Files.createDirectories(directory);
+    Map<String, String> keysForUncachedClasses = new ConcurrentHashMap<>();
+    List<CachedOutput> cachedOutputs = new ArrayList<>();
+    AndroidApp.Builder builder = AndroidApp.builder(app);
+    builder.getProgramResourceProviders().clear();
+    try {
+      if (!lookupAndRemoveCachedClasses(
+          app, builder, keysForUncachedClasses, cachedOutputs, options)) {
+        return app;
+      }
+    } catch (ResourceException e) {
+      throw options.reporter.fatalError(new StringDiagnostic(e.getMessage(), e.getOrigin()));
+    }
+    options.programConsumer = new CachingConsumer(consumer, keysForUncachedClasses, cachedOutputs);
+    return builder.build();
+  }
+
+  // Returns false if the cache cannot be used for the program of the given application.
+  private boolean lookupAndRemoveCachedClasses(
+      AndroidApp app,
+      AndroidApp.Builder builder,
+      Map<String, String> keysForUncachedClasses,
+      List<CachedOutput> cachedOutputs,
+      InternalOptions options)
+      throws ResourceException {
+    String compilerIdentity = CompilerIdentity.get(options);
+    if (compilerIdentity == null) {
+      return false;
+    }
+    // Read all class files of the program first, since the key of a class depends on its
+    // supertypes and nest mates.
+    Map<String, ClassInfo> programClasses = new HashMap<>();
+    Set<String> duplicateDescriptors = new HashSet<>();
+    List<List<ProgramResource>> resourcesPerProvider = new ArrayList<>();
+    for (ProgramResourceProvider provider : app.getProgramResourceProviders()) {
+      List<ProgramResource> resources = new ArrayList<>();
+      for (ProgramResource resource : provider.getProgramResources()) {
+        if (resource.getKind() != Kind.CF) {
+          return false;
+        }
+        ClassInfo classInfo = ClassInfo.read(resource.getBytes());
+        if (programClasses.putIfAbsent(classInfo.descriptor, classInfo) != null) {
+          duplicateDescriptors.add(classInfo.descriptor);
+        }
+        resources.add(
+            ProgramResource.fromBytes(
+                resource.getOrigin(),
+                Kind.CF,
+                classInfo.bytes,
+                Collections.singleton(classInfo.descriptor)));
+      }
+      resourcesPerProvider.add(resources);
+    }
+
+    KeyComputation keyComputation =
+        new KeyComputation(computeOptionsKey(compilerIdentity, options), programClasses, app);
+    Map<String, ProgramResource> cachedClasses = new HashMap<>();
+    for (int i = 0; i < resourcesPerProvider.size(); i++) {
+      List<ProgramResource> remainingResources = new ArrayList<>();
+      for (ProgramResource resource : resourcesPerProvider.get(i)) {
+        String descriptor = resource.getClassDescriptors().iterator().next();
+        // Duplicate classes are left to the compiler such that they are reported as usual.
+        if (duplicateDescriptors.contains(descriptor)) {
+          remainingResources.add(resource);
+          continue;
+        }
+        String key = keyComputation.computeKey(descriptor);
+        CachedOutput cachedOutput = readEntry(key, descriptor, options);
+        if (cachedOutput != null) {
+          cachedOutputs.add(cachedOutput);
+          cachedClasses.put(descriptor, resource);
+        } else {
+          keysForUncachedClasses.put(descriptor, key);
+          remainingResources.add(resource);
+        }
+      }
+      builder.addProgramResourceProvider(
+          new RemainingProgramResourceProvider(
+              remainingResources,
+              app.getProgramResourceProviders().get(i).getDataResourceProvider()));
+    }
+    // The cached classes remain available on the classpath, such that the compilation of the
+    // remaining classes sees the same class hierarchy as without the cache.
+    if (!cachedClasses.isEmpty()) {
+      builder.addClasspathResourceProvider(new CachedClassesProvider(cachedClasses));
+    }
+    return true;
+  }
+
+  private static String computeOptionsKey(String compilerIdentity, InternalOptions options) {
+    // The marker only has the version label, which is the same for all engineering builds.
+    StringBuilder builder = new StringBuilder(compilerIdentity).append(',');
+    Marker marker = options.getMarker(Tool.D8);
+    if (marker != null) {
+      builder.append(marker);
+    }
+    builder
+        .append(",desugar=")
+        .append(options.desugarState)
+        .append(",intermediate=")
+        .append(options.intermediate)
+        .append(",prefix=")
+        .append(options.synthesizedClassPrefix)
+        .append(",checksums=")
+        .append(options.encodeChecksums);
+    AssertionConfigurationWithDefault assertionsConfiguration = options.assertionsConfiguration;
+    if (assertionsConfiguration != null) {
+      builder.append(",assertions=").append(assertionsConfiguration.defautlTransformation);
+      for (AssertionsConfiguration configuration :
+          assertionsConfiguration.assertionsConfigurations) {
+        builder
+            .append(':')
+            .append(configuration.getTransformation())
+            .append('/')
+            .append(configuration.getScope())
+            .append('/')
+            .append(configuration.getValue());
+      }
+    }
+    return builder.toString();
+  }
+
+  private Path getEntryPath(String key) {
+    return directory.resolve(key + ENTRY_EXTENSION);
+  }
+
+  // Returns the cached output for the given key, or null if there is none.
+  private CachedOutput readEntry(String key, String descriptor, InternalOptions options) {
+    Path entry = getEntryPath(key);
+    byte[] content;
+    try {
+      content = Files.readAllBytes(entry);
+    } catch (IOException e) {
+      // The entry does not exist or was evicted concurrently.
+      return null;
+    }
+    Set<String> descriptors = new LinkedHashSet<>();
+    byte[] dex;
+    try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(content))) {
+      if (stream.readInt() != ENTRY_MAGIC) {
+        return null;
+      }
+      int numberOfDescriptors = stream.readInt();
+      for (int i = 0; i < numberOfDescriptors; i++) {
+        descriptors.add(stream.readUTF());
+      }
+      dex = new byte[stream.readInt()];
+      stream.readFully(dex);
+    } catch (IOException e) {
+      options.reporter.warning(
+          new StringDiagnostic("Ignoring malformed cache entry " + entry + " for " + descriptor));
+      return null;
+    }
+    if (!descriptors.contains(descriptor)) {
+      return null;
+    }
+    FileUtils.touch(entry);
+    return new CachedOutput(descriptor, dex, descriptors);
+  }
+
+  private void writeEntry(
+      String key, ByteDataView data, Set<String> descriptors, DiagnosticsHandler handler) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.getLength() + 256);
+      try (DataOutputStream stream = new DataOutputStream(bytes)) {
+        stream.writeInt(ENTRY_MAGIC);
+        stream.writeInt(descriptors.size());
+        for (String descriptor : descriptors) {
+          stream.writeUTF(descriptor);
+        }
+        stream.writeInt(data.getLength());
+        stream.write(data.getBuffer(), data.getOffset(), data.getLength());
+      }
+      Path temporary = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+      try {
+        Files.write(temporary, bytes.toByteArray());
+        moveIntoPlace(temporary, getEntryPath(key));
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      handler.warning(new ExceptionDiagnostic(e));
+    }
+  }
+
+  private static void moveIntoPlace(Path temporary, Path entry) throws IOException {
+    try {
+      Files.move(
+          temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private void evictLeastRecentlyUsedEntries(DiagnosticsHandler handler) {
+    try {
+      FileUtils.deleteLeastRecentlyModifiedFiles(directory, ENTRY_EXTENSION, maximumSizeInBytes);
+    } catch (IOException e) {
+      handler.warning(new ExceptionDiagnostic(e));
+    }
+  }
+
+  private static class RemainingProgramResourceProvider implements ProgramResourceProvider {
+
+    private final List<ProgramResource> resources;
+    private final DataResourceProvider dataResourceProvider;
+
+    RemainingProgramResourceProvider(
+        List<ProgramResource> resources, DataResourceProvider dataResourceProvider) {
+      this.resources = resources;
+      this.dataResourceProvider = dataResourceProvider;
+    }
+
+    @Override
+    public Collection<ProgramResource> getProgramResources() {
+      return resources;
+    }
+
+    @Override
+    public DataResourceProvider getDataResourceProvider() {
+      return dataResourceProvider;
+    }
+  }
+
+  private static class CachedClassesProvider implements ClassFileResourceProvider {
+
+    private final Map<String, ProgramResource> classes;
+
+    CachedClassesProvider(Map<String, ProgramResource> classes) {
+      this.classes = classes;
+    }
+
+    @Override
+    public Set<String> getClassDescriptors() {
+      return classes.keySet();
+    }
+
+    @Override
+    public ProgramResource getProgramResource(String descriptor) {
+      return classes.get(descriptor);
+    }
+  }
+
+  private static class CachedOutput {
+
+    private final String primaryClassDescriptor;
+    private final byte[] dex;
+    private final Set<String> descriptors;
+
+    CachedOutput(String primaryClassDescriptor, byte[] dex, Set<String> descriptors) {
+      this.primaryClassDescriptor = primaryClassDescriptor;
+      this.dex = dex;
+      this.descriptors = descriptors;
+    }
+  }
+
+  /** The supertypes and nest mates of a class file, and the hash of its content. */
+  private static class ClassInfo {
+
+    private final String descriptor;
+    private final byte[] bytes;
+    private final HashCode contentHash;
+    private final List<String> dependencies;
+
+    private ClassInfo(
+        String descriptor, byte[] bytes, HashCode contentHash, List<String> dependencies) {
+      this.descriptor = descriptor;
+      this.bytes = bytes;
+      this.contentHash = contentHash;
+      this.dependencies = dependencies;
+    }
+
+    static ClassInfo read(byte[] bytes) {
+      ClassReader reader = new ClassReader(bytes);
+      List<String> dependencies = new ArrayList<>();
+      if (reader.getSuperName() != null) {
+        dependencies.add(reader.getSuperName());
+      }
+      Collections.addAll(dependencies, reader.getInterfaces());
+      reader.accept(
+          new ClassVisitor(InternalOptions.ASM_VERSION) {
+            @Override
+            public void visitNestHost(String nestHost) {
+              dependencies.add(nestHost);
+            }
+
+            @Override
+            public void visitNestMember(String nestMember) {
+              dependencies.add(nestMember);
+            }
+          },
+          ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+      dependencies.replaceAll(DescriptorUtils::getDescriptorFromClassBinaryName);
+      return new ClassInfo(
+          DescriptorUtils.getDescriptorFromClassBinaryName(reader.getClassName()),
+          bytes,
+          Hashing.sha256().hashBytes(bytes),
+          dependencies);
+    }
+  }
+
+  /**
+   * Computes the keys of the program classes. The key of a class covers the content of the class,
+   * and of all classes that are transitively reachable through the supertypes and nest mates. The
+   * classes are looked up in the program, classpath and library, in that order.
+   */
+  private static class KeyComputation {
+
+    // Marks a class that is not found in the content hash of the key.
+    private static final HashCode MISSING_CLASS = HashCode.fromInt(0);
+
+    private final String optionsKey;
+    private final Map<String, ClassInfo> programClasses;
+    private final AndroidApp app;
+    private final Map<String, ClassInfo> nonProgramClasses = new HashMap<>();
+
+    KeyComputation(String optionsKey, Map<String, ClassInfo> programClasses, AndroidApp app) {
+      this.optionsKey = optionsKey;
+      this.programClasses = programClasses;
+      this.app = app;
+    }
+
+    String computeKey(String descriptor) throws ResourceException {
+      // Collect the classes that the class depends on in a deterministic order.
+      Map<String, HashCode> contentHashes = new TreeMap<>();
+      Deque<String> worklist = new ArrayDeque<>();
+      worklist.add(descriptor);
+      while (!worklist.isEmpty()) {
+        String current = worklist.removeFirst();
+        if (contentHashes.containsKey(current)) {
+          continue;
+        }
+        ClassInfo classInfo = lookupClass(current);
+        if (classInfo == null) {
+          contentHashes.put(current, MISSING_CLASS);
+          continue;
+        }
+        contentHashes.put(current, classInfo.contentHash);
+        worklist.addAll(classInfo.dependencies);
+      }
+      Hasher hasher = Hashing.sha256().newHasher();
+      hasher.putString(optionsKey, StandardCharsets.UTF_8);
+      hasher.putString(descriptor, StandardCharsets.UTF_8);
+      contentHashes.forEach(
+          (dependency, contentHash) -> {
+            hasher.putString(dependency, StandardCharsets.UTF_8);
+            hasher.putBytes(contentHash.asBytes());
+          });
+      return hasher.hash().toString();
+    }
+
+    private ClassInfo lookupClass(String descriptor) throws ResourceException {
+      ClassInfo classInfo = programClasses.get(descriptor);
+      if (classInfo != null) {
+        return classInfo;
+      }
+      if (nonProgramClasses.containsKey(descriptor)) {
+        return nonProgramClasses.get(descriptor);
+      }
+      classInfo = lookupClass(descriptor, app.getClasspathResourceProviders());
+      if (classInfo == null) {
+        classInfo = lookupClass(descriptor, app.getLibraryResourceProviders());
+      }
+      nonProgramClasses.put(descriptor, classInfo);
+      return classInfo;
+    }
+
+    private static ClassInfo lookupClass(
+        String descriptor, List<ClassFileResourceProvider> providers) throws ResourceException {
+      for (ClassFileResourceProvider provider : providers) {
+        ProgramResource resource = provider.getProgramResource(descriptor);
+        if (resource != null) {
+          return ClassInfo.read(resource.getBytes());
+        }
+      }
+      return null;
+    }
+  }
+
+  private class CachingConsumer extends DexFilePerClassFileConsumer.ForwardingConsumer {
+
+    private final Map<String, String> keysForUncachedClasses;
+    private final List<CachedOutput> cachedOutputs;
+
+    CachingConsumer(
+        DexFilePerClassFileConsumer consumer,
+        Map<String, String> keysForUncachedClasses,
+        List<CachedOutput> cachedOutputs) {
+      super(consumer);
+      this.keysForUncachedClasses = keysForUncachedClasses;
+      this.cachedOutputs = cachedOutputs;
+    }
+
+    @Override
+    public void accept(
+        String primaryClassDescriptor,
+        ByteDataView data,
+        Set<String> descriptors,
+        DiagnosticsHandler handler) {
+      String key = keysForUncachedClasses.remove(primaryClassDescriptor);
+      if (key != null) {
+        writeEntry(key, data, descriptors, handler);
+      }
+      super.accept(primaryClassDescriptor, data, descriptors, handler);
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      // The compilation has succeeded, so the cached output can be passed on.
+      for (CachedOutput cachedOutput : cachedOutputs) {
+        super.accept(
+            cachedOutput.primaryClassDescriptor,
+            ByteDataView.of(cachedOutput.dex),
+            cachedOutput.descriptors,
+            handler);
+      }
+      super.finished(handler);
+      evictLeastRecentlyUsedEntries(handler);
+    }
+  }
+}
@@ -412,6 +412,9 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
   /** @return true if the graph lens changed, otherwise false. */
   public boolean setGraphLens(GraphLens graphLens) {
     if (graphLens != this.graphLens) {
+      if (this.graphLens != null && this.graphLens.isNonIdentityLens()) {
+        this.graphLens.asNonIdentityLens().markSuperseded();
+      }
       this.graphLens = graphLens;
       return true;
     }
@@ -680,7 +683,8 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
                 appView.dexItemFactory(), appliedLens)
             : GraphLens.getIdentityLens();
 
-    firstUnappliedLens.withAlternativeParentLens(
+    lens.withAlternativeParentLens(
+        firstUnappliedLens,
         newMemberRebindingLens,
         () -> {
           appView.setAppInfo(appView.appInfo().rewrittenWithLens(application, lens));
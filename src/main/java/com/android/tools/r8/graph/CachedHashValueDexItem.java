@@ -20,21 +20,20 @@ public abstract class CachedHashValueDexItem extends DexItem {
   public final int hashCode() {
     int cache = hash;
     if (cache == NOT_COMPUTED_HASH_VALUE) {
-      cache = computeHashCode();
-      if (cache == NOT_COMPUTED_HASH_VALUE) {
-        cache = SENTINEL_HASH_VALUE;
-      }
+      cache = getHashValue(computeHashCode());
       hash = cache;
     }
     assert verifyHashCodeConsistent(cache);
     return cache;
   }
 
+  /** Returns the value of {@link #hashCode()} for an item with the given computed hash code. */
+  static int getHashValue(int computedHashCode) {
+    return computedHashCode == NOT_COMPUTED_HASH_VALUE ? SENTINEL_HASH_VALUE : computedHashCode;
+  }
+
   private boolean verifyHashCodeConsistent(int computedValue) {
-    int newComputedValue = computeHashCode();
-    if (newComputedValue == NOT_COMPUTED_HASH_VALUE) {
-      newComputedValue = SENTINEL_HASH_VALUE;
-    }
+    int newComputedValue = getHashValue(computeHashCode());
     assert computedValue == newComputedValue
         : "Hash code for " + this + " has changed from " + hash + " to " + newComputedValue;
     return true;
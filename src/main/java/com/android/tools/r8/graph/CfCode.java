@@ -150,6 +150,12 @@ public class CfCode extends Code implements StructuralItem<CfCode> {
   private final List<CfTryCatch> tryCatchRanges;
   private final List<LocalVariableInfo> localVariables;
   private StackMapStatus stackMapStatus = StackMapStatus.NOT_VERIFIED;
+  // The inputs to the verification of the stack map frames. The verification only depends on the
+  // method and the graph lens, so it is not repeated when IR is built again for the same method
+  // under the same graph lens, which happens each time the method is inlined.
+  private DexMethod stackMapStatusMethod;
+  private GraphLens stackMapStatusGraphLens;
+  private boolean stackMapStatusAppliedCodeRewritings;
 
   public CfCode(
       DexType originalHolder,
@@ -211,6 +217,8 @@ public class CfCode extends Code implements StructuralItem<CfCode> {
 
   public void setInstructions(List<CfInstruction> instructions) {
     this.instructions = instructions;
+    // The stack map frames of the new instructions have not been verified.
+    this.stackMapStatusMethod = null;
   }
 
   public List<LocalVariableInfo> getLocalVariables() {
@@ -437,17 +445,28 @@ public class CfCode extends Code implements StructuralItem<CfCode> {
         context, method, appView, valueNumberGenerator, callerPosition, origin, methodProcessor);
   }
 
-  private void verifyFramesOrRemove(
+  private synchronized void verifyFramesOrRemove(
       DexEncodedMethod method,
       AppView<?> appView,
       Origin origin,
       boolean shouldApplyCodeRewritings) {
+    if (stackMapStatus != StackMapStatus.NOT_VERIFIED
+        && stackMapStatusMethod == method.getReference()
+        && stackMapStatusGraphLens == appView.graphLens()
+        && stackMapStatusAppliedCodeRewritings == shouldApplyCodeRewritings) {
+      appView.options().tracer.increment("cf-frame-verification.reused");
+      return;
+    }
+    appView.options().tracer.increment("cf-frame-verification.computed");
     stackMapStatus = verifyFrames(method, appView, origin, shouldApplyCodeRewritings);
     if (!stackMapStatus.isValid()) {
       ArrayList<CfInstruction> copy = new ArrayList<>(instructions);
       copy.removeIf(CfInstruction::isFrame);
       setInstructions(copy);
     }
+    stackMapStatusMethod = method.getReference();
+    stackMapStatusGraphLens = appView.graphLens();
+    stackMapStatusAppliedCodeRewritings = shouldApplyCodeRewritings;
   }
 
   // First build entry. Will either strip locals or build with locals.
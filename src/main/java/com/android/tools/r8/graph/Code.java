@@ -53,6 +53,10 @@ public abstract class Code extends CachedHashValueDexItem {
     return false;
   }
 
+  public boolean isLazyCfCode() {
+    return false;
+  }
+
   public boolean isDexCode() {
     return false;
   }
@@ -22,10 +22,14 @@ public class DexField extends DexMember<DexEncodedField, DexField> {
 
   public final DexType type;
 
-  DexField(DexType holder, DexType type, DexString name, boolean skipNameValidationForTesting) {
+  // Only created by the DexItemFactory, which validates the name when the field is interned.
+  DexField(DexType holder, DexType type, DexString name) {
     super(holder, name);
     this.type = type;
-    if (!skipNameValidationForTesting && !name.isValidFieldName()) {
+  }
+
+  void validateName() {
+    if (!name.isValidFieldName()) {
       throw new CompilationError(
           "Field name '" + name.toString() + "' cannot be represented in dex format.");
     }
@@ -113,9 +117,11 @@ public class DexField extends DexMember<DexEncodedField, DexField> {
 
   @Override
   public int computeHashCode() {
-    return holder.hashCode()
-        + type.hashCode() * 7
-        + name.hashCode() * 31;
+    return computeHashCode(holder, type, name);
+  }
+
+  static int computeHashCode(DexType holder, DexType type, DexString name) {
+    return holder.hashCode() + type.hashCode() * 7 + name.hashCode() * 31;
   }
 
   @Override
@@ -56,6 +56,7 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -79,6 +80,17 @@ public class DexItemFactory {
   private final Map<DexMethodHandle, DexMethodHandle> methodHandles =
       new ConcurrentHashMap<>();
 
+  // Reusable keys for looking up existing items by their components, such that looking up an item
+  // that already exists does not allocate.
+  private static final ThreadLocal<LookupKeys> lookupKeys =
+      ThreadLocal.withInitial(LookupKeys::new);
+
+  // Id allocation for interned references. A reference that loses the race to be interned gives
+  // rise to an unused id, which is harmless.
+  private final AtomicInteger nextTypeId = new AtomicInteger();
+  private final AtomicInteger nextFieldId = new AtomicInteger();
+  private final AtomicInteger nextMethodId = new AtomicInteger();
+
   // DexDebugEvent Canonicalization.
   private final Int2ReferenceMap<AdvanceLine> advanceLines = new Int2ReferenceOpenHashMap<>();
   private final Int2ReferenceMap<AdvancePC> advancePCs = new Int2ReferenceOpenHashMap<>();
@@ -1926,7 +1938,13 @@ public class DexItemFactory {
   private static <T extends DexItem> T canonicalize(Map<T, T> map, T item) {
     assert item != null;
     assert !DexItemFactory.isInternalSentinel(item);
-    T previous = map.putIfAbsent(item, item);
+    // Most items are created many times over, so look up the existing item first. Contrary to
+    // putIfAbsent, the get on a ConcurrentHashMap does not lock the bin of the item.
+    T previous = map.get(item);
+    if (previous != null) {
+      return previous;
+    }
+    previous = map.putIfAbsent(item, item);
     return previous == null ? item : previous;
   }
 
@@ -1937,6 +1955,13 @@ public class DexItemFactory {
 
   public DexString createString(String source) {
     assert !sorted;
+    // Look up the existing string without encoding the source.
+    StringLookupKey key = lookupKeys.get().string.set(source);
+    DexString existing = strings.get(key);
+    key.clear();
+    if (existing != null) {
+      return existing;
+    }
     return canonicalize(strings, new DexString(source));
   }
 
@@ -2173,23 +2198,28 @@ public class DexItemFactory {
     return markers;
   }
 
-  // Non-synchronized internal create.
+  // Thread-safe internal create. The lookup of an existing type does not take any locks.
   private DexType internalCreateType(DexString descriptor) {
     assert !sorted;
     assert descriptor != null;
     DexType result = types.get(descriptor);
     if (result == null) {
-      result = new DexType(descriptor);
-      assert result.isArrayType()
-          || result.isClassType()
-          || result.isPrimitiveType()
-          || result.isVoidType();
-      assert !isInternalSentinel(result);
-      types.put(descriptor, result);
+      result = types.computeIfAbsent(descriptor, this::newType);
     }
     return result;
   }
 
+  private DexType newType(DexString descriptor) {
+    DexType result = new DexType(descriptor);
+    result.setId(nextTypeId.getAndIncrement());
+    assert result.isArrayType()
+        || result.isClassType()
+        || result.isPrimitiveType()
+        || result.isVoidType();
+    assert !isInternalSentinel(result);
+    return result;
+  }
+
   private DexType createStaticallyKnownType(String descriptor) {
     return createStaticallyKnownType(createString(descriptor));
   }
@@ -2237,8 +2267,8 @@ public class DexItemFactory {
     possibleCompilerSynthesizedTypes.forEach(fn);
   }
 
-  // Safe synchronized external create. Should never be used to create a statically known type!
-  public synchronized DexType createType(DexString descriptor) {
+  // Safe external create. Should never be used to create a statically known type!
+  public DexType createType(DexString descriptor) {
     return internalCreateType(descriptor);
   }
 
@@ -2257,8 +2287,24 @@ public class DexItemFactory {
 
   public DexField createField(DexType clazz, DexType type, DexString name) {
     assert !sorted;
-    DexField field = new DexField(clazz, type, name, skipNameValidationForTesting);
-    return canonicalize(fields, field);
+    FieldLookupKey key = lookupKeys.get().field.set(clazz, type, name);
+    DexField existing = fields.get(key);
+    key.clear();
+    if (existing != null) {
+      return existing;
+    }
+    DexField field = new DexField(clazz, type, name);
+    // The field is new, so intern it. Validating the name requires decoding it, so it is only done
+    // here. The id is only taken by the field that is interned, which keeps the ids dense.
+    return fields.computeIfAbsent(field, this::internField);
+  }
+
+  private DexField internField(DexField field) {
+    if (!skipNameValidationForTesting) {
+      field.validateName();
+    }
+    field.setId(nextFieldId.getAndIncrement());
+    return field;
   }
 
   public DexField createField(DexType clazz, DexType type, String name) {
@@ -2360,8 +2406,24 @@ public class DexItemFactory {
 
   public DexMethod createMethod(DexType holder, DexProto proto, DexString name) {
     assert !sorted;
-    DexMethod method = new DexMethod(holder, proto, name, skipNameValidationForTesting);
-    return canonicalize(methods, method);
+    MethodLookupKey key = lookupKeys.get().method.set(holder, proto, name);
+    DexMethod existing = methods.get(key);
+    key.clear();
+    if (existing != null) {
+      return existing;
+    }
+    DexMethod method = new DexMethod(holder, proto, name);
+    // The method is new, so intern it. Validating the name requires decoding it, so it is only
+    // done here. The id is only taken by the method that is interned, which keeps the ids dense.
+    return methods.computeIfAbsent(method, this::internMethod);
+  }
+
+  private DexMethod internMethod(DexMethod method) {
+    if (!skipNameValidationForTesting) {
+      method.validateName();
+    }
+    method.setId(nextMethodId.getAndIncrement());
+    return method;
   }
 
   public DexMethod createMethod(DexType holder, DexProto proto, String name) {
@@ -2557,4 +2619,119 @@ public class DexItemFactory {
   synchronized public void forAllTypes(Consumer<DexType> f) {
     new ArrayList<>(types.values()).forEach(f);
   }
+
+  /** The lookup keys of a thread. */
+  private static class LookupKeys {
+
+    final StringLookupKey string = new StringLookupKey();
+    final FieldLookupKey field = new FieldLookupKey();
+    final MethodLookupKey method = new MethodLookupKey();
+  }
+
+  /**
+   * Lookup key for the existing DexString for a string. The key is only equal to the DexString it
+   * describes, which suffices for {@link Map#get}, and must not be used as a key in the map.
+   */
+  private static class StringLookupKey {
+
+    private String string;
+    private int hash;
+
+    StringLookupKey set(String string) {
+      this.string = string;
+      this.hash = CachedHashValueDexItem.getHashValue(DexString.computeHashCode(string));
+      return this;
+    }
+
+    void clear() {
+      string = null;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof DexString && ((DexString) other).isEncodingOf(string);
+    }
+  }
+
+  /** Lookup key for the existing DexField for its components, see {@link StringLookupKey}. */
+  private static class FieldLookupKey {
+
+    private DexType holder;
+    private DexType type;
+    private DexString name;
+    private int hash;
+
+    FieldLookupKey set(DexType holder, DexType type, DexString name) {
+      this.holder = holder;
+      this.type = type;
+      this.name = name;
+      this.hash = CachedHashValueDexItem.getHashValue(DexField.computeHashCode(holder, type, name));
+      return this;
+    }
+
+    void clear() {
+      holder = null;
+      type = null;
+      name = null;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other instanceof DexField) {
+        DexField field = (DexField) other;
+        return holder.equals(field.holder) && type.equals(field.type) && name.equals(field.name);
+      }
+      return false;
+    }
+  }
+
+  /** Lookup key for the existing DexMethod for its components, see {@link StringLookupKey}. */
+  private static class MethodLookupKey {
+
+    private DexType holder;
+    private DexProto proto;
+    private DexString name;
+    private int hash;
+
+    MethodLookupKey set(DexType holder, DexProto proto, DexString name) {
+      this.holder = holder;
+      this.proto = proto;
+      this.name = name;
+      this.hash =
+          CachedHashValueDexItem.getHashValue(DexMethod.computeHashCode(holder, proto, name));
+      return this;
+    }
+
+    void clear() {
+      holder = null;
+      proto = null;
+      name = null;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other instanceof DexMethod) {
+        DexMethod method = (DexMethod) other;
+        return holder.equals(method.holder)
+            && name.equals(method.name)
+            && proto.equals(method.proto);
+      }
+      return false;
+    }
+  }
 }
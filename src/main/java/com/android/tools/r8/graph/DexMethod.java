@@ -21,10 +21,14 @@ public class DexMethod extends DexMember<DexEncodedMethod, DexMethod> {
 
   public final DexProto proto;
 
-  DexMethod(DexType holder, DexProto proto, DexString name, boolean skipNameValidationForTesting) {
+  // Only created by the DexItemFactory, which validates the name when the method is interned.
+  DexMethod(DexType holder, DexProto proto, DexString name) {
     super(holder, name);
     this.proto = proto;
-    if (!skipNameValidationForTesting && !name.isValidMethodName()) {
+  }
+
+  void validateName() {
+    if (!name.isValidMethodName()) {
       throw new CompilationError(
           "Method name '" + name + "' in class '" + holder.toSourceString() +
               "' cannot be represented in dex format.");
@@ -192,9 +196,11 @@ public class DexMethod extends DexMember<DexEncodedMethod, DexMethod> {
 
   @Override
   public int computeHashCode() {
-    return holder.hashCode()
-        + proto.hashCode() * 7
-        + name.hashCode() * 31;
+    return computeHashCode(holder, proto, name);
+  }
+
+  static int computeHashCode(DexType holder, DexProto proto, DexString name) {
+    return holder.hashCode() + proto.hashCode() * 7 + name.hashCode() * 31;
   }
 
   @Override
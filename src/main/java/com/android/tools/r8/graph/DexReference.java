@@ -13,6 +13,23 @@ import java.util.function.Function;
 /** A common interface for {@link DexType}, {@link DexField}, and {@link DexMethod}. */
 public abstract class DexReference extends IndexedDexItem {
 
+  private static final int NO_ID = -1;
+
+  // Dense id assigned by the DexItemFactory when the reference is interned. The ids are only unique
+  // among the references of the same kind, see DexReferenceSet and ConcurrentDexReferenceMap.
+  private int id = NO_ID;
+
+  public int getId() {
+    assert id != NO_ID : "Unexpected use of the id of a reference that is not interned: " + this;
+    return id;
+  }
+
+  void setId(int id) {
+    assert this.id == NO_ID;
+    assert id != NO_ID;
+    this.id = id;
+  }
+
   public abstract <T> T apply(
       Function<DexType, T> classConsumer,
       Function<DexField, T> fieldConsumer,
@@ -107,6 +107,73 @@ public class DexString extends IndexedDexItem implements NamingLensComparable<De
     return size * 7 + Arrays.hashCode(content);
   }
 
+  /**
+   * Computes the hash code of the DexString for the given string, as {@link #computeHashCode()},
+   * without encoding the string.
+   */
+  static int computeHashCode(String string) {
+    // Arrays.hashCode over the MUTF-8 bytes of the string.
+    int hash = 1;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      if (ch != 0 && ch <= 127) { // U+0000 uses two bytes.
+        hash = 31 * hash + (byte) ch;
+      } else if (ch <= 2047) {
+        hash = 31 * hash + (byte) (0xc0 | (0x1f & (ch >> 6)));
+        hash = 31 * hash + (byte) (0x80 | (0x3f & ch));
+      } else {
+        hash = 31 * hash + (byte) (0xe0 | (0x0f & (ch >> 12)));
+        hash = 31 * hash + (byte) (0x80 | (0x3f & (ch >> 6)));
+        hash = 31 * hash + (byte) (0x80 | (0x3f & ch));
+      }
+    }
+    // The terminating '0'.
+    hash = 31 * hash;
+    return string.length() * 7 + hash;
+  }
+
+  /** Returns true if this is the DexString for the given string, without encoding the string. */
+  boolean isEncodingOf(String string) {
+    if (size != string.length()) {
+      return false;
+    }
+    // The last byte of the content is the terminating '0'.
+    int end = content.length - 1;
+    if (end == size) {
+      // Each character is encoded as a single byte, which is the character itself.
+      for (int i = 0; i < size; i++) {
+        if (content[i] != string.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    int offset = 0;
+    for (int i = 0; i < string.length(); i++) {
+      char ch = string.charAt(i);
+      if (offset + countBytes(ch) > end) {
+        return false;
+      }
+      if (ch != 0 && ch <= 127) { // U+0000 uses two bytes.
+        if (content[offset++] != (byte) ch) {
+          return false;
+        }
+      } else if (ch <= 2047) {
+        if (content[offset++] != (byte) (0xc0 | (0x1f & (ch >> 6)))
+            || content[offset++] != (byte) (0x80 | (0x3f & ch))) {
+          return false;
+        }
+      } else {
+        if (content[offset++] != (byte) (0xe0 | (0x0f & (ch >> 12)))
+            || content[offset++] != (byte) (0x80 | (0x3f & (ch >> 6)))
+            || content[offset++] != (byte) (0x80 | (0x3f & ch))) {
+          return false;
+        }
+      }
+    }
+    return offset == end && content[end] == 0;
+  }
+
   @Override
   public boolean computeEquals(Object other) {
     if (other instanceof DexString) {
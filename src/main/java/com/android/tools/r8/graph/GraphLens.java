@@ -617,6 +617,16 @@ public abstract class GraphLens {
 
     private final Map<DexType, DexType> arrayTypeCache = new ConcurrentHashMap<>();
 
+    // Caches the result of looking up class types and fields through the entire lens chain, such
+    // that repeated lookups do not need to visit each of the previous lenses. Only used when
+    // {@link #canCacheLookups()} holds.
+    private final Map<DexType, DexType> classTypeCache = new ConcurrentHashMap<>();
+    private final Map<DexField, FieldLookupResult> fieldCache = new ConcurrentHashMap<>();
+
+    // Set when this lens is no longer the graph lens of the application. Lookups are then rarely
+    // issued against this lens, so the caches are dropped and no longer populated.
+    private volatile boolean superseded = false;
+
     public NonIdentityGraphLens(AppView<?> appView) {
       this(appView.dexItemFactory(), appView.graphLens());
     }
@@ -647,13 +657,71 @@ public abstract class GraphLens {
       return null;
     }
 
-    public final void withAlternativeParentLens(GraphLens lens, Action action) {
+    private void withAlternativeParentLens(GraphLens lens, Action action) {
       GraphLens oldParent = getPrevious();
       previousLens = lens;
       action.execute();
       previousLens = oldParent;
     }
 
+    /**
+     * Returns true if the mappings of this lens cannot change after the lens has been created,
+     * which makes it safe to cache the result of lookups through the lens chain.
+     */
+    protected boolean canCacheLookups() {
+      return false;
+    }
+
+    private boolean isCachingLookups() {
+      return canCacheLookups() && !superseded;
+    }
+
+    /**
+     * Drops the cached lookups of this lens and stops caching further lookups. Called when this
+     * lens is replaced as the graph lens of the application, since the cached lookups would
+     * otherwise be retained for the rest of the compilation.
+     */
+    public final void markSuperseded() {
+      superseded = true;
+      classTypeCache.clear();
+      fieldCache.clear();
+    }
+
+    // Visible for testing.
+    final boolean hasCachedLookups() {
+      return !classTypeCache.isEmpty() || !fieldCache.isEmpty();
+    }
+
+    /**
+     * Runs the given action while the parent of {@param lens}, which is this lens or one of its
+     * previous lenses, is temporarily replaced by {@param alternativeParentLens}.
+     *
+     * <p>The cached lookups of the lenses from this lens down to {@param lens} depend on the parent
+     * of {@param lens}, and are therefore cleared before and after running the action.
+     */
+    public final void withAlternativeParentLens(
+        NonIdentityGraphLens lens, GraphLens alternativeParentLens, Action action) {
+      clearCachedLookupsUntil(lens);
+      lens.withAlternativeParentLens(alternativeParentLens, action);
+      clearCachedLookupsUntil(lens);
+    }
+
+    // Clears the cached lookups of this lens and all previous lenses up to and including the given
+    // lens.
+    private void clearCachedLookupsUntil(NonIdentityGraphLens lens) {
+      NonIdentityGraphLens current = this;
+      while (true) {
+        current.arrayTypeCache.clear();
+        current.classTypeCache.clear();
+        current.fieldCache.clear();
+        if (current == lens) {
+          break;
+        }
+        assert current.getPrevious().isNonIdentityLens();
+        current = current.getPrevious().asNonIdentityLens();
+      }
+    }
+
     @Override
     public MethodLookupResult lookupMethod(DexMethod method, DexMethod context, Type type) {
       if (method.getHolderType().isArrayType()) {
@@ -695,7 +763,39 @@ public abstract class GraphLens {
     @Override
     public final DexType lookupClassType(DexType type) {
       assert type.isClassType() : "Expected class type, but was `" + type.toSourceString() + "`";
-      return internalDescribeLookupClassType(getPrevious().lookupClassType(type));
+      if (!isCachingLookups()) {
+        return internalLookupClassType(type);
+      }
+      DexType result = classTypeCache.get(type);
+      if (result == null) {
+        result = internalLookupClassType(type);
+        classTypeCache.put(type, result);
+      }
+      return result;
+    }
+
+    // Looks up the given type through the lens chain without populating the caches of the previous
+    // lenses, such that only the lens that the lookup is issued against will cache the result.
+    private DexType internalLookupClassType(DexType type) {
+      GraphLens previous = getPrevious();
+      DexType previousType =
+          previous.isNonIdentityLens()
+              ? previous.asNonIdentityLens().internalLookupClassType(type)
+              : previous.lookupClassType(type);
+      return internalDescribeLookupClassType(previousType);
+    }
+
+    @Override
+    public FieldLookupResult lookupFieldResult(DexField field) {
+      if (!isCachingLookups()) {
+        return super.lookupFieldResult(field);
+      }
+      FieldLookupResult result = fieldCache.get(field);
+      if (result == null) {
+        result = super.lookupFieldResult(field);
+        fieldCache.put(field, result);
+      }
+      return result;
     }
 
     @Override
@@ -1087,10 +1087,31 @@ public class JarClassFileReader<T extends DexClass> {
   public static class ReparseContext {
 
     // This will hold the content of the whole class. Once all the methods of the class are swapped
-    // from this to the actual JarCode, no other references would be left and the content can be
-    // GC'd.
+    // from this to the actual JarCode, the content is released. If some methods are never parsed,
+    // the content is GC'd once these methods are no longer referenced.
     public byte[] classCache;
     public DexClass owner;
     public final List<Code> codeList = new ArrayList<>();
+
+    // Reused for parsing the code of each method, such that the constant pool is only indexed once.
+    private ClassReader classReader;
+    private int parsedCodeCount = 0;
+
+    ClassReader getClassReader() {
+      assert classCache != null;
+      if (classReader == null) {
+        classReader = new ClassReader(classCache);
+      }
+      return classReader;
+    }
+
+    void markCodeParsed(int count) {
+      parsedCodeCount += count;
+      assert parsedCodeCount <= codeList.size();
+      if (parsedCodeCount == codeList.size()) {
+        classCache = null;
+        classReader = null;
+      }
+    }
   }
 }
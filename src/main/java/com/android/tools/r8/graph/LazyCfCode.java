@@ -64,11 +64,14 @@ import com.android.tools.r8.position.MethodPosition;
 import com.android.tools.r8.shaking.ProguardConfiguration;
 import com.android.tools.r8.shaking.ProguardKeepAttributes;
 import com.android.tools.r8.utils.InternalOptions;
+import com.google.common.collect.Iterables;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceAVLTreeMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceSortedMap;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
@@ -99,15 +102,26 @@ public class LazyCfCode extends Code {
     this.origin = origin;
     this.context = context;
     this.application = application;
+    this.methodIndex = context.codeList.size();
     context.codeList.add(this);
   }
 
   private final Origin origin;
+  // The index of this method among the methods with code in the class file, which locates the code
+  // of this method when the class file is parsed again.
+  private final int methodIndex;
   private JarApplicationReader application;
-  private CfCode code;
-  private ReparseContext context;
+  private volatile CfCode code;
+  // Cleared after the code has been set, such that a thread that reads a null context also reads
+  // the parsed code.
+  private volatile ReparseContext context;
   private boolean reachabilitySensitive = false;
 
+  // Returns null once the code of this method has been parsed.
+  ReparseContext getReparseContextForTesting() {
+    return context;
+  }
+
   public void markReachabilitySensitive() {
     assert code == null;
     reachabilitySensitive = true;
@@ -118,6 +132,11 @@ public class LazyCfCode extends Code {
     return true;
   }
 
+  @Override
+  public boolean isLazyCfCode() {
+    return true;
+  }
+
   @Override
   public LazyCfCode asLazyCfCode() {
     return this;
@@ -127,28 +146,70 @@ public class LazyCfCode extends Code {
   public CfCode asCfCode() {
     if (code == null) {
       ReparseContext context = this.context;
-      JarApplicationReader application = this.application;
-      assert application != null;
-      assert context != null;
-      // The ClassCodeVisitor is in charge of setting this.context to null.
+      if (context != null) {
+        // Each pass visits the whole class file, so the code of all methods of the class that
+        // have not been parsed yet is parsed in the same pass, rather than in a pass per method.
+        List<LazyCfCode> codes = new ArrayList<>(context.codeList.size());
+        for (Code other : context.codeList) {
+          codes.add(other.asLazyCfCode());
+        }
+        parseCode(codes);
+      }
+    }
+    assert code != null;
+    return code;
+  }
+
+  /**
+   * Parses the code of the given methods, which must all be from the same class, unless it has
+   * been parsed already.
+   *
+   * <p>Parsing visits all methods of the class file, even if the code of all other methods is
+   * skipped. The code of several methods of a class is therefore parsed in a single pass rather
+   * than one pass per method. The code of methods that are not given is not materialized, unlike
+   * with {@link #asCfCode()}, which parses the code of all remaining methods of the class. The
+   * content of the class is released by the context when the code of all its methods has been
+   * parsed.
+   */
+  public static void parseCode(Collection<LazyCfCode> codes) {
+    ReparseContext context = null;
+    for (LazyCfCode code : codes) {
+      context = code.context;
+      if (context != null) {
+        break;
+      }
+    }
+    if (context == null) {
+      // The code of all the methods has been parsed.
+      return;
+    }
+    synchronized (context) {
+      List<LazyCfCode> unparsedCodes = new ArrayList<>(codes.size());
+      for (LazyCfCode code : codes) {
+        if (code.code == null) {
+          assert code.context == context;
+          unparsedCodes.add(code);
+        }
+      }
+      if (unparsedCodes.isEmpty()) {
+        return;
+      }
+      // The MethodCodeVisitor is in charge of setting the context of each code to null.
       try {
-        parseCode(context, false);
+        parseCode(context, unparsedCodes, false);
       } catch (JsrEncountered e) {
-        for (Code code : context.codeList) {
-          code.asLazyCfCode().code = null;
-          code.asLazyCfCode().context = context;
-          code.asLazyCfCode().application = application;
-        }
+        // The code of the methods that were visited before the JSR instruction has been set.
+        List<LazyCfCode> remainingCodes = new ArrayList<>(unparsedCodes);
+        remainingCodes.removeIf(code -> code.code != null);
         try {
-          parseCode(context, true);
+          parseCode(context, remainingCodes, true);
         } catch (JsrEncountered e1) {
           throw new Unreachable(e1);
         }
       }
-      assert verifyNoReparseContext(context.owner);
+      context.markCodeParsed(unparsedCodes.size());
+      assert unparsedCodes.stream().allMatch(LazyCfCode::verifyNoInputReaders);
     }
-    assert code != null;
-    return code;
   }
 
   public static class DebugParsingOptions {
@@ -163,26 +224,28 @@ public class LazyCfCode extends Code {
     }
   }
 
-  public void parseCode(ReparseContext context, boolean useJsrInliner) {
-    DebugParsingOptions parsingOptions = getParsingOptions(application, reachabilitySensitive);
-
+  private static void parseCode(
+      ReparseContext context, List<LazyCfCode> codes, boolean useJsrInliner) {
+    JarApplicationReader application = codes.get(0).application;
+    // Debug information is read if it is needed for any of the methods, and dropped for the
+    // methods that do not need it.
+    boolean reachabilitySensitive = Iterables.any(codes, code -> code.reachabilitySensitive);
     ClassCodeVisitor classVisitor =
         new ClassCodeVisitor(
-            context.owner,
-            createCodeLocator(context),
-            application,
-            useJsrInliner,
-            origin,
-            parsingOptions);
-    new ClassReader(context.classCache).accept(classVisitor, parsingOptions.asmReaderOptions);
+            context.owner, new DefaultCodeLocator(codes), application, useJsrInliner);
+    context
+        .getClassReader()
+        .accept(
+            classVisitor,
+            getParsingOptions(application, reachabilitySensitive).asmReaderOptions);
   }
 
   private void setCode(CfCode code) {
     assert this.code == null;
     assert this.context != null;
     this.code = code;
-    this.context = null;
     this.application = null;
+    this.context = null;
   }
 
   @Override
@@ -265,23 +328,20 @@ public class LazyCfCode extends Code {
     return asCfCode().toString(method, naming);
   }
 
-  protected BiFunction<String, String, LazyCfCode> createCodeLocator(ReparseContext context) {
-    return new DefaultCodeLocator(context, application);
-  }
-
+  /** Locates the code of the given methods, such that the code of all other methods is skipped. */
   private static class DefaultCodeLocator implements BiFunction<String, String, LazyCfCode> {
-    private final ReparseContext context;
-    private final JarApplicationReader application;
+    private final Int2ReferenceMap<LazyCfCode> codes = new Int2ReferenceOpenHashMap<>();
     private int methodIndex = 0;
 
-    private DefaultCodeLocator(ReparseContext context, JarApplicationReader application) {
-      this.context = context;
-      this.application = application;
+    private DefaultCodeLocator(Collection<LazyCfCode> codes) {
+      for (LazyCfCode code : codes) {
+        this.codes.put(code.methodIndex, code);
+      }
     }
 
     @Override
     public LazyCfCode apply(String name, String desc) {
-      return context.codeList.get(methodIndex++).asLazyCfCode();
+      return codes.get(methodIndex++);
     }
   }
 
@@ -291,23 +351,17 @@ public class LazyCfCode extends Code {
     private final BiFunction<String, String, LazyCfCode> codeLocator;
     private final JarApplicationReader application;
     private boolean usrJsrInliner;
-    private final Origin origin;
-    private final DebugParsingOptions debugParsingOptions;
 
     ClassCodeVisitor(
         DexClass clazz,
         BiFunction<String, String, LazyCfCode> codeLocator,
         JarApplicationReader application,
-        boolean useJsrInliner,
-        Origin origin,
-        DebugParsingOptions debugParsingOptions) {
+        boolean useJsrInliner) {
       super(InternalOptions.ASM_VERSION);
       this.clazz = clazz;
       this.codeLocator = codeLocator;
       this.application = application;
       this.usrJsrInliner = useJsrInliner;
-      this.origin = origin;
-      this.debugParsingOptions = debugParsingOptions;
     }
 
     @Override
@@ -319,7 +373,12 @@ public class LazyCfCode extends Code {
         if (code != null) {
           DexMethod method = application.getMethod(clazz.type, name, desc);
           MethodCodeVisitor methodVisitor =
-              new MethodCodeVisitor(application, method, code, origin, debugParsingOptions);
+              new MethodCodeVisitor(
+                  application,
+                  method,
+                  code,
+                  code.origin,
+                  getParsingOptions(application, code.reachabilitySensitive));
           if (!usrJsrInliner) {
             return methodVisitor;
           }
@@ -1036,18 +1095,6 @@ public class LazyCfCode extends Code {
     return true;
   }
 
-  private static boolean verifyNoReparseContext(DexClass owner) {
-    for (DexEncodedMethod method : owner.virtualMethods()) {
-      Code code = method.getCode();
-      assert code == null || code.verifyNoInputReaders();
-    }
-    for (DexEncodedMethod method : owner.directMethods()) {
-      Code code = method.getCode();
-      assert code == null || code.verifyNoInputReaders();
-    }
-    return true;
-  }
-
   @Override
   public Int2ReferenceMap<DebugLocalInfo> collectParameterInfo(
       DexEncodedMethod encodedMethod, AppView<?> appView) {
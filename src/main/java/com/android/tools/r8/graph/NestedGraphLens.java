@@ -87,6 +87,12 @@ public class NestedGraphLens extends NonIdentityGraphLens {
     this.newMethodSignatures = newMethodSignatures;
   }
 
+  @Override
+  protected boolean canCacheLookups() {
+    // The mappings of a nested graph lens are fixed at construction.
+    return true;
+  }
+
   protected DexType internalGetOriginalType(DexType previous) {
     return previous;
   }
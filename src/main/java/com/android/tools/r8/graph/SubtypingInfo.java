@@ -3,6 +3,7 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.graph;
 
+import com.android.tools.r8.utils.collections.ConcurrentDexReferenceMap;
 import com.android.tools.r8.utils.structural.StructuralItem;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -16,7 +17,6 @@ import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -32,7 +32,8 @@ public class SubtypingInfo {
   // Map from types to their subtyping information.
   private final DexItemFactory factory;
 
-  private final Map<DexType, TypeInfo> typeInfo = new ConcurrentHashMap<>();
+  private final ConcurrentDexReferenceMap<DexType, TypeInfo> typeInfo =
+      new ConcurrentDexReferenceMap<>();
 
   // Map from types to their subtypes.
   private final Map<DexType, ImmutableSet<DexType>> subtypeMap = new IdentityHashMap<>();
@@ -40,12 +40,14 @@ import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.shaking.FieldAccessInfoCollectionModifier;
 import com.android.tools.r8.shaking.KeepInfoCollection;
 import com.android.tools.r8.shaking.RuntimeTypeCheckInfo;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableList;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 public class HorizontalClassMerger {
 
@@ -56,13 +58,16 @@ public class HorizontalClassMerger {
     assert appView.options().enableInlining;
   }
 
-  public HorizontalClassMergerResult run(RuntimeTypeCheckInfo runtimeTypeCheckInfo, Timing timing) {
+  public HorizontalClassMergerResult run(
+      RuntimeTypeCheckInfo runtimeTypeCheckInfo, ExecutorService executorService, Timing timing)
+      throws ExecutionException {
     MergeGroup initialGroup = new MergeGroup(appView.appInfo().classesWithDeterministicOrder());
 
     // Run the policies on all program classes to produce a final grouping.
     List<Policy> policies = getPolicies(runtimeTypeCheckInfo);
     Collection<MergeGroup> groups =
-        new PolicyExecutor().run(Collections.singletonList(initialGroup), policies, timing);
+        new PolicyExecutor(executorService)
+            .run(Collections.singletonList(initialGroup), policies, timing);
 
     // If there are no groups, then end horizontal class merging.
     if (groups.isEmpty()) {
@@ -74,10 +79,13 @@ public class HorizontalClassMerger {
         new HorizontalClassMergerGraphLens.Builder();
 
     // Merge the classes.
-    List<ClassMerger> classMergers = initializeClassMergers(lensBuilder, groups);
+    timing.begin("Merge classes");
+    Collection<ClassMerger> classMergers =
+        initializeClassMergers(lensBuilder, groups, executorService);
     SyntheticArgumentClass syntheticArgumentClass =
         new SyntheticArgumentClass.Builder(appView).build(groups);
-    applyClassMergers(classMergers, syntheticArgumentClass);
+    applyClassMergers(classMergers, syntheticArgumentClass, executorService);
+    timing.end();
 
     // Generate the graph lens.
     HorizontallyMergedClasses mergedClasses =
@@ -154,27 +162,33 @@ public class HorizontalClassMerger {
    * Prepare horizontal class merging by determining which virtual methods and constructors need to
    * be merged and how the merging should be performed.
    */
-  private List<ClassMerger> initializeClassMergers(
+  private Collection<ClassMerger> initializeClassMergers(
       HorizontalClassMergerGraphLens.Builder lensBuilder,
-      Collection<MergeGroup> groups) {
-    List<ClassMerger> classMergers = new ArrayList<>();
-
+      Collection<MergeGroup> groups,
+      ExecutorService executorService)
+      throws ExecutionException {
+    // The groups are disjoint, so the class mergers can be created in parallel.
     // TODO(b/166577694): Replace Collection<DexProgramClass> with MergeGroup
-    for (MergeGroup group : groups) {
-      assert !group.isEmpty();
-      ClassMerger merger = new ClassMerger.Builder(appView, group).build(lensBuilder);
-      classMergers.add(merger);
-    }
-
-    return classMergers;
+    return ThreadUtils.processItemsWithResults(
+        groups,
+        group -> {
+          assert !group.isEmpty();
+          return new ClassMerger.Builder(appView, group).build(lensBuilder);
+        },
+        executorService);
   }
 
-  /** Merges all class groups using {@link ClassMerger}. */
+  /**
+   * Merges all class groups using {@link ClassMerger}. The groups are disjoint, so the groups are
+   * merged in parallel, and the updates to the shared lens builder are synchronized.
+   */
   private void applyClassMergers(
-      Collection<ClassMerger> classMergers, SyntheticArgumentClass syntheticArgumentClass) {
-    for (ClassMerger merger : classMergers) {
-      merger.mergeGroup(syntheticArgumentClass);
-    }
+      Collection<ClassMerger> classMergers,
+      SyntheticArgumentClass syntheticArgumentClass,
+      ExecutorService executorService)
+      throws ExecutionException {
+    ThreadUtils.processItems(
+        classMergers, merger -> merger.mergeGroup(syntheticArgumentClass), executorService);
   }
 
   /**
@@ -82,6 +82,8 @@ public class HorizontalClassMergerGraphLens extends NestedGraphLens {
 
   public static class Builder {
 
+    // The class mergers record their changes concurrently, so the methods that they use to update
+    // the builder are synchronized.
     private final MutableBidirectionalManyToOneRepresentativeMap<DexField, DexField> fieldMap =
         BidirectionalManyToOneRepresentativeHashMap.newIdentityHashMap();
     private final BidirectionalManyToOneHashMap<DexMethod, DexMethod> methodMap =
@@ -112,11 +114,12 @@ public class HorizontalClassMergerGraphLens extends NestedGraphLens {
           newMethodSignatures);
     }
 
-    void recordNewFieldSignature(DexField oldFieldSignature, DexField newFieldSignature) {
+    synchronized void recordNewFieldSignature(
+        DexField oldFieldSignature, DexField newFieldSignature) {
       fieldMap.put(oldFieldSignature, newFieldSignature);
     }
 
-    void recordNewFieldSignature(
+    synchronized void recordNewFieldSignature(
         Iterable<DexField> oldFieldSignatures,
         DexField newFieldSignature,
         DexField representative) {
@@ -144,16 +147,17 @@ public class HorizontalClassMergerGraphLens extends NestedGraphLens {
       }
     }
 
-    void mapMethod(DexMethod oldMethodSignature, DexMethod newMethodSignature) {
+    synchronized void mapMethod(DexMethod oldMethodSignature, DexMethod newMethodSignature) {
       methodMap.put(oldMethodSignature, newMethodSignature);
     }
 
-    void moveMethod(DexMethod from, DexMethod to) {
+    synchronized void moveMethod(DexMethod from, DexMethod to) {
       mapMethod(from, to);
       recordNewMethodSignature(from, to);
     }
 
-    void recordNewMethodSignature(DexMethod oldMethodSignature, DexMethod newMethodSignature) {
+    synchronized void recordNewMethodSignature(
+        DexMethod oldMethodSignature, DexMethod newMethodSignature) {
       newMethodSignatures.put(oldMethodSignature, newMethodSignature);
     }
 
@@ -202,7 +206,8 @@ public class HorizontalClassMergerGraphLens extends NestedGraphLens {
      * where many constructors are merged into a single constructor. The synthesized constructor
      * therefore does not have a unique reverse constructor.
      */
-    void mapMergedConstructor(DexMethod from, DexMethod to, List<ExtraParameter> extraParameters) {
+    synchronized void mapMergedConstructor(
+        DexMethod from, DexMethod to, List<ExtraParameter> extraParameters) {
       mapMethod(from, to);
       if (extraParameters.size() > 0) {
         methodExtraParameters.put(from, extraParameters);
@@ -19,4 +19,13 @@ public abstract class Policy {
   public boolean shouldSkipPolicy() {
     return false;
   }
+
+  /**
+   * Returns true if this policy can be applied to different classes or groups concurrently. This
+   * is only the case if the policy does not update any state that is shared between classes or
+   * groups, such as caches.
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
 }
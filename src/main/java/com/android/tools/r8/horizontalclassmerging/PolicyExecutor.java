@@ -5,25 +5,46 @@
 package com.android.tools.r8.horizontalclassmerging;
 
 import com.android.tools.r8.utils.IterableUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This is a simple policy executor that ensures regular sequential execution of policies. It should
  * primarily be readable and correct. The SimplePolicyExecutor should be a reference implementation,
  * against which more efficient policy executors can be compared.
+ *
+ * <p>Policies that are thread safe are applied to the classes or groups in parallel. The results
+ * are combined in the order of the classes and groups, such that the resulting groups are the same
+ * as when all policies are applied sequentially.
  */
 public class PolicyExecutor {
 
+  private final ExecutorService executorService;
+
+  public PolicyExecutor(ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
   // TODO(b/165506334): if performing mutable operation ensure that linked lists are used
-  private void applySingleClassPolicy(SingleClassPolicy policy, LinkedList<MergeGroup> groups) {
+  private void applySingleClassPolicy(SingleClassPolicy policy, LinkedList<MergeGroup> groups)
+      throws ExecutionException {
     Iterator<MergeGroup> i = groups.iterator();
     while (i.hasNext()) {
       MergeGroup group = i.next();
       int previousNumberOfClasses = group.size();
-      group.removeIf(clazz -> !policy.canMerge(clazz));
+      if (policy.isThreadSafe()) {
+        Iterator<Boolean> canMerge =
+            ThreadUtils.processItemsWithResults(group, policy::canMerge, executorService)
+                .iterator();
+        group.removeIf(clazz -> !canMerge.next());
+      } else {
+        group.removeIf(clazz -> !policy.canMerge(clazz));
+      }
       policy.numberOfRemovedClasses += previousNumberOfClasses - group.size();
       if (group.size() < 2) {
         i.remove();
@@ -32,18 +53,28 @@ public class PolicyExecutor {
   }
 
   private LinkedList<MergeGroup> applyMultiClassPolicy(
-      MultiClassPolicy policy, LinkedList<MergeGroup> groups) {
-    // For each group apply the multi class policy and add all the new groups together.
+      MultiClassPolicy policy, LinkedList<MergeGroup> groups) throws ExecutionException {
+    // The policy may modify the given groups, so record the sizes up front.
+    int previousNumberOfClasses = IterableUtils.sumInt(groups, MergeGroup::size);
+    Collection<Collection<MergeGroup>> policyGroupsPerGroup;
+    if (policy.isThreadSafe() && groups.size() > 1) {
+      policyGroupsPerGroup =
+          ThreadUtils.processItemsWithResults(groups, policy::apply, executorService);
+    } else {
+      policyGroupsPerGroup = new LinkedList<>();
+      groups.forEach(group -> policyGroupsPerGroup.add(policy.apply(group)));
+    }
+
+    // For each group add all the new groups together in the order of the groups.
     LinkedList<MergeGroup> newGroups = new LinkedList<>();
-    groups.forEach(
-        group -> {
-          int previousNumberOfClasses = group.size();
-          Collection<MergeGroup> policyGroups = policy.apply(group);
-          policyGroups.forEach(newGroup -> newGroup.applyMetadataFrom(group));
-          policy.numberOfRemovedClasses +=
-              previousNumberOfClasses - IterableUtils.sumInt(policyGroups, MergeGroup::size);
-          newGroups.addAll(policyGroups);
-        });
+    Iterator<MergeGroup> groupIterator = groups.iterator();
+    for (Collection<MergeGroup> policyGroups : policyGroupsPerGroup) {
+      MergeGroup group = groupIterator.next();
+      policyGroups.forEach(newGroup -> newGroup.applyMetadataFrom(group));
+      newGroups.addAll(policyGroups);
+    }
+    policy.numberOfRemovedClasses +=
+        previousNumberOfClasses - IterableUtils.sumInt(newGroups, MergeGroup::size);
     return newGroups;
   }
 
@@ -53,7 +84,8 @@ public class PolicyExecutor {
    * class groups.
    */
   public Collection<MergeGroup> run(
-      Collection<MergeGroup> inputGroups, Collection<Policy> policies, Timing timing) {
+      Collection<MergeGroup> inputGroups, Collection<Policy> policies, Timing timing)
+      throws ExecutionException {
     LinkedList<MergeGroup> linkedGroups;
 
     if (inputGroups instanceof LinkedList) {
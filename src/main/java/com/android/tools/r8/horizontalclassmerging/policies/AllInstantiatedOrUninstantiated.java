@@ -26,4 +26,9 @@ public class AllInstantiatedOrUninstantiated extends MultiClassSameReferencePoli
   public String getName() {
     return "AllInstantiatedOrUninstantiated";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -29,6 +29,11 @@ public class CheckAbstractClasses extends MultiClassSameReferencePolicy<Abstract
     return "CheckAbstractClasses";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   @Override
   public boolean shouldSkipPolicy() {
     // We can just make the target class non-abstract if one of the classes in the group
@@ -56,4 +56,9 @@ public class DontInlinePolicy extends SingleClassPolicy {
   public String getName() {
     return "DontInlinePolicy";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -61,4 +61,9 @@ public class DontMergeSynchronizedClasses extends MultiClassPolicy {
   public String getName() {
     return "DontMergeSynchronizedClasses";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
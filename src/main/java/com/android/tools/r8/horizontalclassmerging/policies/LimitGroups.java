@@ -57,4 +57,9 @@ public class LimitGroups extends MultiClassPolicy {
   public String getName() {
     return "LimitGroups";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
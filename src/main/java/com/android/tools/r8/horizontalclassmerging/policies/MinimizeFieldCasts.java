@@ -75,4 +75,9 @@ public class MinimizeFieldCasts extends MultiClassPolicy {
   public String getName() {
     return "MinimizeFieldCasts";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
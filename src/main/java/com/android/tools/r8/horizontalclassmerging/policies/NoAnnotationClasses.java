@@ -17,4 +17,9 @@ public class NoAnnotationClasses extends SingleClassPolicy {
   public String getName() {
     return "NoAnnotationClasses";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -46,4 +46,9 @@ public class NoClassAnnotationCollisions extends MultiClassPolicy {
   public String getName() {
     return "NoClassAnnotationCollisions";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -33,4 +33,9 @@ public class NoClassInitializerWithObservableSideEffects extends SingleClassPoli
   public String getName() {
     return "NoClassInitializerWithObservableSideEffects";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -24,4 +24,9 @@ public class NoDirectRuntimeTypeChecks extends SingleClassPolicy {
   public String getName() {
     return "NoDirectRuntimeTypeChecks";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
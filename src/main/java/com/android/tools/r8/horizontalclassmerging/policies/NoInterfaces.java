@@ -18,4 +18,9 @@ public class NoInterfaces extends SingleClassPolicy {
   public String getName() {
     return "NoInterfaces";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -54,4 +54,9 @@ public class NoKeepRules extends SingleClassPolicy {
   public String getName() {
     return "NoKeepRules";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -19,4 +19,9 @@ public class NoNativeMethods extends SingleClassPolicy {
   public String getName() {
     return "NoNativeMethods";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
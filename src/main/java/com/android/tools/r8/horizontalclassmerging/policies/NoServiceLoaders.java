@@ -31,4 +31,9 @@ public class NoServiceLoaders extends SingleClassPolicy {
   public String getName() {
     return "NoServiceLoaders";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -35,4 +35,9 @@ public class NotMatchedByNoHorizontalClassMerging extends SingleClassPolicy {
   public String getName() {
     return "NotMatchedByNoHorizontalClassMerging";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -28,4 +28,9 @@ public class NotVerticallyMergedIntoSubtype extends SingleClassPolicy {
   public String getName() {
     return "NotVerticallyMergedIntoSubtype";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
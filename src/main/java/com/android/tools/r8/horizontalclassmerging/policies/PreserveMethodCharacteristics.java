@@ -33,6 +33,11 @@ public class PreserveMethodCharacteristics extends MultiClassPolicy {
     return "PreserveMethodCharacteristics";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   static class MethodCharacteristics {
 
     private final MethodAccessFlags accessFlags;
@@ -34,4 +34,9 @@ public class PreventMergeIntoDifferentMainDexGroups
   public String getName() {
     return "PreventMergeIntoDifferentMainDexGroups";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -101,4 +101,9 @@ public class RespectPackageBoundaries extends MultiClassPolicy {
   public String getName() {
     return "RespectPackageBoundaries";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
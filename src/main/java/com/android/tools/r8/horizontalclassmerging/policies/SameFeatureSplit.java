@@ -29,4 +29,9 @@ public class SameFeatureSplit extends MultiClassSameReferencePolicy<FeatureSplit
   public String getName() {
     return "SameFeatureSplit";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
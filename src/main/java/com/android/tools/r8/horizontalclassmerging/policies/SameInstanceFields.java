@@ -39,6 +39,11 @@ public class SameInstanceFields extends MultiClassSameReferencePolicy<Multiset<I
     return "SameInstanceFields";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   public static class InstanceFieldInfo {
 
     private final FieldAccessFlags accessFlags;
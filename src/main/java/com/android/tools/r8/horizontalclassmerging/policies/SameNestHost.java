@@ -28,4 +28,9 @@ public class SameNestHost extends MultiClassSameReferencePolicy<DexType> {
   public String getName() {
     return "SameNestHost";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -53,4 +53,9 @@ public class SyntheticItemsPolicy extends MultiClassSameReferencePolicy<ClassKin
   public String getName() {
     return "SyntheticItemsPolicy";
   }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
 }
@@ -152,6 +152,8 @@ public class BasicBlock {
   // Catch handler information about which successors are catch handlers and what their guards are.
   private CatchHandlers<Integer> catchHandlers = CatchHandlers.EMPTY_INDICES;
 
+  // The IR passes insert and remove instructions at the cursor of the instruction iterators, which
+  // is constant time on a linked list and would be linear on an array-backed list.
   private LinkedList<Instruction> instructions = new LinkedList<>();
   private int number = -1;
   private List<Phi> phis = new ArrayList<>();
@@ -39,9 +39,9 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -164,9 +164,11 @@ public class Value implements Comparable<Value> {
 
   protected final int number;
   public Instruction definition = null;
-  private LinkedList<Instruction> users = new LinkedList<>();
+  // The user lists are array based and start out empty, since most values only have a few users.
+  // This avoids allocating a list node per use-def edge.
+  private ArrayList<Instruction> users = new ArrayList<>(0);
   private Set<Instruction> uniqueUsers = null;
-  private LinkedList<Phi> phiUsers = new LinkedList<>();
+  private ArrayList<Phi> phiUsers = new ArrayList<>(0);
   private Set<Phi> uniquePhiUsers = null;
   private Value nextConsecutive = null;
   private Value previousConsecutive = null;
@@ -352,7 +354,7 @@ public class Value implements Comparable<Value> {
 
   public Instruction singleUniqueUser() {
     assert ImmutableSet.copyOf(users).size() == 1;
-    return users.getFirst();
+    return users.get(0);
   }
 
   public Set<Instruction> aliasedUsers() {
@@ -385,7 +387,7 @@ public class Value implements Comparable<Value> {
 
   public Phi firstPhiUser() {
     assert !phiUsers.isEmpty();
-    return phiUsers.getFirst();
+    return phiUsers.get(0);
   }
 
   public Set<Phi> uniquePhiUsers() {
@@ -7,6 +7,7 @@ package com.android.tools.r8.ir.conversion;
 import com.android.tools.r8.contexts.CompilationContext.MethodProcessingContext;
 import com.android.tools.r8.contexts.CompilationContext.ProcessorContext;
 import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.ir.conversion.CallGraph.Node;
 import com.android.tools.r8.logging.Log;
@@ -15,14 +16,20 @@ import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.Timing.TimingMerger;
+import com.android.tools.r8.utils.Tracer;
 import com.android.tools.r8.utils.collections.ProgramMethodSet;
 import com.android.tools.r8.utils.collections.SortedProgramMethodSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 /**
@@ -104,6 +111,38 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
     return waves;
   }
 
+  /**
+   * Returns the methods of the given wave such that the largest methods are started first.
+   *
+   * <p>The methods of a wave are processed concurrently, so the processing order within a wave
+   * does not affect the result. Starting the largest methods first avoids that a large method that
+   * is started late leaves the other threads idle at the end of the wave.
+   */
+  private static List<ProgramMethod> orderByDecreasingSize(SortedProgramMethodSet wave) {
+    List<ProgramMethod> methods = new ArrayList<>(wave.size());
+    Reference2IntMap<ProgramMethod> sizes = new Reference2IntOpenHashMap<>(wave.size());
+    for (ProgramMethod method : wave) {
+      Code code = method.getDefinition().getCode();
+      methods.add(method);
+      sizes.put(method, code != null ? code.estimatedSizeForInlining() : 0);
+    }
+    // The sort is stable, which keeps the order of the methods with the same size deterministic.
+    methods.sort((x, y) -> Integer.compare(sizes.getInt(y), sizes.getInt(x)));
+    return methods;
+  }
+
+  private void recordUtilization(long busyNanos, long waveNanos, int numberOfThreads) {
+    Tracer tracer = appView.options().tracer;
+    if (tracer.isEnabled() && numberOfThreads > 0 && waveNanos > 0) {
+      // The utilization is the fraction of the available thread time that is spent processing
+      // methods. The remainder is time where threads are idle waiting for the end of the wave.
+      long capacityNanos = waveNanos * numberOfThreads;
+      tracer.add("primary-processor.busy-nanos", busyNanos);
+      tracer.add("primary-processor.capacity-nanos", capacityNanos);
+      tracer.record("primary-processor.wave-utilization-percent", 100 * busyNanos / capacityNanos);
+    }
+  }
+
   @FunctionalInterface
   public interface MethodAction<E extends Exception> {
     Timing apply(ProgramMethod method, MethodProcessingContext methodProcessingContext) throws E;
@@ -122,8 +161,8 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
       Timing timing,
       ExecutorService executorService)
       throws ExecutionException {
-    TimingMerger merger =
-        timing.beginMerger("primary-processor", ThreadUtils.getNumberOfThreads(executorService));
+    int numberOfThreads = ThreadUtils.getNumberOfThreads(executorService);
+    TimingMerger merger = timing.beginMerger("primary-processor", numberOfThreads);
     while (!waves.isEmpty()) {
       ProcessorContext processorContext = appView.createProcessorContext();
       wave = waves.removeFirst();
@@ -131,17 +170,22 @@ class PrimaryMethodProcessor extends MethodProcessorWithWave {
       assert waveExtension.isEmpty();
       do {
         waveStartAction.notifyWaveStart(wave);
+        long waveStartNanos = System.nanoTime();
+        LongAdder busyNanos = new LongAdder();
         Collection<Timing> timings =
             ThreadUtils.processItemsWithResults(
-                wave,
+                orderByDecreasingSize(wave),
                 method -> {
+                  long methodStartNanos = System.nanoTime();
                   Timing time =
                       consumer.apply(
                           method, processorContext.createMethodProcessingContext(method));
                   time.end();
+                  busyNanos.add(System.nanoTime() - methodStartNanos);
                   return time;
                 },
                 executorService);
+        recordUtilization(busyNanos.sum(), System.nanoTime() - waveStartNanos, numberOfThreads);
         merger.add(timings);
         waveDone.accept(wave);
         prepareForWaveExtensionProcessing();
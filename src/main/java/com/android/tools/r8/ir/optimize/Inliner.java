@@ -65,6 +65,7 @@ import com.android.tools.r8.utils.IteratorUtils;
 import com.android.tools.r8.utils.ListUtils;
 import com.android.tools.r8.utils.SetUtils;
 import com.android.tools.r8.utils.Timing;
+import com.android.tools.r8.utils.Tracer;
 import com.android.tools.r8.utils.collections.ProgramMethodSet;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -952,6 +953,7 @@ public class Inliner implements PostOptimization {
         new ClassInitializationAnalysis(appView, code);
     Deque<BasicBlock> inlineeStack = new ArrayDeque<>();
     InternalOptions options = appView.options();
+    Tracer tracer = options.tracer;
     while (blockIterator.hasNext()) {
       BasicBlock block = blockIterator.next();
       if (!inlineeStack.isEmpty() && inlineeStack.peekFirst() == block) {
@@ -1004,6 +1006,7 @@ public class Inliner implements PostOptimization {
                   whyAreYouNotInliningReporter);
           if (action == null) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            tracer.increment("inliner.not-inlined");
             continue;
           }
 
@@ -1035,6 +1038,7 @@ public class Inliner implements PostOptimization {
           if (strategy.willExceedBudget(
               code, invoke, inlinee, block, whyAreYouNotInliningReporter)) {
             assert whyAreYouNotInliningReporter.unsetReasonHasBeenReportedFlag();
+            tracer.increment("inliner.budget-exceeded");
             continue;
           }
 
@@ -1059,6 +1063,11 @@ public class Inliner implements PostOptimization {
 
           boolean inlineeMayHaveInvokeMethod = inlinee.code.metadata().mayHaveInvokeMethod();
 
+          if (tracer.isEnabled()) {
+            tracer.increment("inliner.inlined." + inlinee.reason);
+            tracer.record("inliner.inlinee-blocks", inlinee.code.blocks.size());
+          }
+
           // Inline the inlinee code in place of the invoke instruction
           // Back up before the invoke instruction.
           iterator.previous();
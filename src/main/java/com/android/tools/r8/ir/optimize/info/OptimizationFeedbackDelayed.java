@@ -6,6 +6,7 @@ package com.android.tools.r8.ir.optimize.info;
 
 import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.DexEncodedField;
+import com.android.tools.r8.graph.DexEncodedMember;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.ProgramMethod;
@@ -31,40 +32,108 @@ import java.util.function.Consumer;
 
 public class OptimizationFeedbackDelayed extends OptimizationFeedback {
 
-  // Caching of updated optimization info and processed status.
+  // The updates are striped by the member, such that the IR processing threads rarely contend on
+  // the same lock. Each stripe caches the updated optimization info and processed status of the
+  // members that map to it. Must be a power of two.
+  private static final int NUMBER_OF_STRIPES = 64;
+
+  private static class Stripe {
+
+    private final Map<DexEncodedField, MutableFieldOptimizationInfo> fieldOptimizationInfos =
+        new IdentityHashMap<>();
+    private final Map<DexEncodedMethod, UpdatableMethodOptimizationInfo> methodOptimizationInfos =
+        new IdentityHashMap<>();
+    private final Map<DexEncodedMethod, ConstraintWithTarget> processed = new IdentityHashMap<>();
+
+    private MutableFieldOptimizationInfo getFieldOptimizationInfoForUpdating(
+        DexEncodedField field) {
+      MutableFieldOptimizationInfo info = fieldOptimizationInfos.get(field);
+      if (info != null) {
+        return info;
+      }
+      info = field.getOptimizationInfo().mutableCopy();
+      fieldOptimizationInfos.put(field, info);
+      return info;
+    }
+
+    private UpdatableMethodOptimizationInfo getMethodOptimizationInfoForUpdating(
+        DexEncodedMethod method) {
+      UpdatableMethodOptimizationInfo info = methodOptimizationInfos.get(method);
+      if (info != null) {
+        return info;
+      }
+      info = method.getOptimizationInfo().mutableCopy();
+      methodOptimizationInfos.put(method, info);
+      return info;
+    }
+
+    private void updateVisibleOptimizationInfo() {
+      // Remove methods that have become obsolete. A method may become obsolete, for example, as a
+      // result of the class staticizer, which aims to transform virtual methods on companion
+      // classes into static methods on the enclosing class of the companion class.
+      IteratorUtils.removeIf(
+          methodOptimizationInfos.entrySet().iterator(), entry -> entry.getKey().isObsolete());
+      IteratorUtils.removeIf(
+          processed.entrySet().iterator(), entry -> entry.getKey().isObsolete());
+
+      // Update field optimization info.
+      fieldOptimizationInfos.forEach(DexEncodedField::setOptimizationInfo);
+      fieldOptimizationInfos.clear();
+
+      // Update method optimization info.
+      methodOptimizationInfos.forEach(DexEncodedMethod::setOptimizationInfo);
+      methodOptimizationInfos.clear();
+
+      // Mark the processed methods as processed.
+      processed.forEach(DexEncodedMethod::markProcessed);
+      processed.clear();
+    }
+
+    private boolean noUpdatesLeft() {
+      assert fieldOptimizationInfos.isEmpty()
+          : StringUtils.join(", ", fieldOptimizationInfos.keySet());
+      assert methodOptimizationInfos.isEmpty()
+          : StringUtils.join(", ", methodOptimizationInfos.keySet());
+      assert processed.isEmpty() : StringUtils.join(", ", processed.keySet());
+      return true;
+    }
+  }
+
   private final AppInfoWithLivenessModifier appInfoWithLivenessModifier =
       AppInfoWithLiveness.modifier();
-  private final Map<DexEncodedField, MutableFieldOptimizationInfo> fieldOptimizationInfos =
-      new IdentityHashMap<>();
-  private final Map<DexEncodedMethod, UpdatableMethodOptimizationInfo> methodOptimizationInfos =
-      new IdentityHashMap<>();
-  private final Map<DexEncodedMethod, ConstraintWithTarget> processed = new IdentityHashMap<>();
-
-  private synchronized MutableFieldOptimizationInfo getFieldOptimizationInfoForUpdating(
-      DexEncodedField field) {
-    MutableFieldOptimizationInfo info = fieldOptimizationInfos.get(field);
-    if (info != null) {
-      return info;
+  private final Stripe[] stripes = new Stripe[NUMBER_OF_STRIPES];
+
+  public OptimizationFeedbackDelayed() {
+    for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+      stripes[i] = new Stripe();
     }
-    info = field.getOptimizationInfo().mutableCopy();
-    fieldOptimizationInfos.put(field, info);
-    return info;
   }
 
-  private synchronized UpdatableMethodOptimizationInfo getMethodOptimizationInfoForUpdating(
-      DexEncodedMethod method) {
-    UpdatableMethodOptimizationInfo info = methodOptimizationInfos.get(method);
-    if (info != null) {
-      return info;
+  private Stripe getStripe(DexEncodedMember<?, ?> member) {
+    // The hash code of a member is the cached hash code of its reference.
+    int hash = member.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (NUMBER_OF_STRIPES - 1)];
+  }
+
+  private void updateFieldOptimizationInfo(
+      DexEncodedField field, Consumer<MutableFieldOptimizationInfo> fn) {
+    Stripe stripe = getStripe(field);
+    synchronized (stripe) {
+      fn.accept(stripe.getFieldOptimizationInfoForUpdating(field));
+    }
+  }
+
+  private void updateMethodOptimizationInfo(
+      DexEncodedMethod method, Consumer<UpdatableMethodOptimizationInfo> fn) {
+    Stripe stripe = getStripe(method);
+    synchronized (stripe) {
+      fn.accept(stripe.getMethodOptimizationInfoForUpdating(method));
     }
-    info = method.getOptimizationInfo().mutableCopy();
-    methodOptimizationInfos.put(method, info);
-    return info;
   }
 
-  private UpdatableMethodOptimizationInfo getMethodOptimizationInfoForUpdating(
-      ProgramMethod method) {
-    return getMethodOptimizationInfoForUpdating(method.getDefinition());
+  private void updateMethodOptimizationInfo(
+      ProgramMethod method, Consumer<UpdatableMethodOptimizationInfo> fn) {
+    updateMethodOptimizationInfo(method.getDefinition(), fn);
   }
 
   @Override
@@ -85,33 +154,18 @@ public class OptimizationFeedbackDelayed extends OptimizationFeedback {
   }
 
   public void updateVisibleOptimizationInfo() {
-    // Remove methods that have become obsolete. A method may become obsolete, for example, as a
-    // result of the class staticizer, which aims to transform virtual methods on companion classes
-    // into static methods on the enclosing class of the companion class.
-    IteratorUtils.removeIf(
-        methodOptimizationInfos.entrySet().iterator(), entry -> entry.getKey().isObsolete());
-    IteratorUtils.removeIf(processed.entrySet().iterator(), entry -> entry.getKey().isObsolete());
-
-    // Update field optimization info.
-    fieldOptimizationInfos.forEach(DexEncodedField::setOptimizationInfo);
-    fieldOptimizationInfos.clear();
-
-    // Update method optimization info.
-    methodOptimizationInfos.forEach(DexEncodedMethod::setOptimizationInfo);
-    methodOptimizationInfos.clear();
-
-    // Mark the processed methods as processed.
-    processed.forEach(DexEncodedMethod::markProcessed);
-    processed.clear();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.updateVisibleOptimizationInfo();
+      }
+    }
   }
 
   public boolean noUpdatesLeft() {
     assert appInfoWithLivenessModifier.isEmpty();
-    assert fieldOptimizationInfos.isEmpty()
-        : StringUtils.join(", ", fieldOptimizationInfos.keySet());
-    assert methodOptimizationInfos.isEmpty()
-        : StringUtils.join(", ", methodOptimizationInfos.keySet());
-    assert processed.isEmpty() : StringUtils.join(", ", processed.keySet());
+    for (Stripe stripe : stripes) {
+      assert stripe.noUpdatesLeft();
+    }
     return true;
   }
 
@@ -119,32 +173,32 @@ public class OptimizationFeedbackDelayed extends OptimizationFeedback {
 
   @Override
   public void markFieldCannotBeKept(DexEncodedField field) {
-    getFieldOptimizationInfoForUpdating(field).cannotBeKept();
+    updateFieldOptimizationInfo(field, info -> info.cannotBeKept());
   }
 
   @Override
   public void markFieldAsDead(DexEncodedField field) {
-    getFieldOptimizationInfoForUpdating(field).markAsDead();
+    updateFieldOptimizationInfo(field, info -> info.markAsDead());
   }
 
   @Override
   public void markFieldAsPropagated(DexEncodedField field) {
-    getFieldOptimizationInfoForUpdating(field).markAsPropagated();
+    updateFieldOptimizationInfo(field, info -> info.markAsPropagated());
   }
 
   @Override
   public void markFieldHasDynamicLowerBoundType(DexEncodedField field, ClassTypeElement type) {
-    getFieldOptimizationInfoForUpdating(field).setDynamicLowerBoundType(type);
+    updateFieldOptimizationInfo(field, info -> info.setDynamicLowerBoundType(type));
   }
 
   @Override
   public void markFieldHasDynamicUpperBoundType(DexEncodedField field, TypeElement type) {
-    getFieldOptimizationInfoForUpdating(field).setDynamicUpperBoundType(type);
+    updateFieldOptimizationInfo(field, info -> info.setDynamicUpperBoundType(type));
   }
 
   @Override
   public void markFieldBitsRead(DexEncodedField field, int bitsRead) {
-    getFieldOptimizationInfoForUpdating(field).joinReadBits(bitsRead);
+    updateFieldOptimizationInfo(field, info -> info.joinReadBits(bitsRead));
   }
 
   @Override
@@ -157,7 +211,7 @@ public class OptimizationFeedbackDelayed extends OptimizationFeedback {
         .get(field.getReference())
         .hasReflectiveAccess();
     if (appView.appInfo().mayPropagateValueFor(field.getReference())) {
-      getFieldOptimizationInfoForUpdating(field).setAbstractValue(abstractValue);
+      updateFieldOptimizationInfo(field, info -> info.setAbstractValue(abstractValue));
     }
   }
 
@@ -165,136 +219,141 @@ public class OptimizationFeedbackDelayed extends OptimizationFeedback {
 
   @Override
   public void markForceInline(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markForceInline();
+    updateMethodOptimizationInfo(method, info -> info.markForceInline());
   }
 
   @Override
-  public synchronized void markInlinedIntoSingleCallSite(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markInlinedIntoSingleCallSite();
+  public void markInlinedIntoSingleCallSite(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.markInlinedIntoSingleCallSite());
   }
 
   @Override
   public void markMethodCannotBeKept(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).cannotBeKept();
+    updateMethodOptimizationInfo(method, info -> info.cannotBeKept());
   }
 
   @Override
-  public synchronized void methodInitializesClassesOnNormalExit(
+  public void methodInitializesClassesOnNormalExit(
       DexEncodedMethod method, Set<DexType> initializedClasses) {
-    getMethodOptimizationInfoForUpdating(method)
-        .markInitializesClassesOnNormalExit(initializedClasses);
+    updateMethodOptimizationInfo(
+        method, info -> info.markInitializesClassesOnNormalExit(initializedClasses));
   }
 
   @Override
-  public synchronized void methodReturnsArgument(DexEncodedMethod method, int argument) {
-    getMethodOptimizationInfoForUpdating(method).markReturnsArgument(argument);
+  public void methodReturnsArgument(DexEncodedMethod method, int argument) {
+    updateMethodOptimizationInfo(method, info -> info.markReturnsArgument(argument));
   }
 
   @Override
-  public synchronized void methodReturnsAbstractValue(
+  public void methodReturnsAbstractValue(
       DexEncodedMethod method, AppView<AppInfoWithLiveness> appView, AbstractValue value) {
     if (appView.appInfo().mayPropagateValueFor(method.getReference())) {
-      getMethodOptimizationInfoForUpdating(method).markReturnsAbstractValue(value);
+      updateMethodOptimizationInfo(method, info -> info.markReturnsAbstractValue(value));
     }
   }
 
   @Override
-  public synchronized void unsetAbstractReturnValue(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).unsetAbstractReturnValue();
+  public void unsetAbstractReturnValue(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.unsetAbstractReturnValue());
   }
 
   @Override
-  public synchronized void methodReturnsObjectWithUpperBoundType(
+  public void methodReturnsObjectWithUpperBoundType(
       DexEncodedMethod method, AppView<?> appView, TypeElement type) {
-    getMethodOptimizationInfoForUpdating(method).markReturnsObjectWithUpperBoundType(appView, type);
+    updateMethodOptimizationInfo(
+        method, info -> info.markReturnsObjectWithUpperBoundType(appView, type));
   }
 
   @Override
-  public synchronized void methodReturnsObjectWithLowerBoundType(
+  public void methodReturnsObjectWithLowerBoundType(
       DexEncodedMethod method, ClassTypeElement type) {
-    getMethodOptimizationInfoForUpdating(method).markReturnsObjectWithLowerBoundType(type);
+    updateMethodOptimizationInfo(method, info -> info.markReturnsObjectWithLowerBoundType(type));
   }
 
   @Override
-  public synchronized void methodNeverReturnsNormally(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markNeverReturnsNormally();
+  public void methodNeverReturnsNormally(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.markNeverReturnsNormally());
   }
 
   @Override
-  public synchronized void methodMayNotHaveSideEffects(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markMayNotHaveSideEffects();
+  public void methodMayNotHaveSideEffects(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.markMayNotHaveSideEffects());
   }
 
   @Override
-  public synchronized void methodReturnValueOnlyDependsOnArguments(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markReturnValueOnlyDependsOnArguments();
+  public void methodReturnValueOnlyDependsOnArguments(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.markReturnValueOnlyDependsOnArguments());
   }
 
   @Override
-  public synchronized void markAsPropagated(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markAsPropagated();
+  public void markAsPropagated(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.markAsPropagated());
   }
 
   @Override
-  public synchronized void markProcessed(DexEncodedMethod method, ConstraintWithTarget state) {
-    processed.put(method, state);
+  public void markProcessed(DexEncodedMethod method, ConstraintWithTarget state) {
+    Stripe stripe = getStripe(method);
+    synchronized (stripe) {
+      stripe.processed.put(method, state);
+    }
   }
 
   @Override
-  public synchronized void markCheckNullReceiverBeforeAnySideEffect(
-      DexEncodedMethod method, boolean mark) {
-    getMethodOptimizationInfoForUpdating(method).markCheckNullReceiverBeforeAnySideEffect(mark);
+  public void markCheckNullReceiverBeforeAnySideEffect(DexEncodedMethod method, boolean mark) {
+    updateMethodOptimizationInfo(
+        method, info -> info.markCheckNullReceiverBeforeAnySideEffect(mark));
   }
 
   @Override
-  public synchronized void markTriggerClassInitBeforeAnySideEffect(
-      DexEncodedMethod method, boolean mark) {
-    getMethodOptimizationInfoForUpdating(method).markTriggerClassInitBeforeAnySideEffect(mark);
+  public void markTriggerClassInitBeforeAnySideEffect(DexEncodedMethod method, boolean mark) {
+    updateMethodOptimizationInfo(
+        method, info -> info.markTriggerClassInitBeforeAnySideEffect(mark));
   }
 
   @Override
-  public synchronized void setBridgeInfo(DexEncodedMethod method, BridgeInfo bridgeInfo) {
-    getMethodOptimizationInfoForUpdating(method).setBridgeInfo(bridgeInfo);
+  public void setBridgeInfo(DexEncodedMethod method, BridgeInfo bridgeInfo) {
+    updateMethodOptimizationInfo(method, info -> info.setBridgeInfo(bridgeInfo));
   }
 
   @Override
-  public synchronized void setClassInlinerMethodConstraint(
+  public void setClassInlinerMethodConstraint(
       ProgramMethod method, ClassInlinerMethodConstraint classInlinerConstraint) {
-    getMethodOptimizationInfoForUpdating(method)
-        .setClassInlinerMethodConstraint(classInlinerConstraint);
+    updateMethodOptimizationInfo(
+        method, info -> info.setClassInlinerMethodConstraint(classInlinerConstraint));
   }
 
   @Override
-  public synchronized void setInstanceInitializerInfoCollection(
+  public void setInstanceInitializerInfoCollection(
       DexEncodedMethod method,
       InstanceInitializerInfoCollection instanceInitializerInfoCollection) {
-    getMethodOptimizationInfoForUpdating(method)
-        .setInstanceInitializerInfoCollection(instanceInitializerInfoCollection);
+    updateMethodOptimizationInfo(
+        method,
+        info -> info.setInstanceInitializerInfoCollection(instanceInitializerInfoCollection));
   }
 
   @Override
-  public synchronized void setInitializerEnablingJavaVmAssertions(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).setInitializerEnablingJavaAssertions();
+  public void setInitializerEnablingJavaVmAssertions(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.setInitializerEnablingJavaAssertions());
   }
 
   @Override
-  public synchronized void setNonNullParamOrThrow(DexEncodedMethod method, BitSet facts) {
-    getMethodOptimizationInfoForUpdating(method).setNonNullParamOrThrow(facts);
+  public void setNonNullParamOrThrow(DexEncodedMethod method, BitSet facts) {
+    updateMethodOptimizationInfo(method, info -> info.setNonNullParamOrThrow(facts));
   }
 
   @Override
-  public synchronized void setNonNullParamOnNormalExits(DexEncodedMethod method, BitSet facts) {
-    getMethodOptimizationInfoForUpdating(method).setNonNullParamOnNormalExits(facts);
+  public void setNonNullParamOnNormalExits(DexEncodedMethod method, BitSet facts) {
+    updateMethodOptimizationInfo(method, info -> info.setNonNullParamOnNormalExits(facts));
   }
 
   @Override
-  public synchronized void setSimpleInliningConstraint(
+  public void setSimpleInliningConstraint(
       ProgramMethod method, SimpleInliningConstraint constraint) {
-    getMethodOptimizationInfoForUpdating(method).setSimpleInliningConstraint(constraint);
+    updateMethodOptimizationInfo(method, info -> info.setSimpleInliningConstraint(constraint));
   }
 
   @Override
-  public synchronized void classInitializerMayBePostponed(DexEncodedMethod method) {
-    getMethodOptimizationInfoForUpdating(method).markClassInitializerMayBePostponed();
+  public void classInitializerMayBePostponed(DexEncodedMethod method) {
+    updateMethodOptimizationInfo(method, info -> info.markClassInitializerMayBePostponed());
   }
 }
@@ -66,7 +66,6 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
@@ -142,7 +141,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   // The current register allocation mode.
   private ArgumentReuseMode mode = ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT;
   // The set of registers that are free for allocation.
-  private TreeSet<Integer> freeRegisters = new TreeSet<>();
+  private RegisterSet freeRegisters = new RegisterSet();
   // The max register number used.
   private int maxRegisterNumber = -1;
 
@@ -642,7 +641,32 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   private void performAllocation() {
     // Will automatically continue to ALLOW_ARGUMENT_REUSE_U8BIT and ALLOW_ARGUMENT_REUSE_U16BIT,
     // if needed.
-    performAllocation(ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT, false);
+    if (registerPressureExceedsU4Bit()) {
+      // The allocation in ALLOW_ARGUMENT_REUSE_U4BIT is bound to fail, so avoid the linear scan.
+      // Since live intervals are never split in ALLOW_ARGUMENT_REUSE_U4BIT, this leads to the same
+      // allocation as when retrying in ALLOW_ARGUMENT_REUSE_U8BIT after a failed attempt.
+      performAllocation(ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U8BIT, false);
+    } else {
+      performAllocation(ArgumentReuseMode.ALLOW_ARGUMENT_REUSE_U4BIT, false);
+    }
+  }
+
+  // Returns true if more than 16 registers are live on entry to some block. In
+  // ALLOW_ARGUMENT_REUSE_U4BIT live intervals are not split, so each value that is live on entry
+  // occupies its own register(s) at that point, and the allocation cannot fit in 4 bits.
+  private boolean registerPressureExceedsU4Bit() {
+    for (LiveAtEntrySets liveAtEntry : liveAtEntrySets.values()) {
+      int registers = 0;
+      for (Value value : liveAtEntry.liveValues) {
+        if (value.needsRegister()) {
+          registers += value.requiredRegisters();
+        }
+      }
+      if (registers > Constants.U4BIT_MAX + 1) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private ArgumentReuseMode performAllocation(ArgumentReuseMode mode, boolean isRetry) {
@@ -985,7 +1009,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
   }
 
   private boolean invariantsHold(ArgumentReuseMode mode) {
-    TreeSet<Integer> computedFreeRegisters = new TreeSet<>();
+    RegisterSet computedFreeRegisters = new RegisterSet();
     for (int register = 0; register <= maxRegisterNumber; ++register) {
       computedFreeRegisters.add(register);
     }
@@ -1114,7 +1138,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
         LiveIntervals destIntervals = dest.getLiveIntervals();
         if (destIntervals.getRegister() == NO_REGISTER) {
           // Save the current register allocation state so we can restore it at the end.
-          TreeSet<Integer> savedFreeRegisters = new TreeSet<>(freeRegisters);
+          RegisterSet savedFreeRegisters = freeRegisters.copy();
           int savedMaxRegisterNumber = maxRegisterNumber;
           List<LiveIntervals> savedInactive = new LinkedList<>(inactive);
 
@@ -1275,7 +1299,7 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
       return intervals.getSplitParent().getRegister();
     }
 
-    TreeSet<Integer> previousFreeRegisters = new TreeSet<>(freeRegisters);
+    RegisterSet previousFreeRegisters = freeRegisters.copy();
     int previousMaxRegisterNumber = maxRegisterNumber;
     freeRegisters.removeAll(expiredHere);
     if (excludedRegisters != null) {
@@ -2980,28 +3004,12 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
 
   private int getFreeConsecutiveRegisters(int numberOfRegisters, boolean prioritizeSmallRegisters) {
     int oldMaxRegisterNumber = maxRegisterNumber;
-    TreeSet<Integer> freeRegistersWithDesiredOrdering = this.freeRegisters;
-    if (prioritizeSmallRegisters) {
-      freeRegistersWithDesiredOrdering =
-          new TreeSet<>(
-              (Integer x, Integer y) -> {
-                boolean xIsArgument = x < numberOfArgumentRegisters;
-                boolean yIsArgument = y < numberOfArgumentRegisters;
-                // If x is an argument and y is not, then prioritize y.
-                if (xIsArgument && !yIsArgument) {
-                  return 1;
-                }
-                // If x is not an argument and y is, then prioritize x.
-                if (!xIsArgument && yIsArgument) {
-                  return -1;
-                }
-                // Otherwise use their normal ordering.
-                return x - y;
-              });
-      freeRegistersWithDesiredOrdering.addAll(this.freeRegisters);
-    }
-
-    Iterator<Integer> freeRegistersIterator = freeRegistersWithDesiredOrdering.iterator();
+    // When prioritizing small registers, the non-argument registers are tried before the argument
+    // registers, since the argument registers are mapped to the highest register numbers.
+    IntIterator freeRegistersIterator =
+        prioritizeSmallRegisters
+            ? freeRegisters.iterator(numberOfArgumentRegisters)
+            : freeRegisters.iterator();
     int first = getNextFreeRegister(freeRegistersIterator);
     int current = first;
     while (current - first + 1 != numberOfRegisters) {
@@ -3046,9 +3054,9 @@ public class LinearScanRegisterAllocator implements RegisterAllocator {
     return true;
   }
 
-  private int getNextFreeRegister(Iterator<Integer> freeRegistersIterator) {
+  private int getNextFreeRegister(IntIterator freeRegistersIterator) {
     if (freeRegistersIterator.hasNext()) {
-      return freeRegistersIterator.next();
+      return freeRegistersIterator.nextInt();
     }
     return ++maxRegisterNumber;
   }
@@ -0,0 +1,131 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.regalloc;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntIterator;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of register numbers backed by a bit set.
+ *
+ * <p>Used by the {@link LinearScanRegisterAllocator} to track the free registers. Compared to a
+ * sorted set of boxed integers, adding, removing and copying do not allocate per register, and the
+ * registers are iterated in ascending order by scanning the bits.
+ */
+class RegisterSet {
+
+  private final BitSet registers;
+
+  RegisterSet() {
+    this(new BitSet());
+  }
+
+  private RegisterSet(BitSet registers) {
+    this.registers = registers;
+  }
+
+  RegisterSet copy() {
+    return new RegisterSet((BitSet) registers.clone());
+  }
+
+  boolean add(int register) {
+    assert register >= 0;
+    if (registers.get(register)) {
+      return false;
+    }
+    registers.set(register);
+    return true;
+  }
+
+  void addAll(IntCollection registers) {
+    for (IntIterator iterator = registers.iterator(); iterator.hasNext(); ) {
+      add(iterator.nextInt());
+    }
+  }
+
+  boolean remove(int register) {
+    if (register < 0 || !registers.get(register)) {
+      return false;
+    }
+    registers.clear(register);
+    return true;
+  }
+
+  void removeAll(IntCollection registers) {
+    for (IntIterator iterator = registers.iterator(); iterator.hasNext(); ) {
+      remove(iterator.nextInt());
+    }
+  }
+
+  boolean contains(int register) {
+    return register >= 0 && registers.get(register);
+  }
+
+  void clear() {
+    registers.clear();
+  }
+
+  /** Returns the registers in ascending order. */
+  IntIterator iterator() {
+    return iterator(0);
+  }
+
+  /**
+   * Returns the registers greater than or equal to {@param firstRegister} in ascending order,
+   * followed by the registers less than {@param firstRegister} in ascending order.
+   *
+   * <p>The set must not be modified while iterating.
+   */
+  IntIterator iterator(int firstRegister) {
+    return new AbstractIntIterator() {
+
+      private boolean wrapped = firstRegister == 0;
+      private int next = findNext(registers.nextSetBit(firstRegister));
+
+      private int findNext(int candidate) {
+        if (!wrapped && candidate < 0) {
+          wrapped = true;
+          candidate = registers.nextSetBit(0);
+        }
+        if (wrapped && candidate >= firstRegister && firstRegister > 0) {
+          return -1;
+        }
+        return candidate;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        int result = next;
+        next = findNext(registers.nextSetBit(result + 1));
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof RegisterSet && registers.equals(((RegisterSet) other).registers);
+  }
+
+  @Override
+  public int hashCode() {
+    return registers.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return registers.toString();
+  }
+}
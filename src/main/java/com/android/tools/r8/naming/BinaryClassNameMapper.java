@@ -0,0 +1,258 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static com.android.tools.r8.naming.BinaryProguardMapWriter.HAS_MINIFIED_RANGE;
+import static com.android.tools.r8.naming.BinaryProguardMapWriter.HAS_ORIGINAL_LINE;
+import static com.android.tools.r8.naming.BinaryProguardMapWriter.HAS_ORIGINAL_RANGE;
+import static com.android.tools.r8.naming.BinaryProguardMapWriter.HEADER_SIZE;
+import static com.android.tools.r8.naming.BinaryProguardMapWriter.MAGIC;
+import static com.android.tools.r8.naming.BinaryProguardMapWriter.VERSION;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.naming.MemberNaming.FieldSignature;
+import com.android.tools.r8.naming.MemberNaming.MethodSignature;
+import com.android.tools.r8.naming.mappinginformation.MappingInformation;
+import com.android.tools.r8.position.Position;
+import com.android.tools.r8.utils.ChainableStringConsumer;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapping from obfuscated class names to class namings that is backed by a memory-mapped binary
+ * mapping file written by {@link BinaryProguardMapWriter}.
+ *
+ * <p>Creating the mapper only checks the header of the file. A class is found by a binary search
+ * of the sorted class index in the file, and its class naming is decoded from the packed class
+ * data the first time the class is looked up.
+ */
+public class BinaryClassNameMapper {
+
+  // The binary mapping file has no line numbers to refer to in diagnostics.
+  private static final int NO_LINE_NUMBER = -1;
+
+  private final ByteBuffer mappingFile;
+  private final DiagnosticsHandler diagnosticsHandler;
+
+  private final int classIndexOffset;
+  private final int numberOfClasses;
+
+  private final Map<Integer, ClassNamingForNameMapper> decodedClasses = new ConcurrentHashMap<>();
+
+  private BinaryClassNameMapper(ByteBuffer mappingFile, DiagnosticsHandler diagnosticsHandler) {
+    this.mappingFile = mappingFile;
+    this.diagnosticsHandler = diagnosticsHandler;
+    // The class index follows the string data, which ends at the offset after the last string.
+    this.classIndexOffset = getStringOffset(mappingFile.getInt(HEADER_SIZE));
+    this.numberOfClasses = mappingFile.getInt(classIndexOffset);
+  }
+
+  public static boolean isBinaryMappingFile(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      while (magic.hasRemaining() && channel.read(magic) >= 0) {}
+      return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+    }
+  }
+
+  public static BinaryClassNameMapper mapperFromFile(
+      Path path, DiagnosticsHandler diagnosticsHandler) throws IOException {
+    ByteBuffer mappingFile;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Mapping file is too large to be memory-mapped: " + path);
+      }
+      mappingFile = channel.map(MapMode.READ_ONLY, 0, size);
+    }
+    if (mappingFile.limit() < HEADER_SIZE + 4 || mappingFile.getInt(0) != MAGIC) {
+      throw new IOException("Not a binary mapping file: " + path);
+    }
+    int version = mappingFile.getInt(4);
+    if (version != VERSION) {
+      throw new IOException(
+          "Unsupported binary mapping file version " + version + " (expected " + VERSION + ")");
+    }
+    return new BinaryClassNameMapper(mappingFile, diagnosticsHandler);
+  }
+
+  public int size() {
+    return numberOfClasses;
+  }
+
+  public ClassNamingForNameMapper getClassNaming(String obfuscatedName) {
+    byte[] name = obfuscatedName.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = numberOfClasses - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareString(getClassIndexEntry(middle), name);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return getOrDecodeClass(middle);
+      }
+    }
+    return null;
+  }
+
+  /** Writes all class namings in the textual Proguard map format, sorted by original name. */
+  public void write(ChainableStringConsumer consumer) {
+    List<ClassNamingForNameMapper> classNamings = new ArrayList<>(numberOfClasses);
+    for (int i = 0; i < numberOfClasses; i++) {
+      classNamings.add(getOrDecodeClass(i));
+    }
+    classNamings.sort(Comparator.comparing(classNaming -> classNaming.originalName));
+    for (ClassNamingForNameMapper classNaming : classNamings) {
+      classNaming.write(consumer);
+    }
+  }
+
+  private int getClassIndexEntry(int index) {
+    return classIndexOffset + 4 + index * 8;
+  }
+
+  private int getStringOffset(int id) {
+    return mappingFile.getInt(HEADER_SIZE + 4 + id * 4);
+  }
+
+  // Compares the UTF-8 bytes of the obfuscated name of the class index entry to the given bytes.
+  private int compareString(int classIndexEntry, byte[] bytes) {
+    int id = mappingFile.getInt(classIndexEntry);
+    int start = getStringOffset(id);
+    int length = getStringOffset(id + 1) - start;
+    for (int i = 0; i < Math.min(length, bytes.length); i++) {
+      int difference = (mappingFile.get(start + i) & 0xFF) - (bytes[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - bytes.length;
+  }
+
+  private String getString(int id) {
+    int start = getStringOffset(id);
+    byte[] bytes = new byte[getStringOffset(id + 1) - start];
+    // Read through a duplicate, since the position of a buffer is shared between threads.
+    ByteBuffer duplicate = mappingFile.duplicate();
+    duplicate.position(start);
+    duplicate.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private ClassNamingForNameMapper getOrDecodeClass(int index) {
+    ClassNamingForNameMapper classNaming = decodedClasses.get(index);
+    if (classNaming == null) {
+      classNaming = decodeClass(index);
+      ClassNamingForNameMapper existing = decodedClasses.putIfAbsent(index, classNaming);
+      if (existing != null) {
+        classNaming = existing;
+      }
+    }
+    return classNaming;
+  }
+
+  // Decodes the class data written by BinaryProguardMapWriter.writeClass.
+  private ClassNamingForNameMapper decodeClass(int index) {
+    int classIndexEntry = getClassIndexEntry(index);
+    String renamedName = getString(mappingFile.getInt(classIndexEntry));
+    ClassDataReader reader = new ClassDataReader(mappingFile.getInt(classIndexEntry + 4));
+    ClassNamingForNameMapper.Builder builder =
+        ClassNamingForNameMapper.builder(renamedName, reader.nextString());
+
+    JsonParser jsonParser = new JsonParser();
+    for (int i = reader.next(); i > 0; i--) {
+      JsonObject object;
+      try {
+        object = jsonParser.parse(reader.nextString()).getAsJsonObject();
+      } catch (JsonSyntaxException e) {
+        // An info message is reported in MappingInformation.
+        object = null;
+      }
+      MappingInformation mappingInformation =
+          MappingInformation.fromJsonObject(object, diagnosticsHandler, NO_LINE_NUMBER);
+      if (mappingInformation != null) {
+        builder.addMappingInformation(mappingInformation, diagnosticsHandler, NO_LINE_NUMBER);
+      }
+    }
+
+    for (int i = reader.next(); i > 0; i--) {
+      FieldSignature signature = reader.nextFieldSignature();
+      builder.addMemberEntry(
+          new MemberNaming(signature, reader.nextFieldSignature(), Position.UNKNOWN));
+    }
+
+    for (int i = reader.next(); i > 0; i--) {
+      MethodSignature signature = reader.nextMethodSignature();
+      builder.addMemberEntry(
+          new MemberNaming(signature, reader.nextMethodSignature(), Position.UNKNOWN));
+    }
+
+    for (int i = reader.next(); i > 0; i--) {
+      int flags = reader.next();
+      Range minifiedRange = null;
+      if ((flags & HAS_MINIFIED_RANGE) != 0) {
+        minifiedRange = new Range(reader.next(), reader.next());
+      }
+      Object originalRange = null;
+      if ((flags & HAS_ORIGINAL_LINE) != 0) {
+        originalRange = reader.next();
+      } else if ((flags & HAS_ORIGINAL_RANGE) != 0) {
+        originalRange = new Range(reader.next(), reader.next());
+      }
+      MethodSignature signature = reader.nextMethodSignature();
+      builder.addMappedRange(minifiedRange, signature, originalRange, reader.nextString());
+    }
+    return builder.build();
+  }
+
+  private class ClassDataReader {
+
+    private int offset;
+
+    private ClassDataReader(int offset) {
+      this.offset = offset;
+    }
+
+    int next() {
+      int value = mappingFile.getInt(offset);
+      offset += 4;
+      return value;
+    }
+
+    String nextString() {
+      return getString(next());
+    }
+
+    FieldSignature nextFieldSignature() {
+      String name = nextString();
+      return new FieldSignature(name, nextString());
+    }
+
+    MethodSignature nextMethodSignature() {
+      String name = nextString();
+      String type = nextString();
+      String[] parameters = new String[next()];
+      for (int i = 0; i < parameters.length; i++) {
+        parameters[i] = nextString();
+      }
+      return new MethodSignature(name, type, parameters);
+    }
+  }
+}
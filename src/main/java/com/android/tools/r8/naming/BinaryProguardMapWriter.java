@@ -0,0 +1,237 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRange;
+import com.android.tools.r8.naming.MemberNaming.FieldSignature;
+import com.android.tools.r8.naming.MemberNaming.MethodSignature;
+import com.android.tools.r8.naming.mappinginformation.MappingInformation;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a {@link ClassNameMapper} in a compact binary format, which {@link BinaryClassNameMapper}
+ * reads without parsing the textual Proguard map.
+ *
+ * <p>All numbers are big-endian 32-bit integers and all offsets are from the start of the file.
+ * The file consists of:
+ *
+ * <pre>
+ *   header:       MAGIC, VERSION
+ *   string table: number of strings n, n + 1 offsets of the strings, UTF-8 bytes of the strings
+ *   class index:  number of classes m, m pairs of (obfuscated name, offset of the class data),
+ *                 sorted by the UTF-8 bytes of the obfuscated name
+ *   class data:   for each class a packed sequence of numbers, see {@link #writeClass}
+ * </pre>
+ *
+ * <p>Strings are referenced by their index in the string table.
+ */
+public class BinaryProguardMapWriter {
+
+  // The first byte is not valid as the first byte of UTF-8 text, such that a binary mapping file
+  // is never mistaken for a textual one.
+  static final int MAGIC = 0x8952384D; // "\x89R8M"
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 8;
+
+  // Flags of a mapped range.
+  static final int HAS_MINIFIED_RANGE = 1;
+  static final int HAS_ORIGINAL_LINE = 2;
+  static final int HAS_ORIGINAL_RANGE = 4;
+
+  private final List<String> strings = new ArrayList<>();
+  private final Object2IntMap<String> stringIds = new Object2IntOpenHashMap<>();
+
+  private BinaryProguardMapWriter() {
+    stringIds.defaultReturnValue(-1);
+  }
+
+  public static void write(ClassNameMapper classNameMapper, Path path) throws IOException {
+    try (OutputStream output = Files.newOutputStream(path)) {
+      write(classNameMapper, output);
+    }
+  }
+
+  public static void write(ClassNameMapper classNameMapper, OutputStream output)
+      throws IOException {
+    new BinaryProguardMapWriter().writeMapper(classNameMapper, output);
+  }
+
+  private void writeMapper(ClassNameMapper classNameMapper, OutputStream output)
+      throws IOException {
+    List<ClassNamingForNameMapper> classNamings =
+        new ArrayList<>(classNameMapper.getClassNameMappings().values());
+    int numberOfClasses = classNamings.size();
+    int[] obfuscatedNames = new int[numberOfClasses];
+    IntArrayList[] classData = new IntArrayList[numberOfClasses];
+    for (int i = 0; i < numberOfClasses; i++) {
+      ClassNamingForNameMapper classNaming = classNamings.get(i);
+      obfuscatedNames[i] = getStringId(classNaming.renamedName);
+      classData[i] = new IntArrayList();
+      writeClass(classNaming, classData[i]);
+    }
+
+    // Encode the strings and lay out the file.
+    byte[][] encodedStrings = new byte[strings.size()][];
+    int stringDataSize = 0;
+    for (int i = 0; i < encodedStrings.length; i++) {
+      encodedStrings[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+      stringDataSize += encodedStrings[i].length;
+    }
+    int stringDataOffset = HEADER_SIZE + 4 + (encodedStrings.length + 1) * 4;
+    int classIndexOffset = stringDataOffset + stringDataSize;
+    int classDataOffset = classIndexOffset + 4 + numberOfClasses * 8;
+
+    // Sort the class index by the bytes of the obfuscated names, such that a lookup can compare
+    // the bytes in the file without decoding them.
+    Integer[] classIndex = new Integer[numberOfClasses];
+    for (int i = 0; i < numberOfClasses; i++) {
+      classIndex[i] = i;
+    }
+    Arrays.sort(
+        classIndex,
+        (x, y) ->
+            compareUnsigned(
+                encodedStrings[obfuscatedNames[x]], encodedStrings[obfuscatedNames[y]]));
+    int[] classOffsets = new int[numberOfClasses];
+    int offset = classDataOffset;
+    for (int i = 0; i < numberOfClasses; i++) {
+      classOffsets[i] = offset;
+      offset += classData[i].size() * 4;
+    }
+
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(encodedStrings.length);
+    int stringOffset = stringDataOffset;
+    for (byte[] encodedString : encodedStrings) {
+      data.writeInt(stringOffset);
+      stringOffset += encodedString.length;
+    }
+    data.writeInt(stringOffset);
+    for (byte[] encodedString : encodedStrings) {
+      data.write(encodedString);
+    }
+    data.writeInt(numberOfClasses);
+    for (int i : classIndex) {
+      data.writeInt(obfuscatedNames[i]);
+      data.writeInt(classOffsets[i]);
+    }
+    for (IntArrayList values : classData) {
+      for (int i = 0; i < values.size(); i++) {
+        data.writeInt(values.getInt(i));
+      }
+    }
+    data.flush();
+  }
+
+  static int compareUnsigned(byte[] x, byte[] y) {
+    int length = Math.min(x.length, y.length);
+    for (int i = 0; i < length; i++) {
+      int difference = (x[i] & 0xFF) - (y[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return x.length - y.length;
+  }
+
+  // The data of a class is:
+  //
+  //   original name
+  //   number of mapping informations, serialized mapping information*
+  //   number of field namings, (original field signature, renamed field signature)*
+  //   number of method namings, (original method signature, renamed method signature)*
+  //   number of mapped ranges, (flags, [minified from, minified to], [original from,
+  //       [original to]], method signature, renamed name)*
+  //
+  // where a field signature is (name, type) and a method signature is (name, return type, number
+  // of parameters, parameter*).
+  private void writeClass(ClassNamingForNameMapper classNaming, IntArrayList data) {
+    data.add(getStringId(classNaming.originalName));
+
+    List<MappingInformation> mappingInformations = new ArrayList<>();
+    classNaming.getAdditionalMappings().values().forEach(mappingInformations::addAll);
+    data.add(mappingInformations.size());
+    for (MappingInformation mappingInformation : mappingInformations) {
+      data.add(getStringId(mappingInformation.serialize()));
+    }
+
+    data.add(classNaming.allFieldNamings().size());
+    for (MemberNaming naming : classNaming.allFieldNamings()) {
+      writeFieldSignature(naming.getOriginalSignature().asFieldSignature(), data);
+      writeFieldSignature(naming.getRenamedSignature().asFieldSignature(), data);
+    }
+
+    data.add(classNaming.allMethodNamings().size());
+    for (MemberNaming naming : classNaming.allMethodNamings()) {
+      writeMethodSignature(naming.getOriginalSignature().asMethodSignature(), data);
+      writeMethodSignature(naming.getRenamedSignature().asMethodSignature(), data);
+    }
+
+    List<MappedRange> mappedRanges = classNaming.getMappedRangesInOrder();
+    data.add(mappedRanges.size());
+    for (MappedRange mappedRange : mappedRanges) {
+      int flags = 0;
+      if (mappedRange.minifiedRange != null) {
+        flags |= HAS_MINIFIED_RANGE;
+      }
+      if (mappedRange.originalRange instanceof Integer) {
+        flags |= HAS_ORIGINAL_LINE;
+      } else if (mappedRange.originalRange instanceof Range) {
+        flags |= HAS_ORIGINAL_RANGE;
+      }
+      data.add(flags);
+      if (mappedRange.minifiedRange != null) {
+        data.add(mappedRange.minifiedRange.from);
+        data.add(mappedRange.minifiedRange.to);
+      }
+      if (mappedRange.originalRange instanceof Integer) {
+        data.add((int) mappedRange.originalRange);
+      } else if (mappedRange.originalRange instanceof Range) {
+        data.add(((Range) mappedRange.originalRange).from);
+        data.add(((Range) mappedRange.originalRange).to);
+      }
+      writeMethodSignature(mappedRange.signature, data);
+      data.add(getStringId(mappedRange.renamedName));
+    }
+  }
+
+  private void writeFieldSignature(FieldSignature signature, IntArrayList data) {
+    data.add(getStringId(signature.name));
+    data.add(getStringId(signature.type));
+  }
+
+  private void writeMethodSignature(MethodSignature signature, IntArrayList data) {
+    data.add(getStringId(signature.name));
+    data.add(getStringId(signature.type));
+    data.add(signature.parameters.length);
+    for (String parameter : signature.parameters) {
+      data.add(getStringId(parameter));
+    }
+  }
+
+  private int getStringId(String string) {
+    int id = stringIds.getInt(string);
+    if (id < 0) {
+      id = strings.size();
+      strings.add(string);
+      stringIds.put(string, id);
+    }
+    return id;
+  }
+}
@@ -58,6 +58,11 @@ public class ClassNameMapper implements ProguardMap {
       return classNamingBuilder;
     }
 
+    public Builder addClassNamingBuilder(ClassNamingForNameMapper.Builder classNamingBuilder) {
+      mapBuilder.put(classNamingBuilder.getRenamedName(), classNamingBuilder);
+      return this;
+    }
+
     @Override
     public ClassNameMapper build() {
       return new ClassNameMapper(mapBuilder.build());
@@ -17,6 +17,7 @@ import com.android.tools.r8.utils.ThrowingConsumer;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -48,6 +49,10 @@ public class ClassNamingForNameMapper implements ClassNaming {
       this.renamedName = renamedName;
     }
 
+    String getRenamedName() {
+      return renamedName;
+    }
+
     @Override
     public ClassNaming.Builder addMemberEntry(MemberNaming entry) {
       if (entry.isMethodNaming()) {
@@ -138,8 +143,16 @@ public class ClassNamingForNameMapper implements ClassNaming {
 
   /** List of MappedRanges that belong to the same renamed name. */
   public static class MappedRangesOfName {
+
+    // Lists with fewer ranges are searched linearly, since building the index does not pay off.
+    private static final int MIN_RANGES_FOR_LINE_INDEX = 16;
+
     private final List<MappedRange> mappedRanges;
 
+    // Lazily built index for the line lookups, or null if not built yet. The index only pays off
+    // for the instances kept per class, see allRangesForLineWithoutIndex for one-off searches.
+    private volatile LineIndex lineIndex;
+
     public MappedRangesOfName(List<MappedRange> mappedRanges) {
       this.mappedRanges = mappedRanges;
     }
@@ -149,6 +162,14 @@ public class ClassNamingForNameMapper implements ClassNaming {
      * b") if no concrete mapping found or null if nothing found.
      */
     public MappedRange firstRangeForLine(int line) {
+      LineIndex index = getLineIndex();
+      if (index != null) {
+        int group = index.findGroup(line);
+        if (group >= 0) {
+          return mappedRanges.get(index.groupStarts[group]);
+        }
+        return index.firstNoLineRange >= 0 ? mappedRanges.get(index.firstNoLineRange) : null;
+      }
       MappedRange bestRange = null;
       for (MappedRange range : mappedRanges) {
         if (range.minifiedRange == null) {
@@ -183,6 +204,26 @@ public class ClassNamingForNameMapper implements ClassNaming {
      * @return The list with all ranges for line.
      */
     public List<MappedRange> allRangesForLine(int line, boolean takeFirstWithNoLineRange) {
+      LineIndex index = getLineIndex();
+      if (index != null) {
+        int group = index.findGroup(line);
+        if (group >= 0) {
+          return mappedRanges.subList(index.groupStarts[group], index.groupEnds[group]);
+        }
+        return takeFirstWithNoLineRange && index.firstNoLineRange >= 0
+            ? Collections.singletonList(mappedRanges.get(index.firstNoLineRange))
+            : Collections.emptyList();
+      }
+      return allRangesForLineWithoutIndex(mappedRanges, line, takeFirstWithNoLineRange);
+    }
+
+    /**
+     * Same as {@link #allRangesForLine(int, boolean)}, but searches {@param mappedRanges} linearly.
+     * Use this for lists that are only searched once, for which building an index does not pay
+     * off.
+     */
+    public static List<MappedRange> allRangesForLineWithoutIndex(
+        List<MappedRange> mappedRanges, int line, boolean takeFirstWithNoLineRange) {
       MappedRange noLineRange = null;
       for (int i = 0; i < mappedRanges.size(); ++i) {
         MappedRange rangeI = mappedRanges.get(i);
@@ -206,6 +247,19 @@ public class ClassNamingForNameMapper implements ClassNaming {
       return noLineRange == null ? Collections.emptyList() : Collections.singletonList(noLineRange);
     }
 
+    private LineIndex getLineIndex() {
+      if (mappedRanges.size() < MIN_RANGES_FOR_LINE_INDEX) {
+        return null;
+      }
+      LineIndex index = lineIndex;
+      if (index == null) {
+        // Building the index is idempotent, so a racing thread at most builds it twice.
+        index = LineIndex.create(mappedRanges);
+        lineIndex = index;
+      }
+      return index.isIndexable() ? index : null;
+    }
+
     public List<MappedRange> getMappedRanges() {
       return mappedRanges;
     }
@@ -230,7 +284,7 @@ public class ClassNamingForNameMapper implements ClassNaming {
     }
   }
 
-  static Builder builder(String renamedName, String originalName) {
+  public static Builder builder(String renamedName, String originalName) {
     return new Builder(renamedName, originalName);
   }
 
@@ -367,6 +421,12 @@ public class ClassNamingForNameMapper implements ClassNaming {
     // Print field member namings.
     forAllFieldNaming(m -> consumer.accept("    ").accept(m.toString()).accept("\n"));
 
+    for (MappedRange range : getMappedRangesInOrder()) {
+      consumer.accept("    ").accept(range.toString()).accept("\n");
+    }
+  }
+
+  List<MappedRange> getMappedRangesInOrder() {
     // Sort MappedRanges by sequence number to restore construction order (original Proguard-map
     // input).
     List<MappedRange> mappedRangesSorted = new ArrayList<>();
@@ -374,9 +434,7 @@ public class ClassNamingForNameMapper implements ClassNaming {
       mappedRangesSorted.addAll(ranges.mappedRanges);
     }
     mappedRangesSorted.sort(Comparator.comparingInt(range -> range.sequenceNumber));
-    for (MappedRange range : mappedRangesSorted) {
-      consumer.accept("    ").accept(range.toString()).accept("\n");
-    }
+    return mappedRangesSorted;
   }
 
   public Map<Signature, List<MappingInformation>> getAdditionalMappings() {
@@ -545,5 +603,102 @@ public class ClassNamingForNameMapper implements ClassNaming {
       return result;
     }
   }
+
+  /**
+   * Index over the minified ranges of a list of {@link MappedRange}s for finding the ranges of a
+   * line by binary search.
+   *
+   * <p>Consecutive mapped ranges with the same minified range, such as the frames of an inlined
+   * position, form a group. The index is only built if the minified ranges of the groups are
+   * disjoint, in which case the first group that contains a line is the only one. Otherwise the
+   * lookups fall back to a linear search, which returns the first match in the mapping order.
+   */
+  private static class LineIndex {
+
+    private static final LineIndex NOT_INDEXABLE =
+        new LineIndex(new int[0], new int[0], new int[0], new int[0], -1);
+
+    // The groups sorted by the start of their minified range. The indices of the mapped ranges of a
+    // group are given by groupStarts (inclusive) and groupEnds (exclusive).
+    private final int[] groupStarts;
+    private final int[] groupEnds;
+    private final int[] groupFroms;
+    private final int[] groupTos;
+    // Index of the first mapped range without a minified range, or -1 if there is none.
+    private final int firstNoLineRange;
+
+    private LineIndex(
+        int[] groupStarts,
+        int[] groupEnds,
+        int[] groupFroms,
+        int[] groupTos,
+        int firstNoLineRange) {
+      this.groupStarts = groupStarts;
+      this.groupEnds = groupEnds;
+      this.groupFroms = groupFroms;
+      this.groupTos = groupTos;
+      this.firstNoLineRange = firstNoLineRange;
+    }
+
+    static LineIndex create(List<MappedRange> mappedRanges) {
+      List<int[]> groups = new ArrayList<>();
+      int firstNoLineRange = -1;
+      int i = 0;
+      while (i < mappedRanges.size()) {
+        Range minifiedRange = mappedRanges.get(i).minifiedRange;
+        int j = i + 1;
+        if (minifiedRange == null) {
+          if (firstNoLineRange < 0) {
+            firstNoLineRange = i;
+          }
+        } else {
+          while (j < mappedRanges.size()
+              && minifiedRange.equals(mappedRanges.get(j).minifiedRange)) {
+            j++;
+          }
+          // A range that contains no lines never matches.
+          if (minifiedRange.from <= minifiedRange.to) {
+            groups.add(new int[] {i, j});
+          }
+        }
+        i = j;
+      }
+      groups.sort(
+          Comparator.comparingInt(group -> mappedRanges.get(group[0]).minifiedRange.from));
+      int[] groupStarts = new int[groups.size()];
+      int[] groupEnds = new int[groups.size()];
+      int[] groupFroms = new int[groups.size()];
+      int[] groupTos = new int[groups.size()];
+      for (int group = 0; group < groups.size(); group++) {
+        Range range = mappedRanges.get(groups.get(group)[0]).minifiedRange;
+        if (group > 0 && range.from <= groupTos[group - 1]) {
+          // The minified ranges overlap, so the first match in the mapping order must be searched.
+          return NOT_INDEXABLE;
+        }
+        groupStarts[group] = groups.get(group)[0];
+        groupEnds[group] = groups.get(group)[1];
+        groupFroms[group] = range.from;
+        groupTos[group] = range.to;
+      }
+      return new LineIndex(groupStarts, groupEnds, groupFroms, groupTos, firstNoLineRange);
+    }
+
+    boolean isIndexable() {
+      return this != NOT_INDEXABLE;
+    }
+
+    /** Returns the group that contains {@param line}, or -1 if there is none. */
+    int findGroup(int line) {
+      int index = Arrays.binarySearch(groupFroms, line);
+      if (index < 0) {
+        // The group before the insertion point is the last group that starts before the line.
+        index = -index - 2;
+        if (index < 0) {
+          return -1;
+        }
+      }
+      return line <= groupTos[index] ? index : -1;
+    }
+  }
 }
 
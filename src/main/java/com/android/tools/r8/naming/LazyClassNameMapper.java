@@ -0,0 +1,225 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.errors.Unreachable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapping from obfuscated class names to class namings that is backed by a memory-mapped mapping
+ * file.
+ *
+ * <p>Creating the mapper only builds an index from the hash code of each obfuscated class name to
+ * the byte range of its class section in the file. The class section of a class is parsed the first
+ * time the class is looked up. Contrary to {@link ClassNameMapper}, the mapper therefore does not
+ * hold the mapping file or the class namings of all classes in memory, and malformed class
+ * sections are only reported when they are looked up.
+ */
+public class LazyClassNameMapper {
+
+  private static final ClassNamingForNameMapper NO_CLASS_NAMING =
+      ClassNamingForNameMapper.builder("", "").build();
+
+  private final ByteBuffer mappingFile;
+  private final DiagnosticsHandler diagnosticsHandler;
+  private final boolean allowEmptyMappedRanges;
+
+  // The start offset of each class section, followed by the size of the mapping file.
+  private final int[] sectionOffsets;
+  // The hash code of the obfuscated name of each class section in the upper 32 bits and the index
+  // of the section in the lower 32 bits, sorted.
+  private final long[] sortedNameHashes;
+
+  private final Map<Integer, ClassNamingForNameMapper> parsedSections = new ConcurrentHashMap<>();
+
+  private LazyClassNameMapper(
+      ByteBuffer mappingFile,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges,
+      int[] sectionOffsets,
+      long[] sortedNameHashes) {
+    this.mappingFile = mappingFile;
+    this.diagnosticsHandler = diagnosticsHandler;
+    this.allowEmptyMappedRanges = allowEmptyMappedRanges;
+    this.sectionOffsets = sectionOffsets;
+    this.sortedNameHashes = sortedNameHashes;
+  }
+
+  public static LazyClassNameMapper mapperFromFile(
+      Path path, DiagnosticsHandler diagnosticsHandler, boolean allowEmptyMappedRanges)
+      throws IOException {
+    ByteBuffer mappingFile;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Mapping file is too large to be memory-mapped: " + path);
+      }
+      mappingFile = channel.map(MapMode.READ_ONLY, 0, size);
+    }
+    return buildIndex(mappingFile, diagnosticsHandler, allowEmptyMappedRanges);
+  }
+
+  private static LazyClassNameMapper buildIndex(
+      ByteBuffer mappingFile,
+      DiagnosticsHandler diagnosticsHandler,
+      boolean allowEmptyMappedRanges) {
+    int size = mappingFile.limit();
+    int[] sectionOffsets = new int[16];
+    long[] nameHashes = new long[16];
+    int numberOfSections = 0;
+    int lineStart = hasByteOrderMark(mappingFile) ? 3 : 0;
+    while (lineStart < size) {
+      int lineEnd = lineStart;
+      while (lineEnd < size && mappingFile.get(lineEnd) != '\n') {
+        lineEnd++;
+      }
+      String obfuscatedName = parseObfuscatedClassName(mappingFile, lineStart, lineEnd);
+      if (obfuscatedName != null) {
+        if (numberOfSections == sectionOffsets.length) {
+          sectionOffsets = Arrays.copyOf(sectionOffsets, numberOfSections * 2);
+          nameHashes = Arrays.copyOf(nameHashes, numberOfSections * 2);
+        }
+        sectionOffsets[numberOfSections] = lineStart;
+        nameHashes[numberOfSections] =
+            ((long) obfuscatedName.hashCode() << 32) | numberOfSections;
+        numberOfSections++;
+      }
+      lineStart = lineEnd + 1;
+    }
+    sectionOffsets = Arrays.copyOf(sectionOffsets, numberOfSections + 1);
+    sectionOffsets[numberOfSections] = size;
+    nameHashes = Arrays.copyOf(nameHashes, numberOfSections);
+    Arrays.sort(nameHashes);
+    return new LazyClassNameMapper(
+        mappingFile, diagnosticsHandler, allowEmptyMappedRanges, sectionOffsets, nameHashes);
+  }
+
+  private static boolean hasByteOrderMark(ByteBuffer mappingFile) {
+    return mappingFile.limit() >= 3
+        && (mappingFile.get(0) & 0xFF) == 0xEF
+        && (mappingFile.get(1) & 0xFF) == 0xBB
+        && (mappingFile.get(2) & 0xFF) == 0xBF;
+  }
+
+  // Returns the obfuscated name if the line is a class mapping 'original -> obfuscated:'. Member
+  // mappings are indented, and comments, including mapping information, are never class mappings.
+  private static String parseObfuscatedClassName(ByteBuffer mappingFile, int start, int end) {
+    if (start == end) {
+      return null;
+    }
+    byte first = mappingFile.get(start);
+    if (first == ' ' || first == '\t' || first == '\r' || first == '#') {
+      return null;
+    }
+    int arrow = -1;
+    for (int i = start; i < end - 1; i++) {
+      if (mappingFile.get(i) == '-' && mappingFile.get(i + 1) == '>') {
+        arrow = i;
+        break;
+      }
+    }
+    if (arrow < 0) {
+      return null;
+    }
+    int nameStart = arrow + 2;
+    int nameEnd = end;
+    while (nameEnd > nameStart && isWhitespace(mappingFile.get(nameEnd - 1))) {
+      nameEnd--;
+    }
+    if (nameEnd == nameStart || mappingFile.get(nameEnd - 1) != ':') {
+      return null;
+    }
+    nameEnd--;
+    while (nameStart < nameEnd && isWhitespace(mappingFile.get(nameStart))) {
+      nameStart++;
+    }
+    while (nameEnd > nameStart && isWhitespace(mappingFile.get(nameEnd - 1))) {
+      nameEnd--;
+    }
+    return decode(mappingFile, nameStart, nameEnd);
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\r';
+  }
+
+  private static String decode(ByteBuffer mappingFile, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    // Read through a duplicate, since the position of a buffer is shared between threads.
+    ByteBuffer duplicate = mappingFile.duplicate();
+    duplicate.position(start);
+    duplicate.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public int size() {
+    return sortedNameHashes.length;
+  }
+
+  public ClassNamingForNameMapper getClassNaming(String obfuscatedName) {
+    long hash = (long) obfuscatedName.hashCode() << 32;
+    for (int i = lowerBound(hash); i < sortedNameHashes.length; i++) {
+      long entry = sortedNameHashes[i];
+      if ((entry & 0xFFFFFFFF00000000L) != hash) {
+        break;
+      }
+      ClassNamingForNameMapper classNaming = getOrParseSection((int) entry);
+      if (classNaming.renamedName.equals(obfuscatedName)) {
+        return classNaming;
+      }
+    }
+    return null;
+  }
+
+  private int lowerBound(long hash) {
+    int low = 0;
+    int high = sortedNameHashes.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedNameHashes[middle] < hash) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private ClassNamingForNameMapper getOrParseSection(int section) {
+    ClassNamingForNameMapper classNaming = parsedSections.get(section);
+    if (classNaming == null) {
+      classNaming = parseSection(section);
+      ClassNamingForNameMapper existing = parsedSections.putIfAbsent(section, classNaming);
+      if (existing != null) {
+        classNaming = existing;
+      }
+    }
+    return classNaming;
+  }
+
+  private ClassNamingForNameMapper parseSection(int section) {
+    String contents = decode(mappingFile, sectionOffsets[section], sectionOffsets[section + 1]);
+    ClassNameMapper mapper;
+    try {
+      mapper =
+          ClassNameMapper.mapperFromString(contents, diagnosticsHandler, allowEmptyMappedRanges);
+    } catch (IOException e) {
+      throw new Unreachable(e);
+    }
+    assert mapper.getClassNameMappings().size() <= 1;
+    return mapper.isEmpty()
+        ? NO_CLASS_NAMING
+        : mapper.getClassNameMappings().values().iterator().next();
+  }
+}
@@ -7,8 +7,10 @@ import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.StringConsumer;
 import com.android.tools.r8.Version;
 import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.utils.Box;
 import com.android.tools.r8.utils.ChainableStringConsumer;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Reporter;
@@ -16,6 +18,7 @@ import com.android.tools.r8.utils.VersionProperties;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import java.io.IOException;
+import java.nio.file.Path;
 
 public class ProguardMapSupplier {
 
@@ -65,9 +68,20 @@ public class ProguardMapSupplier {
     writeMarker(id);
     writeBody();
     ExceptionUtils.withFinishedResourceHandler(reporter, consumer);
+    if (options.binaryProguardMapOutput != null) {
+      writeBinaryProguardMap(options.binaryProguardMapOutput);
+    }
     return id;
   }
 
+  private void writeBinaryProguardMap(Path path) {
+    try {
+      BinaryProguardMapWriter.write(classNameMapper, path);
+    } catch (IOException e) {
+      reporter.error(new ExceptionDiagnostic(e, new PathOrigin(path)));
+    }
+  }
+
   private ProguardMapId computeProguardMapId() {
     ProguardMapIdBuilder builder = new ProguardMapIdBuilder();
     classNameMapper.write(builder);
@@ -75,7 +89,9 @@ public class ProguardMapSupplier {
   }
 
   private void writeBody() {
-    classNameMapper.write(new ProguardMapWriter());
+    ProguardMapWriter writer = new ProguardMapWriter();
+    classNameMapper.write(writer);
+    writer.flush();
   }
 
   private void writeMarker(ProguardMapId id) {
@@ -124,13 +140,30 @@ public class ProguardMapSupplier {
     }
   }
 
+  // Buffers the many small strings of the map and passes them on to the consumer in chunks of
+  // bounded size, such that the map is never materialized as a single string.
   class ProguardMapWriter implements ChainableStringConsumer {
 
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+
     @Override
     public ProguardMapWriter accept(String string) {
-      consumer.accept(string, reporter);
+      buffer.append(string);
+      // Only flush at the end of a line, such that each chunk consists of complete lines.
+      if (buffer.length() >= CHUNK_SIZE && string.endsWith("\n")) {
+        flush();
+      }
       return this;
     }
+
+    void flush() {
+      if (buffer.length() > 0) {
+        consumer.accept(buffer.toString(), reporter);
+        buffer.setLength(0);
+      }
+    }
   }
 
   static class ProguardMapChecker implements StringConsumer {
@@ -5,9 +5,11 @@
 package com.android.tools.r8.retrace;
 
 import com.android.tools.r8.Keep;
+import com.android.tools.r8.retrace.internal.ProguardMapProducerFromPath;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
 
 /** Interface for producing a string format of a mapping file. */
 @Keep
@@ -27,4 +29,18 @@ public interface ProguardMapProducer {
       }
     };
   }
+
+  /**
+   * Create a producer for a mapping file on disk.
+   *
+   * <p>A retracer created from the producer memory-maps the file and only parses the mappings of
+   * the classes that are retraced, which avoids reading all of a large mapping file into memory.
+   *
+   * <p>The file can also be a binary mapping file, see {@link
+   * com.android.tools.r8.R8Command.Builder#setBinaryProguardMapOutputPath}. Retracing from a binary
+   * mapping file does not parse the mapping at all.
+   */
+  static ProguardMapProducer fromPath(Path path) {
+    return new ProguardMapProducerFromPath(path);
+  }
 }
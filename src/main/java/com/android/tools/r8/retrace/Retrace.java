@@ -10,6 +10,7 @@ import com.android.tools.r8.Diagnostic;
 import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.Keep;
 import com.android.tools.r8.Version;
+import com.android.tools.r8.naming.BinaryClassNameMapper;
 import com.android.tools.r8.retrace.RetraceCommand.Builder;
 import com.android.tools.r8.retrace.internal.PlainStackTraceLineParser;
 import com.android.tools.r8.retrace.internal.RetraceAbortException;
@@ -123,6 +124,15 @@ public class Retrace<T, ST extends StackTraceElementProxy<T, ST>> {
           new StringDiagnostic(String.format("Could not find mapping file '%s'.", mappingPath)));
       throw new RetraceAbortException();
     }
+    try {
+      if (BinaryClassNameMapper.isBinaryMappingFile(path)) {
+        return ProguardMapProducer.fromPath(path);
+      }
+    } catch (IOException e) {
+      diagnosticsHandler.error(
+          new StringDiagnostic(String.format("Could not open mapping file '%s'.", mappingPath)));
+      throw new RetraceAbortException();
+    }
     return () -> {
       try {
         return new String(Files.readAllBytes(path));
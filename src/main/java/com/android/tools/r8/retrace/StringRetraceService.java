@@ -0,0 +1,347 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.Keep;
+import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.base.Suppliers;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe retrace engine for long-running services that retrace string stack traces against
+ * many mapping files.
+ *
+ * <p>Mapping files are identified by an id, such as the pg_map_id of the build that produced the
+ * stack trace, and are obtained from a mapping provider the first time they are needed. The most
+ * recently used mappings stay resident, such that subsequent stack traces for the same build do
+ * not read the mapping again. Batches of stack traces are retraced in parallel on the executor
+ * service of the engine.
+ */
+@Keep
+public class StringRetraceService {
+
+  private final Function<String, ProguardMapProducer> mappingProvider;
+  private final String regularExpression;
+  private final boolean isVerbose;
+  private final DiagnosticsHandler diagnosticsHandler;
+  private final ExecutorService executorService;
+  private final int maximumNumberOfResidentMappings;
+
+  // Access ordered, such that the least recently used mapping is evicted first.
+  private final Map<String, Supplier<StringRetrace>> residentMappings;
+
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong retracedStackTraces = new AtomicLong();
+  private final AtomicLong retracedLines = new AtomicLong();
+  private final AtomicLong retraceTimeNanos = new AtomicLong();
+
+  private StringRetraceService(
+      Function<String, ProguardMapProducer> mappingProvider,
+      String regularExpression,
+      boolean isVerbose,
+      DiagnosticsHandler diagnosticsHandler,
+      ExecutorService executorService,
+      int maximumNumberOfResidentMappings) {
+    this.mappingProvider = mappingProvider;
+    this.regularExpression = regularExpression;
+    this.isVerbose = isVerbose;
+    this.diagnosticsHandler = diagnosticsHandler;
+    this.executorService = executorService;
+    this.maximumNumberOfResidentMappings = maximumNumberOfResidentMappings;
+    this.residentMappings =
+        new LinkedHashMap<String, Supplier<StringRetrace>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Supplier<StringRetrace>> eldest) {
+            if (size() > StringRetraceService.this.maximumNumberOfResidentMappings) {
+              evictions.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * Obtain a builder for a retrace service.
+   *
+   * @param mappingProvider Function from a mapping id to the producer of the mapping.
+   * @param executorService Executor service used for retracing batches of stack traces.
+   */
+  public static Builder builder(
+      Function<String, ProguardMapProducer> mappingProvider, ExecutorService executorService) {
+    return new Builder(mappingProvider, executorService);
+  }
+
+  /**
+   * Retraces a single stack trace with the mapping identified by {@param mappingId}.
+   *
+   * @return the retraced stack trace
+   */
+  public List<String> retrace(String mappingId, List<String> stackTrace) {
+    StringRetrace stringRetrace = getStringRetrace(mappingId);
+    long start = System.nanoTime();
+    List<String> result = stringRetrace.retrace(stackTrace);
+    recordRetrace(stackTrace.size(), System.nanoTime() - start);
+    return result;
+  }
+
+  /**
+   * Retraces a batch of stack traces with the mapping identified by {@param mappingId}. The stack
+   * traces are retraced in parallel.
+   *
+   * @return the retraced stack traces in the order of {@param stackTraces}
+   */
+  public List<List<String>> retraceAll(String mappingId, Iterable<List<String>> stackTraces) {
+    StringRetrace stringRetrace = getStringRetrace(mappingId);
+    try {
+      return new ArrayList<>(
+          ThreadUtils.processItemsWithResults(
+              stackTraces,
+              stackTrace -> {
+                long start = System.nanoTime();
+                List<String> result = stringRetrace.retrace(stackTrace);
+                recordRetrace(stackTrace.size(), System.nanoTime() - start);
+                return result;
+              },
+              executorService));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /** Removes the mapping identified by {@param mappingId} from the resident mappings. */
+  public void evict(String mappingId) {
+    synchronized (residentMappings) {
+      if (residentMappings.remove(mappingId) != null) {
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  private StringRetrace getStringRetrace(String mappingId) {
+    Supplier<StringRetrace> stringRetrace;
+    synchronized (residentMappings) {
+      stringRetrace = residentMappings.get(mappingId);
+      if (stringRetrace == null) {
+        cacheMisses.incrementAndGet();
+        // The mapping is read outside the lock, such that other mappings remain available while
+        // it is being read. Concurrent requests for the same mapping wait for the first reader.
+        stringRetrace = Suppliers.memoize(() -> createStringRetrace(mappingId));
+        residentMappings.put(mappingId, stringRetrace);
+      } else {
+        cacheHits.incrementAndGet();
+      }
+    }
+    try {
+      return stringRetrace.get();
+    } catch (RuntimeException e) {
+      // Do not keep a mapping that failed to load, such that a later request retries.
+      synchronized (residentMappings) {
+        residentMappings.remove(mappingId, stringRetrace);
+      }
+      throw e;
+    }
+  }
+
+  private StringRetrace createStringRetrace(String mappingId) {
+    ProguardMapProducer proguardMapProducer = mappingProvider.apply(mappingId);
+    if (proguardMapProducer == null) {
+      throw new IllegalArgumentException("No mapping for id '" + mappingId + "'");
+    }
+    return StringRetrace.create(
+        RetraceOptions.builder(diagnosticsHandler)
+            .setProguardMapProducer(proguardMapProducer)
+            .setRegularExpression(regularExpression)
+            .setVerbose(isVerbose)
+            .build());
+  }
+
+  private void recordRetrace(int lines, long nanos) {
+    retracedStackTraces.incrementAndGet();
+    retracedLines.addAndGet(lines);
+    retraceTimeNanos.addAndGet(nanos);
+  }
+
+  /** Returns a snapshot of the statistics of this service. */
+  public Statistics getStatistics() {
+    int numberOfResidentMappings;
+    synchronized (residentMappings) {
+      numberOfResidentMappings = residentMappings.size();
+    }
+    return new Statistics(
+        cacheHits.get(),
+        cacheMisses.get(),
+        evictions.get(),
+        numberOfResidentMappings,
+        retracedStackTraces.get(),
+        retracedLines.get(),
+        retraceTimeNanos.get());
+  }
+
+  /** Statistics on the mapping cache and throughput of a retrace service. */
+  @Keep
+  public static class Statistics {
+
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final long evictions;
+    private final int numberOfResidentMappings;
+    private final long retracedStackTraces;
+    private final long retracedLines;
+    private final long retraceTimeNanos;
+
+    private Statistics(
+        long cacheHits,
+        long cacheMisses,
+        long evictions,
+        int numberOfResidentMappings,
+        long retracedStackTraces,
+        long retracedLines,
+        long retraceTimeNanos) {
+      this.cacheHits = cacheHits;
+      this.cacheMisses = cacheMisses;
+      this.evictions = evictions;
+      this.numberOfResidentMappings = numberOfResidentMappings;
+      this.retracedStackTraces = retracedStackTraces;
+      this.retracedLines = retracedLines;
+      this.retraceTimeNanos = retraceTimeNanos;
+    }
+
+    public long getCacheHits() {
+      return cacheHits;
+    }
+
+    public long getCacheMisses() {
+      return cacheMisses;
+    }
+
+    public double getCacheHitRate() {
+      long lookups = cacheHits + cacheMisses;
+      return lookups == 0 ? 0 : (double) cacheHits / lookups;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public int getNumberOfResidentMappings() {
+      return numberOfResidentMappings;
+    }
+
+    public long getRetracedStackTraces() {
+      return retracedStackTraces;
+    }
+
+    public long getRetracedLines() {
+      return retracedLines;
+    }
+
+    /** Total time spent retracing, summed over all threads, excluding reading mappings. */
+    public long getRetraceTimeNanos() {
+      return retraceTimeNanos;
+    }
+
+    /** Number of stack trace lines retraced per second of retrace time on a single thread. */
+    public double getLinesPerSecond() {
+      return retraceTimeNanos == 0 ? 0 : retracedLines * 1e9 / retraceTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "cache hits: "
+          + cacheHits
+          + ", cache misses: "
+          + cacheMisses
+          + ", evictions: "
+          + evictions
+          + ", resident mappings: "
+          + numberOfResidentMappings
+          + ", stack traces: "
+          + retracedStackTraces
+          + ", lines: "
+          + retracedLines
+          + ", lines/s: "
+          + (long) getLinesPerSecond();
+    }
+  }
+
+  @Keep
+  public static class Builder {
+
+    private final Function<String, ProguardMapProducer> mappingProvider;
+    private final ExecutorService executorService;
+    private DiagnosticsHandler diagnosticsHandler = new DiagnosticsHandler() {};
+    private String regularExpression = StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION;
+    private boolean isVerbose;
+    private int maximumNumberOfResidentMappings = 16;
+
+    private Builder(
+        Function<String, ProguardMapProducer> mappingProvider, ExecutorService executorService) {
+      this.mappingProvider = mappingProvider;
+      this.executorService = executorService;
+    }
+
+    public Builder setDiagnosticsHandler(DiagnosticsHandler diagnosticsHandler) {
+      this.diagnosticsHandler = diagnosticsHandler;
+      return this;
+    }
+
+    /** Set a regular expression for parsing the stack trace lines, see {@link RetraceOptions}. */
+    public Builder setRegularExpression(String regularExpression) {
+      this.regularExpression = regularExpression;
+      return this;
+    }
+
+    /** Set if the produced stack traces should have additional information. */
+    public Builder setVerbose(boolean verbose) {
+      this.isVerbose = verbose;
+      return this;
+    }
+
+    /** Set the maximum number of mappings that are kept in memory. */
+    public Builder setMaximumNumberOfResidentMappings(int maximumNumberOfResidentMappings) {
+      this.maximumNumberOfResidentMappings = maximumNumberOfResidentMappings;
+      return this;
+    }
+
+    public StringRetraceService build() {
+      if (mappingProvider == null) {
+        throw new RuntimeException("Mapping provider not specified");
+      }
+      if (executorService == null) {
+        throw new RuntimeException("ExecutorService not specified");
+      }
+      if (diagnosticsHandler == null) {
+        throw new RuntimeException("DiagnosticsHandler not specified");
+      }
+      if (maximumNumberOfResidentMappings <= 0) {
+        throw new RuntimeException("The maximum number of resident mappings must be positive");
+      }
+      return new StringRetraceService(
+          mappingProvider,
+          regularExpression,
+          isVerbose,
+          diagnosticsHandler,
+          executorService,
+          maximumNumberOfResidentMappings);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.internal;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.naming.BinaryClassNameMapper;
+import com.android.tools.r8.retrace.ProguardMapProducer;
+import com.android.tools.r8.utils.ChainableStringConsumer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Producer of a mapping file on disk. The retracer memory-maps the file and only parses the
+ * mappings of the classes that are being retraced.
+ *
+ * <p>The file is either a textual Proguard map or a binary mapping file written by R8, see {@link
+ * BinaryClassNameMapper}.
+ */
+public class ProguardMapProducerFromPath implements ProguardMapProducer {
+
+  private final Path path;
+
+  public ProguardMapProducerFromPath(Path path) {
+    this.path = path;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public String get() throws IOException {
+    if (BinaryClassNameMapper.isBinaryMappingFile(path)) {
+      StringBuilder builder = new StringBuilder();
+      BinaryClassNameMapper.mapperFromFile(path, new DiagnosticsHandler() {})
+          .write(ChainableStringConsumer.wrap(builder::append));
+      return builder.toString();
+    }
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+}
@@ -68,7 +68,7 @@ public class RetraceMethodResultImpl implements RetraceMethodResult {
         continue;
       }
       List<MappedRange> ranges =
-          new MappedRangesOfName(mappedRange.getSecond()).allRangesForLine(position, false);
+          MappedRangesOfName.allRangesForLineWithoutIndex(mappedRange.getSecond(), position, false);
       boolean hasAddedRanges = false;
       if (!ranges.isEmpty()) {
         narrowedRanges.add(new Pair<>(mappedRange.getFirst(), ranges));
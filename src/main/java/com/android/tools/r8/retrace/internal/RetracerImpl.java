@@ -5,7 +5,10 @@
 package com.android.tools.r8.retrace.internal;
 
 import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.naming.BinaryClassNameMapper;
 import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
+import com.android.tools.r8.naming.LazyClassNameMapper;
 import com.android.tools.r8.references.ClassReference;
 import com.android.tools.r8.references.FieldReference;
 import com.android.tools.r8.references.MethodReference;
@@ -13,27 +16,45 @@ import com.android.tools.r8.references.TypeReference;
 import com.android.tools.r8.retrace.InvalidMappingFileException;
 import com.android.tools.r8.retrace.ProguardMapProducer;
 import com.android.tools.r8.retrace.Retracer;
+import java.nio.file.Path;
+import java.util.function.Function;
 
 /** A default implementation for the retrace api using the ClassNameMapper defined in R8. */
 public class RetracerImpl implements Retracer {
 
-  private final ClassNameMapper classNameMapper;
+  private final Function<String, ClassNamingForNameMapper> classNamingLookup;
 
-  private RetracerImpl(ClassNameMapper classNameMapper) {
-    this.classNameMapper = classNameMapper;
-    assert classNameMapper != null;
+  private RetracerImpl(Function<String, ClassNamingForNameMapper> classNamingLookup) {
+    assert classNamingLookup != null;
+    this.classNamingLookup = classNamingLookup;
   }
 
   public static RetracerImpl create(
       ProguardMapProducer proguardMapProducer, DiagnosticsHandler diagnosticsHandler) {
     if (proguardMapProducer instanceof DirectClassNameMapperProguardMapProducer) {
-      return new RetracerImpl(
-          ((DirectClassNameMapperProguardMapProducer) proguardMapProducer).getClassNameMapper());
+      ClassNameMapper classNameMapper =
+          ((DirectClassNameMapperProguardMapProducer) proguardMapProducer).getClassNameMapper();
+      return new RetracerImpl(classNameMapper::getClassNaming);
+    }
+    if (proguardMapProducer instanceof ProguardMapProducerFromPath) {
+      Path path = ((ProguardMapProducerFromPath) proguardMapProducer).getPath();
+      try {
+        if (BinaryClassNameMapper.isBinaryMappingFile(path)) {
+          BinaryClassNameMapper classNameMapper =
+              BinaryClassNameMapper.mapperFromFile(path, diagnosticsHandler);
+          return new RetracerImpl(classNameMapper::getClassNaming);
+        }
+        LazyClassNameMapper classNameMapper =
+            LazyClassNameMapper.mapperFromFile(path, diagnosticsHandler, true);
+        return new RetracerImpl(classNameMapper::getClassNaming);
+      } catch (Throwable throwable) {
+        throw new InvalidMappingFileException(throwable);
+      }
     }
     try {
       ClassNameMapper classNameMapper =
           ClassNameMapper.mapperFromString(proguardMapProducer.get(), diagnosticsHandler, true);
-      return new RetracerImpl(classNameMapper);
+      return new RetracerImpl(classNameMapper::getClassNaming);
     } catch (Throwable throwable) {
       throw new InvalidMappingFileException(throwable);
     }
@@ -60,7 +81,7 @@ public class RetracerImpl implements Retracer {
   @Override
   public RetraceClassResultImpl retraceClass(ClassReference classReference) {
     return RetraceClassResultImpl.create(
-        classReference, classNameMapper.getClassNaming(classReference.getTypeName()), this);
+        classReference, classNamingLookup.apply(classReference.getTypeName()), this);
   }
 
   @Override
@@ -412,7 +412,7 @@ public class Enqueuer {
     this.mode = mode;
     this.options = options;
     this.useRegistryFactory = createUseRegistryFactory();
-    this.workList = EnqueuerWorklist.createWorklist(this);
+    this.workList = EnqueuerWorklist.createWorklist(this, options);
     this.proguardCompatibilityActionsBuilder =
         mode.isInitialTreeShaking() && options.forceProguardCompatibility
             ? ProguardCompatibilityActions.builder()
@@ -3430,14 +3430,22 @@ public class Enqueuer {
     try {
       while (true) {
         long numberOfLiveItems = getNumberOfLiveItems();
+        timing.begin("Process worklist");
         while (!workList.isEmpty()) {
+          workList.parsePendingCodeConcurrently(executorService);
           EnqueuerAction action = workList.poll();
+          if (options.tracer.isEnabled()) {
+            options.tracer.increment("enqueuer." + action.getClass().getSimpleName());
+          }
           action.run(this);
         }
+        workList.clearPendingCodeParsing();
+        timing.end();
 
         // Continue fix-point processing if -if rules are enabled by items that newly became live.
         long numberOfLiveItemsAfterProcessing = getNumberOfLiveItems();
         if (numberOfLiveItemsAfterProcessing > numberOfLiveItems) {
+          timing.begin("Evaluate if rules");
           // Build the mapping of active if rules. We use a single collection of if-rules to allow
           // removing if rules that have a constant sequent keep rule when they materialize.
           if (activeIfRules == null) {
@@ -3460,6 +3468,7 @@ public class Enqueuer {
                   consequentSetBuilder);
           addConsequentRootSet(ifRuleEvaluator.run(), false);
           assert getNumberOfLiveItems() == numberOfLiveItemsAfterProcessing;
+          timing.end();
           if (!workList.isEmpty()) {
             continue;
           }
@@ -3468,8 +3477,10 @@ public class Enqueuer {
         // Continue fix-point processing while there are additional work items to ensure items that
         // are passed to Java reflections are traced.
         if (!pendingReflectiveUses.isEmpty()) {
+          timing.begin("Handle reflective uses");
           pendingReflectiveUses.forEach(this::handleReflectiveBehavior);
           pendingReflectiveUses.clear();
+          timing.end();
         }
         if (!workList.isEmpty()) {
           continue;
@@ -3477,7 +3488,9 @@ public class Enqueuer {
 
         // Notify each analysis that a fixpoint has been reached, and give each analysis an
         // opportunity to add items to the worklist.
+        timing.begin("Notify fixpoint");
         analyses.forEach(analysis -> analysis.notifyFixpoint(this, workList, timing));
+        timing.end();
         if (!workList.isEmpty()) {
           continue;
         }
@@ -3489,7 +3502,9 @@ public class Enqueuer {
           continue;
         }
 
+        timing.begin("Synthesize");
         synthesize();
+        timing.end();
         if (!workList.isEmpty()) {
           continue;
         }
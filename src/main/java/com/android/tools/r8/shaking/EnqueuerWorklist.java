@@ -4,18 +4,27 @@
 
 package com.android.tools.r8.shaking;
 
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.DexField;
 import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.LazyCfCode;
 import com.android.tools.r8.graph.ProgramDefinition;
 import com.android.tools.r8.graph.ProgramField;
 import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.shaking.GraphReporter.KeepReasonWitness;
 import com.android.tools.r8.utils.Action;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.Sets;
 import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 public class EnqueuerWorklist {
 
@@ -282,12 +291,21 @@ public class EnqueuerWorklist {
   private final Enqueuer enqueuer;
   private final Queue<EnqueuerAction> queue = new ArrayDeque<>();
 
-  private EnqueuerWorklist(Enqueuer enqueuer) {
+  // The lazily parsed code of the methods that are about to be traced, grouped by their holder.
+  // Only populated when code parsing is done concurrently.
+  private final Map<DexProgramClass, Set<LazyCfCode>> pendingCodeParsing = new IdentityHashMap<>();
+  private final int parallelCodeParsingThreshold;
+
+  private EnqueuerWorklist(Enqueuer enqueuer, InternalOptions options) {
     this.enqueuer = enqueuer;
+    this.parallelCodeParsingThreshold =
+        options.enableParallelCodeParsingInEnqueuer
+            ? options.parallelCodeParsingInEnqueuerThreshold
+            : -1;
   }
 
-  public static EnqueuerWorklist createWorklist(Enqueuer enqueuer) {
-    return new EnqueuerWorklist(enqueuer);
+  public static EnqueuerWorklist createWorklist(Enqueuer enqueuer, InternalOptions options) {
+    return new EnqueuerWorklist(enqueuer, options);
   }
 
   public boolean isEmpty() {
@@ -298,6 +316,43 @@ public class EnqueuerWorklist {
     return queue.poll();
   }
 
+  /**
+   * Parses the code of the methods that are enqueued for tracing on the given executor service,
+   * if the number of classes with unparsed code has reached the threshold.
+   *
+   * <p>This does not change the order in which the actions are processed. It only moves the
+   * class file parsing, which does not depend on the state of the {@link Enqueuer}, off the thread
+   * that drains the worklist.
+   */
+  void parsePendingCodeConcurrently(ExecutorService executorService) throws ExecutionException {
+    if (parallelCodeParsingThreshold < 0
+        || pendingCodeParsing.size() < parallelCodeParsingThreshold) {
+      return;
+    }
+    // The code of the methods of a class is parsed in a single pass over the class file. Each class
+    // has its own reparse context, so distinct classes can be parsed concurrently.
+    ThreadUtils.processItems(pendingCodeParsing.values(), LazyCfCode::parseCode, executorService);
+    pendingCodeParsing.clear();
+  }
+
+  /** Called when the worklist has been drained, since all enqueued code has then been parsed. */
+  void clearPendingCodeParsing() {
+    assert queue.isEmpty();
+    pendingCodeParsing.clear();
+  }
+
+  private void recordPendingCodeParsing(ProgramMethod method) {
+    if (parallelCodeParsingThreshold < 0) {
+      return;
+    }
+    Code code = method.getDefinition().getCode();
+    if (code != null && code.isLazyCfCode()) {
+      pendingCodeParsing
+          .computeIfAbsent(method.getHolder(), ignore -> Sets.newIdentityHashSet())
+          .add(code.asLazyCfCode());
+    }
+  }
+
   boolean enqueueAssertAction(Action assertion) {
     if (InternalOptions.assertionsEnabled()) {
       queue.add(new AssertAction(assertion));
@@ -347,6 +402,7 @@ public class EnqueuerWorklist {
       ProgramMethod method, ProgramDefinition context, KeepReason reason) {
     if (enqueuer.addLiveMethod(method, reason)) {
       queue.add(new MarkMethodLiveAction(method, context));
+      recordPendingCodeParsing(method);
       if (!enqueuer.isMethodTargeted(method)) {
         queue.add(new TraceMethodDefinitionExcludingCodeAction(method));
       }
@@ -365,6 +421,7 @@ public class EnqueuerWorklist {
 
   public void enqueueTraceCodeAction(ProgramMethod method) {
     queue.add(new TraceCodeAction(method));
+    recordPendingCodeParsing(method);
   }
 
   public void enqueueTraceConstClassAction(DexType type, ProgramMethod context) {
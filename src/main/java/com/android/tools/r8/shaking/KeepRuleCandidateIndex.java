@@ -0,0 +1,123 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import com.android.tools.r8.graph.DexAnnotation;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the program classes that gives the candidate classes of a keep rule without matching
+ * the rule against each program class.
+ *
+ * <p>The index has the program classes sorted by their source name, such that the classes whose
+ * name starts with the literal prefix of a class name pattern form a contiguous range, and a map
+ * from each annotation type to the program classes annotated with it. The candidates are always
+ * returned in the order of the program classes of the application.
+ */
+class KeepRuleCandidateIndex {
+
+  private final DexProgramClass[] classes;
+  // The source names of the classes in sorted order, and the index of each name in `classes`.
+  private final String[] sortedNames;
+  private final int[] sortedNameIndices;
+  private final Map<DexType, List<DexProgramClass>> classesByAnnotation = new IdentityHashMap<>();
+
+  KeepRuleCandidateIndex(Iterable<DexProgramClass> programClasses) {
+    List<DexProgramClass> classList = new ArrayList<>();
+    for (DexProgramClass clazz : programClasses) {
+      classList.add(clazz);
+      for (DexAnnotation annotation : clazz.annotations().annotations) {
+        classesByAnnotation
+            .computeIfAbsent(annotation.getAnnotationType(), ignore -> new ArrayList<>())
+            .add(clazz);
+      }
+    }
+    classes = classList.toArray(DexProgramClass.EMPTY_ARRAY);
+    Integer[] order = new Integer[classes.length];
+    String[] names = new String[classes.length];
+    for (int i = 0; i < classes.length; i++) {
+      order[i] = i;
+      names[i] = classes[i].type.toSourceString();
+    }
+    Arrays.sort(order, (x, y) -> names[x].compareTo(names[y]));
+    sortedNames = new String[classes.length];
+    sortedNameIndices = new int[classes.length];
+    for (int i = 0; i < classes.length; i++) {
+      sortedNames[i] = names[order[i]];
+      sortedNameIndices[i] = order[i];
+    }
+  }
+
+  /**
+   * Returns the program classes that may match {@param rule}, or {@param defaultValue} if the
+   * index cannot narrow down the candidates of the rule.
+   */
+  Iterable<DexProgramClass> getCandidates(
+      ProguardConfigurationRule rule, Iterable<DexProgramClass> defaultValue) {
+    List<DexProgramClass> candidates = null;
+    // A class must have all the annotations of the rule, so any annotation with a specific type
+    // gives an upper bound on the candidates.
+    for (ProguardTypeMatcher annotation : rule.getClassAnnotations()) {
+      DexType annotationType = annotation.getSpecificType();
+      if (annotationType != null) {
+        List<DexProgramClass> annotatedClasses =
+            classesByAnnotation.getOrDefault(annotationType, Collections.emptyList());
+        if (candidates == null || annotatedClasses.size() < candidates.size()) {
+          candidates = annotatedClasses;
+        }
+      }
+    }
+    if (candidates != null && candidates.isEmpty()) {
+      return candidates;
+    }
+    List<String> namePrefixes = rule.getClassNames().getLiteralNamePrefixes();
+    if (namePrefixes != null) {
+      List<DexProgramClass> namedClasses = getClassesWithNamePrefixes(namePrefixes);
+      if (candidates == null || namedClasses.size() < candidates.size()) {
+        candidates = namedClasses;
+      }
+    }
+    return candidates != null ? candidates : defaultValue;
+  }
+
+  private List<DexProgramClass> getClassesWithNamePrefixes(List<String> namePrefixes) {
+    // Use a bit set to remove duplicates between overlapping prefixes and to restore the order of
+    // the program classes.
+    BitSet matches = new BitSet(classes.length);
+    for (String namePrefix : namePrefixes) {
+      for (int i = lowerBound(namePrefix);
+          i < sortedNames.length && sortedNames[i].startsWith(namePrefix);
+          i++) {
+        matches.set(sortedNameIndices[i]);
+      }
+    }
+    List<DexProgramClass> result = new ArrayList<>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      result.add(classes[i]);
+    }
+    return result;
+  }
+
+  private int lowerBound(String name) {
+    int low = 0;
+    int high = sortedNames.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedNames[middle].compareTo(name) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -11,6 +11,7 @@ import com.google.common.collect.Iterables;
 import it.unimi.dsi.fastutil.objects.Object2BooleanArrayMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
 import it.unimi.dsi.fastutil.objects.Object2BooleanMap.Entry;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -86,6 +87,14 @@ public abstract class ProguardClassNameList {
 
   public abstract boolean matches(DexType type);
 
+  /**
+   * Returns literal prefixes such that the source name of each type matched by this list starts
+   * with one of them, or null if no such prefixes are known.
+   */
+  public List<String> getLiteralNamePrefixes() {
+    return null;
+  }
+
   protected Iterable<ProguardWildcard> getWildcards() {
     return Collections::emptyIterator;
   }
@@ -163,6 +172,11 @@ public abstract class ProguardClassNameList {
       return false;
     }
 
+    @Override
+    public List<String> getLiteralNamePrefixes() {
+      return Collections.emptyList();
+    }
+
     @Override
     public void forEachTypeMatcher(Consumer<ProguardTypeMatcher> consumer) {
     }
@@ -220,6 +234,12 @@ public abstract class ProguardClassNameList {
       return className.matches(type);
     }
 
+    @Override
+    public List<String> getLiteralNamePrefixes() {
+      String prefix = className.getLiteralNamePrefix();
+      return prefix == null ? null : Collections.singletonList(prefix);
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return className.getWildcards();
@@ -298,6 +318,19 @@ public abstract class ProguardClassNameList {
       return classNames.stream().anyMatch(name -> name.matches(type));
     }
 
+    @Override
+    public List<String> getLiteralNamePrefixes() {
+      List<String> prefixes = new ArrayList<>(classNames.size());
+      for (ProguardTypeMatcher className : classNames) {
+        String prefix = className.getLiteralNamePrefix();
+        if (prefix == null) {
+          return null;
+        }
+        prefixes.add(prefix);
+      }
+      return prefixes;
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return classNames.stream()
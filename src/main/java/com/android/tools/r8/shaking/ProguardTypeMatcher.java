@@ -147,6 +147,14 @@ public abstract class ProguardTypeMatcher {
     return getSpecificType() != null;
   }
 
+  /**
+   * Returns a non-empty prefix of the source name of all types matched by this matcher, or null if
+   * there is no such prefix.
+   */
+  public String getLiteralNamePrefix() {
+    return null;
+  }
+
   private static class MatchAllTypes extends ProguardTypeMatcher {
 
     private static final ProguardTypeMatcher MATCH_ALL_TYPES = new MatchAllTypes();
@@ -372,6 +380,11 @@ public abstract class ProguardTypeMatcher {
     public DexType getSpecificType() {
       return type;
     }
+
+    @Override
+    public String getLiteralNamePrefix() {
+      return type.toSourceString();
+    }
   }
 
   private static class MatchTypePattern extends ProguardTypeMatcher {
@@ -398,6 +411,17 @@ public abstract class ProguardTypeMatcher {
       return matched;
     }
 
+    @Override
+    public String getLiteralNamePrefix() {
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (c == '*' || c == '?' || c == '<') {
+          return i == 0 ? null : pattern.substring(0, i);
+        }
+      }
+      return pattern;
+    }
+
     @Override
     protected Iterable<ProguardWildcard> getWildcards() {
       return wildcards;
@@ -126,6 +126,8 @@ public class RootSetUtils {
     private final InternalOptions options;
 
     private final DexStringCache dexStringCache = new DexStringCache();
+    // Built on the first rule that matches more than specific classes.
+    private KeepRuleCandidateIndex candidateIndex;
     private final Set<ProguardIfRule> ifRules = Sets.newIdentityHashSet();
 
     private final Map<OriginWithPosition, Set<DexMethod>> assumeNoSideEffectsWarnings =
@@ -290,11 +292,11 @@ public class RootSetUtils {
         return;
       }
 
+      Iterable<DexProgramClass> candidates = relevantCandidatesForRule(rule);
       futures.add(
           executorService.submit(
               () -> {
-                for (DexProgramClass clazz :
-                    rule.relevantCandidatesForRule(appView, subtypingInfo, application.classes())) {
+                for (DexProgramClass clazz : candidates) {
                   process(clazz, rule, ifRule);
                 }
                 if (rule.applyToNonProgramClasses()) {
@@ -305,6 +307,18 @@ public class RootSetUtils {
               }));
     }
 
+    private Iterable<DexProgramClass> relevantCandidatesForRule(ProguardConfigurationRule rule) {
+      Iterable<DexProgramClass> subtypes =
+          rule.relevantCandidatesForRule(appView, subtypingInfo, null);
+      if (subtypes != null) {
+        return subtypes;
+      }
+      if (candidateIndex == null) {
+        candidateIndex = new KeepRuleCandidateIndex(application.classes());
+      }
+      return candidateIndex.getCandidates(rule, application.classes());
+    }
+
     public RootSet build(ExecutorService executorService) throws ExecutionException {
       application.timing.begin("Build root set...");
       try {
@@ -56,6 +56,7 @@ import com.android.tools.r8.utils.Box;
 import com.android.tools.r8.utils.FieldSignatureEquivalence;
 import com.android.tools.r8.utils.MethodSignatureEquivalence;
 import com.android.tools.r8.utils.OptionalBool;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.TraversalContinuation;
 import com.android.tools.r8.utils.collections.BidirectionalManyToOneHashMap;
@@ -225,7 +226,8 @@ public class VerticalClassMerger {
       DexApplication application,
       AppView<AppInfoWithLiveness> appView,
       ExecutorService executorService,
-      Timing timing) {
+      Timing timing)
+      throws ExecutionException {
     this.application = application;
     this.appInfo = appView.appInfo();
     this.appView = appView;
@@ -241,31 +243,40 @@ public class VerticalClassMerger {
     initializeMergeCandidates(classes);
   }
 
-  private void initializeMergeCandidates(Iterable<DexProgramClass> classes) {
-    for (DexProgramClass sourceClass : classes) {
-      DexType singleSubtype = subtypingInfo.getSingleDirectSubtype(sourceClass.type);
-      if (singleSubtype == null) {
-        continue;
+  private void initializeMergeCandidates(Iterable<DexProgramClass> classes)
+      throws ExecutionException {
+    // The checks only read the application and the pinned types, which are not modified until all
+    // the checks have completed, so the classes are checked in parallel. The results are returned
+    // in the order of the classes, which keeps the set of merge candidates deterministic.
+    Collection<DexProgramClass> candidates =
+        ThreadUtils.processItemsWithResults(
+            classes,
+            sourceClass -> isMergeCandidate(sourceClass) ? sourceClass : null,
+            executorService);
+    for (DexProgramClass candidate : candidates) {
+      if (candidate != null) {
+        mergeCandidates.add(candidate);
       }
-      DexProgramClass targetClass = asProgramClassOrNull(appView.definitionFor(singleSubtype));
-      if (targetClass == null) {
-        continue;
-      }
-      if (!isMergeCandidate(sourceClass, targetClass, pinnedTypes)) {
-        continue;
-      }
-      if (!isStillMergeCandidate(sourceClass, targetClass)) {
-        continue;
-      }
-      if (mergeMayLeadToIllegalAccesses(sourceClass, targetClass)) {
-        continue;
-      }
-      mergeCandidates.add(sourceClass);
     }
   }
 
+  private boolean isMergeCandidate(DexProgramClass sourceClass) {
+    DexType singleSubtype = subtypingInfo.getSingleDirectSubtype(sourceClass.type);
+    if (singleSubtype == null) {
+      return false;
+    }
+    DexProgramClass targetClass = asProgramClassOrNull(appView.definitionFor(singleSubtype));
+    if (targetClass == null) {
+      return false;
+    }
+    return isMergeCandidate(sourceClass, targetClass, pinnedTypes)
+        && isStillMergeCandidate(sourceClass, targetClass)
+        && !mergeMayLeadToIllegalAccesses(sourceClass, targetClass);
+  }
+
   // Returns a set of types that must not be merged into other types.
-  private void initializePinnedTypes(Iterable<DexProgramClass> classes) {
+  private void initializePinnedTypes(Iterable<DexProgramClass> classes)
+      throws ExecutionException {
     // For all pinned fields, also pin the type of the field (because changing the type of the field
     // implicitly changes the signature of the field). Similarly, for all pinned methods, also pin
     // the return type and the parameter types of the method.
@@ -276,11 +287,15 @@ public class VerticalClassMerger {
     appInfo.getKeepInfo().forEachPinnedField(pinnedItems::add);
     extractPinnedItems(pinnedItems, AbortReason.PINNED_SOURCE);
 
-    for (DexProgramClass clazz : classes) {
-      for (DexEncodedMethod method : clazz.methods()) {
-        if (method.accessFlags.isNative()) {
-          markTypeAsPinned(clazz.type, AbortReason.NATIVE_METHOD);
-        }
+    Collection<DexProgramClass> classesWithNativeMethods =
+        ThreadUtils.processItemsWithResults(
+            classes,
+            clazz ->
+                clazz.getMethodCollection().hasMethods(DexEncodedMethod::isNative) ? clazz : null,
+            executorService);
+    for (DexProgramClass clazz : classesWithNativeMethods) {
+      if (clazz != null) {
+        markTypeAsPinned(clazz.type, AbortReason.NATIVE_METHOD);
       }
     }
 
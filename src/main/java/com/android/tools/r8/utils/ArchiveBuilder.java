@@ -33,6 +33,7 @@ public class ArchiveBuilder implements OutputBuilder {
   private boolean closed = false;
   private int openCount = 0;
   private int classesFileIndex = 0;
+  private boolean writingIndexedClassFiles = false;
   private Map<Integer, DelayedData> delayedClassesDexFiles = new HashMap<>();
   private SortedSet<DelayedData> delayedWrites = new TreeSet<>();
 
@@ -156,27 +157,59 @@ public class ArchiveBuilder implements OutputBuilder {
     }
   }
 
-  private void writeNextIfAvailable(DiagnosticsHandler handler) {
-    DelayedData data = delayedClassesDexFiles.remove(classesFileIndex);
-    while (data != null) {
-      writeFileNow(data.name, data.content, handler);
-      classesFileIndex++;
-      data = delayedClassesDexFiles.remove(classesFileIndex);
+  @Override
+  public void addIndexedClassFile(
+      int index, String name, ByteDataView content, DiagnosticsHandler handler) {
+    boolean inOrder;
+    synchronized (this) {
+      inOrder = index == classesFileIndex && !writingIndexedClassFiles;
+      if (inOrder) {
+        writingIndexedClassFiles = true;
+      }
+    }
+    if (inOrder) {
+      // Fast case, we got the file in order (or we only had one), write it without a copy.
+      writeIndexedClassFiles(name, content, handler);
+      return;
+    }
+    // Data is released in the application writer, take a copy. The copy is taken outside the lock,
+    // such that the thread that is writing is not blocked by it.
+    DelayedData data = new DelayedData(name, ByteDataView.of(content.copyByteData()), false);
+    DelayedData next;
+    synchronized (this) {
+      delayedClassesDexFiles.put(index, data);
+      if (writingIndexedClassFiles) {
+        // The writing thread writes the file when it is next in order.
+        return;
+      }
+      next = delayedClassesDexFiles.remove(classesFileIndex);
+      if (next == null) {
+        return;
+      }
+      writingIndexedClassFiles = true;
     }
+    writeIndexedClassFiles(next.name, next.content, handler);
   }
 
-  @Override
-  public synchronized void addIndexedClassFile(
-      int index, String name, ByteDataView content, DiagnosticsHandler handler) {
-    if (index == classesFileIndex) {
-      // Fast case, we got the file in order (or we only had one).
+  // Writes the given file followed by all delayed files that are next in order. Only a single
+  // thread writes indexed files at a time, and it compresses and writes outside the lock, such that
+  // other threads can hand over their files and continue while the current file is written.
+  private void writeIndexedClassFiles(
+      String name, ByteDataView content, DiagnosticsHandler handler) {
+    while (true) {
       writeFileNow(name, content, handler);
-      classesFileIndex++;
-      writeNextIfAvailable(handler);
-    } else {
-      // Data is released in the application writer, take a copy.
-      delayedClassesDexFiles.put(index,
-          new DelayedData(name, ByteDataView.of(content.copyByteData()), false));
+      DelayedData next;
+      synchronized (this) {
+        assert writingIndexedClassFiles;
+        classesFileIndex++;
+        next = delayedClassesDexFiles.remove(classesFileIndex);
+        if (next == null) {
+          writingIndexedClassFiles = false;
+          return;
+        }
+      }
+      name = next.name;
+      content = next.content;
     }
   }
 
@@ -28,12 +28,19 @@ public class CfLineToMethodMapper {
 
   public String lookupNameAndDescriptor(String binaryName, int lineNumber)
       throws ResourceException {
+    Int2ReferenceOpenHashMap<String> lineMappings = getSourceMethodMapping().get(binaryName);
+    return lineMappings == null ? null : lineMappings.get(lineNumber);
+  }
+
+  // Synchronized since the line number optimizer looks up methods from multiple threads. The
+  // mapping is not modified once it has been read.
+  private synchronized Map<String, Int2ReferenceOpenHashMap<String>> getSourceMethodMapping()
+      throws ResourceException {
     if (sourceMethodMapping == null) {
       sourceMethodMapping = new HashMap<>();
       readLineNumbersFromClassFiles();
     }
-    Int2ReferenceOpenHashMap<String> lineMappings = sourceMethodMapping.get(binaryName);
-    return lineMappings == null ? null : lineMappings.get(lineNumber);
+    return sourceMethodMapping;
   }
 
   private void readLineNumbersFromClassFiles() throws ResourceException {
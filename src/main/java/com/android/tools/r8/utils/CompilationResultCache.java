@@ -0,0 +1,620 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileConsumer;
+import com.android.tools.r8.ClassFileResourceProvider;
+import com.android.tools.r8.DataDirectoryResource;
+import com.android.tools.r8.DataEntryResource;
+import com.android.tools.r8.DataResourceConsumer;
+import com.android.tools.r8.DataResourceProvider;
+import com.android.tools.r8.DataResourceProvider.Visitor;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.Diagnostic;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.DiagnosticsLevel;
+import com.android.tools.r8.DumpOptions;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.StringResource;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.position.Position;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in cache of the outputs of entire R8 compilations, enabled by {@link
+ * com.android.tools.r8.R8Command.Builder#setCompilationResultCache}.
+ *
+ * <p>The outputs are stored under a key that is computed from the {@link CompilerIdentity}, the
+ * settings and keep rules of the command, and the content of the program, classpath and library
+ * inputs. A compilation with the same key replays the stored outputs and the infos and warnings of
+ * the original compilation instead of compiling the application again. Any change to the inputs
+ * leads to a different key and thus a full compilation; the results are never partially reused.
+ *
+ * <p>Only compilations whose outputs can all be recorded are cached, i.e., compilations to an
+ * indexed DEX or class file program consumer with an optional Proguard map consumer.
+ */
+public class CompilationResultCache {
+
+  private static final int MAGIC = 0x52384343;
+  private static final int FORMAT_VERSION = 2;
+  private static final String ENTRY_EXTENSION = ".r8cache";
+
+  private static final byte END_TAG = 0;
+  private static final byte DEX_TAG = 1;
+  private static final byte CLASS_TAG = 2;
+  private static final byte DATA_DIRECTORY_TAG = 3;
+  private static final byte DATA_ENTRY_TAG = 4;
+  private static final byte PROGUARD_MAP_TAG = 5;
+  private static final byte DIAGNOSTIC_TAG = 6;
+
+  // The hashes of library and classpath archives by their path, such that an archive that has not
+  // changed is not read again by later compilations in the same process.
+  private static final Map<Path, ArchiveHash> archiveHashes = new ConcurrentHashMap<>();
+
+  private final InternalOptions options;
+  private final Path entry;
+
+  // The outputs of the compilation, recorded while the compilation is running.
+  private final TreeMap<Integer, Output> dexOutputs = new TreeMap<>();
+  private final List<Output> classOutputs = new ArrayList<>();
+  private final List<Output> dataOutputs = new ArrayList<>();
+  private StringBuilder proguardMapOutput = null;
+  private final List<RecordedDiagnostic> diagnostics = new ArrayList<>();
+
+  private CompilationResultCache(InternalOptions options, Path entry) {
+    this.options = options;
+    this.entry = entry;
+  }
+
+  /** Returns the cache for the compilation, or null if the compilation should not be cached. */
+  public static CompilationResultCache create(AndroidApp app, InternalOptions options)
+      throws IOException {
+    if (options.compilationResultCacheDirectory == null || !isSupported(options)) {
+      return null;
+    }
+    String compilerIdentity = CompilerIdentity.get(options);
+    if (compilerIdentity == null) {
+      options.reporter.info(
+          new StringDiagnostic(
+              "The compilation result cache is not used, since the compiler cannot be identified"));
+      return null;
+    }
+    String key;
+    try {
+      key = computeKey(compilerIdentity, app, options);
+    } catch (ResourceException e) {
+      throw new IOException("Failed to read the inputs of the compilation", e);
+    }
+    Path directory = options.compilationResultCacheDirectory;
+    Files.createDirectories(directory);
+    return new CompilationResultCache(options, directory.resolve(key + ENTRY_EXTENSION));
+  }
+
+  private static boolean isSupported(InternalOptions options) {
+    return (options.programConsumer instanceof DexIndexedConsumer
+            || options.programConsumer instanceof ClassFileConsumer)
+        && options.dumpOptions != null
+        && options.featureSplitConfiguration == null
+        && options.mainDexListConsumer == null
+        && options.usageInformationConsumer == null
+        && options.proguardSeedsConsumer == null
+        && options.configurationConsumer == null
+        && options.desugaredLibraryKeepRuleConsumer == null
+        && options.keptGraphConsumer == null
+        && options.mainDexKeptGraphConsumer == null
+        && options.desugarGraphConsumer == null
+        && options.syntheticProguardRulesConsumer == null
+        && options.binaryProguardMapOutput == null
+        && options.outputInspections.isEmpty()
+        && !options.tracer.isEnabled();
+  }
+
+  private static String computeKey(
+      String compilerIdentity, AndroidApp app, InternalOptions options)
+      throws IOException, ResourceException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putString(hasher, compilerIdentity);
+    hasher.putBoolean(options.isGeneratingClassFiles());
+    hasher.putBoolean(options.proguardMapConsumer != null);
+    hasher.putBoolean(options.dataResourceConsumer != null);
+    DumpOptions dumpOptions = options.dumpOptions;
+    putString(hasher, dumpOptions.dumpOptions());
+    putString(hasher, dumpOptions.getDesugaredLibraryJsonSource());
+    putString(hasher, dumpOptions.getParsedProguardConfiguration());
+    if (dumpOptions.hasMainDexKeepRules()) {
+      putString(hasher, StringUtils.joinLines(dumpOptions.getMainDexKeepRules()));
+    }
+    for (StringResource mainDexListResource : app.getMainDexListResources()) {
+      putString(hasher, mainDexListResource.getString());
+    }
+    for (String mainDexClass : app.getMainDexClasses()) {
+      putString(hasher, mainDexClass);
+    }
+    if (app.getProguardMapInputData() != null) {
+      putString(hasher, app.getProguardMapInputData().getString());
+    }
+    for (ProgramResourceProvider provider : app.getProgramResourceProviders()) {
+      for (ProgramResource resource : provider.getProgramResources()) {
+        putString(hasher, resource.getKind().name());
+        Set<String> descriptors = resource.getClassDescriptors();
+        if (descriptors != null) {
+          new TreeSet<>(descriptors).forEach(descriptor -> putString(hasher, descriptor));
+        }
+        putBytes(hasher, resource.getByteStream());
+      }
+      DataResourceProvider dataResourceProvider = provider.getDataResourceProvider();
+      if (dataResourceProvider != null) {
+        dataResourceProvider.accept(
+            new Visitor() {
+              @Override
+              public void visit(DataDirectoryResource directory) {
+                putString(hasher, directory.getName());
+              }
+
+              @Override
+              public void visit(DataEntryResource file) {
+                putString(hasher, file.getName());
+                try {
+                  putBytes(hasher, file.getByteStream());
+                } catch (IOException | ResourceException e) {
+                  throw new RuntimeException(e);
+                }
+              }
+            });
+      }
+    }
+    putClassFileResources(hasher, app.getClasspathResourceProviders());
+    putClassFileResources(hasher, app.getLibraryResourceProviders());
+    return hasher.hash().toString();
+  }
+
+  private static void putClassFileResources(
+      Hasher hasher, List<ClassFileResourceProvider> providers)
+      throws IOException, ResourceException {
+    // Separate the classpath from the library.
+    hasher.putInt(providers.size());
+    for (ClassFileResourceProvider provider : providers) {
+      Set<String> descriptors = new TreeSet<>(provider.getClassDescriptors());
+      if (provider instanceof InternalArchiveClassFileProvider) {
+        // The archive is hashed as a whole, which avoids inflating every class.
+        hasher.putBytes(getArchiveHash(((InternalArchiveClassFileProvider) provider).getPath()));
+        descriptors.forEach(descriptor -> putString(hasher, descriptor));
+        continue;
+      }
+      for (String descriptor : descriptors) {
+        putString(hasher, descriptor);
+        putBytes(hasher, provider.getProgramResource(descriptor).getByteStream());
+      }
+    }
+  }
+
+  private static byte[] getArchiveHash(Path archive) throws IOException {
+    Path path = archive.toAbsolutePath();
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    ArchiveHash archiveHash = archiveHashes.get(path);
+    if (archiveHash == null || !archiveHash.isValidFor(attributes)) {
+      archiveHash =
+          new ArchiveHash(
+              attributes,
+              com.google.common.io.Files.asByteSource(path.toFile())
+                  .hash(Hashing.sha256())
+                  .asBytes());
+      // The archive may have changed while it was read, in which case the modification time
+      // differs and the hash is computed again by the next compilation.
+      if (archiveHash.isValidFor(Files.readAttributes(path, BasicFileAttributes.class))) {
+        archiveHashes.put(path, archiveHash);
+      }
+    }
+    return archiveHash.hash;
+  }
+
+  private static void putString(Hasher hasher, String string) {
+    if (string == null) {
+      hasher.putInt(-1);
+    } else {
+      hasher.putInt(string.length());
+      hasher.putString(string, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static void putBytes(Hasher hasher, InputStream stream) throws IOException {
+    byte[] bytes = StreamUtils.StreamToByteArrayClose(stream);
+    hasher.putInt(bytes.length);
+    hasher.putBytes(bytes);
+  }
+
+  /**
+   * Passes the outputs of a previous compilation with the same key to the consumers, if present.
+   *
+   * <p>Returns false if there is no usable entry, in which case the application must be compiled.
+   */
+  public boolean replay() {
+    if (!Files.exists(entry)) {
+      return false;
+    }
+    // Read the entire entry before passing anything to the consumers, such that a corrupt entry
+    // leads to a full compilation and not to partial outputs.
+    try (DataInputStream input = new DataInputStream(Files.newInputStream(entry))) {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        return false;
+      }
+      for (byte tag = input.readByte(); tag != END_TAG; tag = input.readByte()) {
+        switch (tag) {
+          case DEX_TAG:
+            int fileIndex = input.readInt();
+            dexOutputs.put(fileIndex, readOutput(input));
+            break;
+          case CLASS_TAG:
+            classOutputs.add(readOutput(input));
+            break;
+          case DATA_DIRECTORY_TAG:
+            dataOutputs.add(new Output(input.readUTF(), null, null));
+            break;
+          case DATA_ENTRY_TAG:
+            dataOutputs.add(new Output(input.readUTF(), null, readBytes(input)));
+            break;
+          case PROGUARD_MAP_TAG:
+            proguardMapOutput =
+                new StringBuilder(new String(readBytes(input), StandardCharsets.UTF_8));
+            break;
+          case DIAGNOSTIC_TAG:
+            diagnostics.add(RecordedDiagnostic.read(input));
+            break;
+          default:
+            return false;
+        }
+      }
+    } catch (IOException e) {
+      options.reporter.warning(
+          new StringDiagnostic("Ignoring unreadable compilation cache entry: " + entry));
+      dexOutputs.clear();
+      classOutputs.clear();
+      dataOutputs.clear();
+      proguardMapOutput = null;
+      diagnostics.clear();
+      return false;
+    }
+    Reporter reporter = options.reporter;
+    // Report the diagnostics of the original compilation, which the client may map to errors.
+    for (RecordedDiagnostic diagnostic : diagnostics) {
+      diagnostic.report(reporter);
+    }
+    reporter.failIfPendingErrors();
+    if (options.isGeneratingClassFiles()) {
+      ClassFileConsumer consumer = options.getClassFileConsumer();
+      for (Output output : classOutputs) {
+        consumer.accept(ByteDataView.of(output.bytes), output.name, reporter);
+      }
+    } else {
+      DexIndexedConsumer consumer = options.getDexIndexedConsumer();
+      dexOutputs.forEach(
+          (fileIndex, output) ->
+              consumer.accept(
+                  fileIndex, ByteDataView.of(output.bytes), output.descriptors, reporter));
+    }
+    DataResourceConsumer dataResourceConsumer = options.dataResourceConsumer;
+    if (dataResourceConsumer != null) {
+      for (Output output : dataOutputs) {
+        if (output.bytes == null) {
+          dataResourceConsumer.accept(
+              DataDirectoryResource.fromName(output.name, Origin.unknown()), reporter);
+        } else {
+          dataResourceConsumer.accept(
+              DataEntryResource.fromBytes(output.bytes, output.name, Origin.unknown()), reporter);
+        }
+      }
+    }
+    if (options.proguardMapConsumer != null && proguardMapOutput != null) {
+      options.proguardMapConsumer.accept(proguardMapOutput.toString(), reporter);
+      ExceptionUtils.withFinishedResourceHandler(reporter, options.proguardMapConsumer);
+    }
+    options.signalFinishedToConsumers();
+    FileUtils.touch(entry);
+    reporter.info(new StringDiagnostic("Reused the compilation result from: " + entry));
+    return true;
+  }
+
+  /**
+   * Installs consumers that record the outputs of the compilation, and records the infos and
+   * warnings of the compilation, for {@link #store()}.
+   */
+  public void startRecording() {
+    options.reporter.setDiagnosticsListener(
+        (level, diagnostic) -> {
+          if (level != DiagnosticsLevel.ERROR) {
+            diagnostics.add(RecordedDiagnostic.create(level, diagnostic));
+          }
+        });
+    if (options.isGeneratingClassFiles()) {
+      options.programConsumer =
+          new ClassFileConsumer.ForwardingConsumer(options.getClassFileConsumer()) {
+            @Override
+            public void accept(ByteDataView data, String descriptor, DiagnosticsHandler handler) {
+              super.accept(data, descriptor, handler);
+              synchronized (classOutputs) {
+                classOutputs.add(new Output(descriptor, null, data.copyByteData()));
+              }
+            }
+          };
+    } else {
+      options.programConsumer =
+          new DexIndexedConsumer.ForwardingConsumer(options.getDexIndexedConsumer()) {
+            @Override
+            public void accept(
+                int fileIndex,
+                ByteDataView data,
+                Set<String> descriptors,
+                DiagnosticsHandler handler) {
+              super.accept(fileIndex, data, descriptors, handler);
+              synchronized (dexOutputs) {
+                dexOutputs.put(fileIndex, new Output(null, descriptors, data.copyByteData()));
+              }
+            }
+          };
+    }
+    if (options.dataResourceConsumer != null) {
+      DataResourceConsumer dataResourceConsumer = options.dataResourceConsumer;
+      options.dataResourceConsumer =
+          new DataResourceConsumer() {
+            @Override
+            public void accept(DataDirectoryResource directory, DiagnosticsHandler handler) {
+              dataResourceConsumer.accept(directory, handler);
+              synchronized (dataOutputs) {
+                dataOutputs.add(new Output(directory.getName(), null, null));
+              }
+            }
+
+            @Override
+            public void accept(DataEntryResource file, DiagnosticsHandler handler) {
+              byte[] bytes;
+              try {
+                bytes = StreamUtils.StreamToByteArrayClose(file.getByteStream());
+              } catch (IOException | ResourceException e) {
+                throw new RuntimeException(e);
+              }
+              dataResourceConsumer.accept(
+                  DataEntryResource.fromBytes(bytes, file.getName(), file.getOrigin()), handler);
+              synchronized (dataOutputs) {
+                dataOutputs.add(new Output(file.getName(), null, bytes));
+              }
+            }
+
+            @Override
+            public void finished(DiagnosticsHandler handler) {
+              dataResourceConsumer.finished(handler);
+            }
+          };
+    }
+    if (options.proguardMapConsumer != null) {
+      options.proguardMapConsumer =
+          new StringConsumer.ForwardingConsumer(options.proguardMapConsumer) {
+            @Override
+            public void accept(String string, DiagnosticsHandler handler) {
+              super.accept(string, handler);
+              if (proguardMapOutput == null) {
+                proguardMapOutput = new StringBuilder();
+              }
+              proguardMapOutput.append(string);
+            }
+          };
+    }
+  }
+
+  /** Stores the outputs recorded for a successful compilation. */
+  public void store() throws IOException {
+    options.reporter.setDiagnosticsListener(null);
+    options.reporter.failIfPendingErrors();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      for (Integer fileIndex : dexOutputs.keySet()) {
+        output.writeByte(DEX_TAG);
+        output.writeInt(fileIndex);
+        writeOutput(output, dexOutputs.get(fileIndex));
+      }
+      for (Output classOutput : classOutputs) {
+        output.writeByte(CLASS_TAG);
+        writeOutput(output, classOutput);
+      }
+      for (Output dataOutput : dataOutputs) {
+        if (dataOutput.bytes == null) {
+          output.writeByte(DATA_DIRECTORY_TAG);
+          output.writeUTF(dataOutput.name);
+        } else {
+          output.writeByte(DATA_ENTRY_TAG);
+          output.writeUTF(dataOutput.name);
+          writeBytes(output, dataOutput.bytes);
+        }
+      }
+      if (proguardMapOutput != null) {
+        output.writeByte(PROGUARD_MAP_TAG);
+        writeBytes(output, proguardMapOutput.toString().getBytes(StandardCharsets.UTF_8));
+      }
+      for (RecordedDiagnostic diagnostic : diagnostics) {
+        output.writeByte(DIAGNOSTIC_TAG);
+        diagnostic.write(output);
+      }
+      output.writeByte(END_TAG);
+    }
+    // Write to a temporary file and move it in place, such that concurrent compilations never
+    // observe a partially written entry.
+    Path temporary = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), null);
+    try (OutputStream output = Files.newOutputStream(temporary)) {
+      bytes.writeTo(output);
+    }
+    Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+    try {
+      FileUtils.deleteLeastRecentlyModifiedFiles(
+          entry.getParent(), ENTRY_EXTENSION, options.compilationResultCacheMaximumSizeInBytes);
+    } catch (IOException e) {
+      options.reporter.warning(new ExceptionDiagnostic(e));
+    }
+  }
+
+  private static Output readOutput(DataInputStream input) throws IOException {
+    String name = input.readBoolean() ? input.readUTF() : null;
+    Set<String> descriptors = null;
+    int numberOfDescriptors = input.readInt();
+    if (numberOfDescriptors >= 0) {
+      descriptors = new TreeSet<>();
+      for (int i = 0; i < numberOfDescriptors; i++) {
+        descriptors.add(input.readUTF());
+      }
+    }
+    return new Output(name, descriptors, readBytes(input));
+  }
+
+  private static void writeOutput(DataOutputStream output, Output value) throws IOException {
+    output.writeBoolean(value.name != null);
+    if (value.name != null) {
+      output.writeUTF(value.name);
+    }
+    if (value.descriptors == null) {
+      output.writeInt(-1);
+    } else {
+      output.writeInt(value.descriptors.size());
+      for (String descriptor : value.descriptors) {
+        output.writeUTF(descriptor);
+      }
+    }
+    writeBytes(output, value.bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static class Output {
+
+    // The descriptor of a class file or the name of a data resource.
+    private final String name;
+    // The descriptors of the classes in a DEX file.
+    private final Set<String> descriptors;
+    // The content, or null for a data directory.
+    private final byte[] bytes;
+
+    private Output(String name, Set<String> descriptors, byte[] bytes) {
+      this.name = name;
+      this.descriptors = descriptors;
+      this.bytes = bytes;
+    }
+  }
+
+  private static class ArchiveHash {
+
+    private final long size;
+    private final long lastModified;
+    private final byte[] hash;
+
+    private ArchiveHash(BasicFileAttributes attributes, byte[] hash) {
+      this.size = attributes.size();
+      this.lastModified = attributes.lastModifiedTime().toMillis();
+      this.hash = hash;
+    }
+
+    private boolean isValidFor(BasicFileAttributes attributes) {
+      return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+    }
+  }
+
+  // An info or warning of a compilation, which is reported again when the result is reused.
+  private static class RecordedDiagnostic {
+
+    private final DiagnosticsLevel level;
+    private final String message;
+    // The description of the origin, or null if the origin is unknown.
+    private final String origin;
+    private final String position;
+
+    private RecordedDiagnostic(
+        DiagnosticsLevel level, String message, String origin, String position) {
+      this.level = level;
+      this.message = message;
+      this.origin = origin;
+      this.position = position;
+    }
+
+    private static RecordedDiagnostic create(DiagnosticsLevel level, Diagnostic diagnostic) {
+      Origin origin = diagnostic.getOrigin();
+      Position position = diagnostic.getPosition();
+      return new RecordedDiagnostic(
+          level,
+          diagnostic.getDiagnosticMessage(),
+          origin == null || origin == Origin.unknown() ? null : origin.toString(),
+          position == null || position == Position.UNKNOWN ? null : position.getDescription());
+    }
+
+    private static RecordedDiagnostic read(DataInputStream input) throws IOException {
+      DiagnosticsLevel level = DiagnosticsLevel.valueOf(input.readUTF());
+      String message = new String(readBytes(input), StandardCharsets.UTF_8);
+      String origin = input.readBoolean() ? input.readUTF() : null;
+      String position = input.readBoolean() ? input.readUTF() : null;
+      return new RecordedDiagnostic(level, message, origin, position);
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+      output.writeUTF(level.name());
+      writeBytes(output, message.getBytes(StandardCharsets.UTF_8));
+      output.writeBoolean(origin != null);
+      if (origin != null) {
+        output.writeUTF(origin);
+      }
+      output.writeBoolean(position != null);
+      if (position != null) {
+        output.writeUTF(position);
+      }
+    }
+
+    private void report(Reporter reporter) {
+      Origin replayedOrigin =
+          origin == null
+              ? Origin.unknown()
+              : new Origin(Origin.root()) {
+                @Override
+                public String part() {
+                  return origin;
+                }
+              };
+      Position replayedPosition = position == null ? Position.UNKNOWN : () -> position;
+      StringDiagnostic diagnostic =
+          new StringDiagnostic(message, replayedOrigin, replayedPosition);
+      if (level == DiagnosticsLevel.INFO) {
+        reporter.info(diagnostic);
+      } else {
+        reporter.warning(diagnostic);
+      }
+    }
+  }
+}
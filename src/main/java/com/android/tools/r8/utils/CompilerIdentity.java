@@ -0,0 +1,87 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.Version;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Identifies the code of the running compiler in the keys of caches that persist across
+ * compilations, such that a cache entry is never reused by a different compiler.
+ *
+ * <p>The version string identifies a build from a known commit. All engineering builds have the
+ * same version string, so their identity also includes a fingerprint of the compiler code: the
+ * content of the compiler jar, or the names, sizes and modification times of the files in the
+ * compiler class directory.
+ */
+public class CompilerIdentity {
+
+  private static String identity;
+  private static boolean computed = false;
+
+  /**
+   * Returns the identity of the compiler, or null if the compiler code cannot be identified, in
+   * which case persistent caches must not be used.
+   */
+  public static String get(InternalOptions options) {
+    if (options.testing.compilerIdentity != null) {
+      return options.testing.compilerIdentity;
+    }
+    return get();
+  }
+
+  private static synchronized String get() {
+    if (!computed) {
+      identity = compute();
+      computed = true;
+    }
+    return identity;
+  }
+
+  private static String compute() {
+    String versionString = Version.getVersionString();
+    if (!VersionProperties.INSTANCE.isEngineering()) {
+      return versionString;
+    }
+    try {
+      CodeSource codeSource = Version.class.getProtectionDomain().getCodeSource();
+      if (codeSource == null || codeSource.getLocation() == null) {
+        return null;
+      }
+      Path location = Paths.get(codeSource.getLocation().toURI());
+      if (!Files.isDirectory(location)) {
+        return versionString
+            + " "
+            + com.google.common.io.Files.asByteSource(location.toFile()).hash(Hashing.sha256());
+      }
+      List<Path> files;
+      try (Stream<Path> stream = Files.walk(location)) {
+        files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      Hasher hasher = Hashing.sha256().newHasher();
+      for (Path file : files) {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        hasher
+            .putString(location.relativize(file).toString(), StandardCharsets.UTF_8)
+            .putLong(attributes.size())
+            .putLong(attributes.lastModifiedTime().toMillis());
+      }
+      return versionString + " " + hasher.hash();
+    } catch (IOException | URISyntaxException | SecurityException e) {
+      return null;
+    }
+  }
+}
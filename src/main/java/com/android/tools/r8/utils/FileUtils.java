@@ -14,8 +14,15 @@ import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import java.util.zip.ZipFile;
 
 public class FileUtils {
@@ -208,4 +215,56 @@ public class FileUtils {
     // UTF_8 is the default charset used in tests.
     throw new RuntimeException("R8 can run on dex only with UTF_8 as the default charset.");
   }
+
+  /** Sets the modification time of the file to now, ignoring failures. */
+  public static void touch(Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // The file may have been deleted concurrently.
+    }
+  }
+
+  /**
+   * Deletes the least recently modified files with the given extension in the directory until the
+   * total size of these files is at most the given size. Files that are deleted concurrently or
+   * that cannot be deleted are ignored.
+   */
+  public static void deleteLeastRecentlyModifiedFiles(
+      Path directory, String extension, long maximumSizeInBytes) throws IOException {
+    List<Path> files = new ArrayList<>();
+    Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+    long size = 0;
+    try (Stream<Path> stream = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) stream::iterator) {
+        if (!file.getFileName().toString().endsWith(extension)) {
+          continue;
+        }
+        try {
+          BasicFileAttributes fileAttributes =
+              Files.readAttributes(file, BasicFileAttributes.class);
+          attributes.put(file, fileAttributes);
+          files.add(file);
+          size += fileAttributes.size();
+        } catch (IOException e) {
+          // The file was deleted concurrently.
+        }
+      }
+    }
+    if (size <= maximumSizeInBytes) {
+      return;
+    }
+    files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+    for (Path file : files) {
+      if (size <= maximumSizeInBytes) {
+        break;
+      }
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // Another process may be reading or deleting the file.
+      }
+      size -= attributes.get(file).size();
+    }
+  }
 }
@@ -73,6 +73,10 @@ class InternalArchiveClassFileProvider implements ClassFileResourceProvider, Aut
     }
   }
 
+  Path getPath() {
+    return path;
+  }
+
   @Override
   public Set<String> getClassDescriptors() {
     return Collections.unmodifiableSet(descriptors);
@@ -19,6 +19,7 @@ import com.android.tools.r8.cf.CfVersion;
 import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.dex.Marker.Backend;
 import com.android.tools.r8.dex.Marker.Tool;
+import com.android.tools.r8.dex.PerClassDexCache;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.errors.ExperimentalClassFileVersionDiagnostic;
 import com.android.tools.r8.errors.IncompleteNestNestDesugarDiagnosic;
@@ -71,6 +72,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -222,6 +224,8 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   public boolean printTimes = System.getProperty("com.android.tools.r8.printtimes") != null;
   // To print memory one also have to enable printtimes.
   public boolean printMemory = System.getProperty("com.android.tools.r8.printmemory") != null;
+  // Collects spans, counters and histograms for the trace consumer of the command, if any.
+  public Tracer tracer = Tracer.empty();
 
   public String dumpInputToFile = System.getProperty("com.android.tools.r8.dumpinputtofile");
   public String dumpInputToDirectory =
@@ -267,6 +271,10 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   public boolean enableNameReflectionOptimization = true;
   public boolean enableStringConcatenationOptimization = true;
   public boolean enableTreeShakingOfLibraryMethodOverrides = false;
+  // Parse the code of methods that are about to be traced by the Enqueuer on the executor service,
+  // once at least the given number of classes with unparsed code are pending.
+  public boolean enableParallelCodeParsingInEnqueuer = true;
+  public int parallelCodeParsingInEnqueuerThreshold = 32;
   public boolean encodeChecksums = false;
   public BiPredicate<String, Long> dexClassChecksumFilter = (name, checksum) -> true;
   public boolean cfToCfDesugar = false;
@@ -482,6 +490,7 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     if (desugarGraphConsumer != null) {
       desugarGraphConsumer.finished();
     }
+    tracer.finished(reporter);
   }
 
   public boolean shouldDesugarNests() {
@@ -740,6 +749,10 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // If non null it must be and passed to the consumer.
   public StringConsumer proguardMapConsumer = null;
 
+  // If non null, a binary companion of the proguard map is written to this path when the proguard
+  // map is written, see BinaryProguardMapWriter.
+  public Path binaryProguardMapOutput = null;
+
   // If null, no usage information needs to be computed.
   // If non-null, it must be and is passed to the consumer.
   public StringConsumer usageInformationConsumer = null;
@@ -781,6 +794,13 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // code objects needed for correct desugaring needs to be provided to the consumer.
   public DesugarGraphConsumer desugarGraphConsumer = null;
 
+  // If non-null, D8 reuses the output for class files that were compiled before with the same
+  // options, and adds the output for all other class files to the cache.
+  public PerClassDexCache perClassDexCache = null;
+  // Directory and size bound of the cache of R8 compilation results, see CompilationResultCache.
+  public Path compilationResultCacheDirectory = null;
+  public long compilationResultCacheMaximumSizeInBytes = 0;
+
   public Consumer<List<ProguardConfigurationRule>> syntheticProguardRulesConsumer = null;
 
   public static boolean assertionsEnabled() {
@@ -1238,6 +1258,9 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     // Force writing the specified bytes as the DEX version content.
     public byte[] forceDexVersionBytes = null;
 
+    // Replaces the identity of the compiler in the keys of persistent caches, see CompilerIdentity.
+    public String compilerIdentity = null;
+
     public IROrdering irOrdering =
         InternalOptions.assertionsEnabled() && !InternalOptions.DETERMINISTIC_DEBUGGING
             ? NondeterministicIROrdering.getInstance()
@@ -42,6 +42,7 @@ import com.android.tools.r8.kotlin.KotlinSourceDebugExtensionParser.Result;
 import com.android.tools.r8.naming.ClassNameMapper;
 import com.android.tools.r8.naming.ClassNaming;
 import com.android.tools.r8.naming.ClassNaming.Builder;
+import com.android.tools.r8.naming.ClassNamingForNameMapper;
 import com.android.tools.r8.naming.MemberNaming;
 import com.android.tools.r8.naming.MemberNaming.FieldSignature;
 import com.android.tools.r8.naming.MemberNaming.MethodSignature;
@@ -52,12 +53,14 @@ import com.android.tools.r8.naming.mappinginformation.FileNameInformation;
 import com.android.tools.r8.retrace.internal.RetraceUtils;
 import com.android.tools.r8.shaking.KeepInfoCollection;
 import com.android.tools.r8.utils.InternalOptions.LineNumberOptimization;
-import com.google.common.base.Suppliers;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -268,197 +271,220 @@ public class LineNumberOptimizer {
       AppView<AppInfoWithClassHierarchy> appView,
       DexApplication application,
       AndroidApp inputApp,
-      NamingLens namingLens) {
+      NamingLens namingLens,
+      ExecutorService executorService)
+      throws ExecutionException {
     // For finding methods in kotlin files based on SourceDebugExtensions, we use a line method map.
     // We create it here to ensure it is only reading class files once.
     CfLineToMethodMapper cfLineToMethodMapper = new CfLineToMethodMapper(inputApp);
+    // The classes are processed independently of each other, since the position remappers are
+    // local to a class. The resulting class namings are added to the mapper in the order of the
+    // classes, such that the mapper does not depend on the scheduling of the threads.
+    Collection<ClassNamingForNameMapper.Builder> classNamingBuilders =
+        ThreadUtils.processItemsWithResults(
+            application.classes(),
+            clazz -> processClass(appView, namingLens, clazz, cfLineToMethodMapper),
+            executorService);
     ClassNameMapper.Builder classNameMapperBuilder = ClassNameMapper.builder();
-    // Collect which files contain which classes that need to have their line numbers optimized.
-    for (DexProgramClass clazz : application.classes()) {
-      boolean isSyntheticClass = appView.getSyntheticItems().isSyntheticClass(clazz);
-
-      IdentityHashMap<DexString, List<DexEncodedMethod>> methodsByRenamedName =
-          groupMethodsByRenamedName(appView.graphLens(), namingLens, clazz);
-
-      // At this point we don't know if we really need to add this class to the builder.
-      // It depends on whether any methods/fields are renamed or some methods contain positions.
-      // Create a supplier which creates a new, cached ClassNaming.Builder on-demand.
-      DexType originalType = appView.graphLens().getOriginalType(clazz.type);
-      DexString renamedClassName = namingLens.lookupDescriptor(clazz.getType());
-      Supplier<ClassNaming.Builder> onDemandClassNamingBuilder =
-          Suppliers.memoize(
-              () ->
-                  classNameMapperBuilder.classNamingBuilder(
-                      DescriptorUtils.descriptorToJavaType(renamedClassName.toString()),
-                      originalType.toSourceString(),
-                      com.android.tools.r8.position.Position.UNKNOWN));
-
-      // Check if source file should be added to the map
-      if (clazz.sourceFile != null) {
-        String sourceFile = clazz.sourceFile.toString();
-        if (!RetraceUtils.hasPredictableSourceFileName(clazz.toSourceString(), sourceFile)) {
-          Builder builder = onDemandClassNamingBuilder.get();
-          builder.addMappingInformation(FileNameInformation.build(sourceFile));
-        }
+    for (ClassNamingForNameMapper.Builder classNamingBuilder : classNamingBuilders) {
+      if (classNamingBuilder != null) {
+        classNameMapperBuilder.addClassNamingBuilder(classNamingBuilder);
       }
+    }
+    return classNameMapperBuilder.build();
+  }
 
-      if (isSyntheticClass) {
-        onDemandClassNamingBuilder
-            .get()
-            .addMappingInformation(new CompilerSynthesizedMappingInformation());
+  // Returns the class naming of the given class, or null if the class does not need to be added to
+  // the mapping file.
+  private static ClassNamingForNameMapper.Builder processClass(
+      AppView<AppInfoWithClassHierarchy> appView,
+      NamingLens namingLens,
+      DexProgramClass clazz,
+      CfLineToMethodMapper cfLineToMethodMapper) {
+    boolean isSyntheticClass = appView.getSyntheticItems().isSyntheticClass(clazz);
+
+    IdentityHashMap<DexString, List<DexEncodedMethod>> methodsByRenamedName =
+        groupMethodsByRenamedName(appView.graphLens(), namingLens, clazz);
+
+    // At this point we don't know if we really need to add this class to the builder.
+    // It depends on whether any methods/fields are renamed or some methods contain positions.
+    // Create a supplier which creates a new, cached ClassNaming.Builder on-demand.
+    DexType originalType = appView.graphLens().getOriginalType(clazz.type);
+    DexString renamedClassName = namingLens.lookupDescriptor(clazz.getType());
+    Box<ClassNamingForNameMapper.Builder> classNaming = new Box<>();
+    Supplier<ClassNaming.Builder> onDemandClassNamingBuilder =
+        () ->
+            classNaming.computeIfAbsent(
+                () ->
+                    ClassNamingForNameMapper.builder(
+                        DescriptorUtils.descriptorToJavaType(renamedClassName.toString()),
+                        originalType.toSourceString()));
+
+    // Check if source file should be added to the map
+    if (clazz.sourceFile != null) {
+      String sourceFile = clazz.sourceFile.toString();
+      if (!RetraceUtils.hasPredictableSourceFileName(clazz.toSourceString(), sourceFile)) {
+        Builder builder = onDemandClassNamingBuilder.get();
+        builder.addMappingInformation(FileNameInformation.build(sourceFile));
       }
+    }
 
-      // If the class is renamed add it to the classNamingBuilder.
-      addClassToClassNaming(originalType, renamedClassName, onDemandClassNamingBuilder);
-
-      // First transfer renamed fields to classNamingBuilder.
-      addFieldsToClassNaming(
-          appView.graphLens(), namingLens, clazz, originalType, onDemandClassNamingBuilder);
-
-      // Then process the methods, ordered by renamed name.
-      List<DexString> renamedMethodNames = new ArrayList<>(methodsByRenamedName.keySet());
-      renamedMethodNames.sort(DexString::compareTo);
-      for (DexString methodName : renamedMethodNames) {
-        List<DexEncodedMethod> methods = methodsByRenamedName.get(methodName);
-        if (methods.size() > 1) {
-          // If there are multiple methods with the same name (overloaded) then sort them for
-          // deterministic behaviour: the algorithm will assign new line numbers in this order.
-          // Methods with different names can share the same line numbers, that's why they don't
-          // need to be sorted.
-          // If we are compiling to DEX we will try to not generate overloaded names. This saves
-          // space by allowing more debug-information to be canonicalized. If we have overloaded
-          // methods, we either did not rename them, we renamed them according to a supplied map or
-          // they may be bridges for interface methods with covariant return types.
-          sortMethods(methods);
-          assert verifyMethodsAreKeptDirectlyOrIndirectly(appView, methods);
-        }
+    if (isSyntheticClass) {
+      onDemandClassNamingBuilder
+          .get()
+          .addMappingInformation(new CompilerSynthesizedMappingInformation());
+    }
 
-        boolean identityMapping =
-            appView.options().lineNumberOptimization == LineNumberOptimization.OFF;
-        PositionRemapper positionRemapper =
-            identityMapping
-                ? new IdentityPositionRemapper()
-                : new OptimizingPositionRemapper(appView.options());
-
-        // Kotlin inline functions and arguments have their inlining information stored in the
-        // source debug extension annotation. Instantiate the kotlin remapper on top of the original
-        // remapper to allow for remapping original positions to kotlin inline positions.
-        KotlinInlineFunctionPositionRemapper kotlinRemapper =
-            new KotlinInlineFunctionPositionRemapper(
-                appView, positionRemapper, cfLineToMethodMapper);
-
-        for (DexEncodedMethod method : methods) {
-          kotlinRemapper.currentMethod = method;
-          List<MappedPosition> mappedPositions = new ArrayList<>();
-          Code code = method.getCode();
-          if (code != null) {
-            if (code.isDexCode() && doesContainPositions(code.asDexCode())) {
-              if (appView.options().canUseDexPcAsDebugInformation() && methods.size() == 1) {
-                optimizeDexCodePositionsForPc(method, kotlinRemapper, mappedPositions);
-              } else {
-                optimizeDexCodePositions(
-                    method, appView, kotlinRemapper, mappedPositions, identityMapping);
-              }
-            } else if (code.isCfCode()
-                && doesContainPositions(code.asCfCode())
-                && !appView.isCfByteCodePassThrough(method)) {
-              optimizeCfCodePositions(method, kotlinRemapper, mappedPositions, appView);
+    // If the class is renamed add it to the classNamingBuilder.
+    addClassToClassNaming(originalType, renamedClassName, onDemandClassNamingBuilder);
+
+    // First transfer renamed fields to classNamingBuilder.
+    addFieldsToClassNaming(
+        appView.graphLens(), namingLens, clazz, originalType, onDemandClassNamingBuilder);
+
+    // Then process the methods, ordered by renamed name.
+    List<DexString> renamedMethodNames = new ArrayList<>(methodsByRenamedName.keySet());
+    renamedMethodNames.sort(DexString::compareTo);
+    for (DexString methodName : renamedMethodNames) {
+      List<DexEncodedMethod> methods = methodsByRenamedName.get(methodName);
+      if (methods.size() > 1) {
+        // If there are multiple methods with the same name (overloaded) then sort them for
+        // deterministic behaviour: the algorithm will assign new line numbers in this order.
+        // Methods with different names can share the same line numbers, that's why they don't
+        // need to be sorted.
+        // If we are compiling to DEX we will try to not generate overloaded names. This saves
+        // space by allowing more debug-information to be canonicalized. If we have overloaded
+        // methods, we either did not rename them, we renamed them according to a supplied map or
+        // they may be bridges for interface methods with covariant return types.
+        sortMethods(methods);
+        assert verifyMethodsAreKeptDirectlyOrIndirectly(appView, methods);
+      }
+
+      boolean identityMapping =
+          appView.options().lineNumberOptimization == LineNumberOptimization.OFF;
+      PositionRemapper positionRemapper =
+          identityMapping
+              ? new IdentityPositionRemapper()
+              : new OptimizingPositionRemapper(appView.options());
+
+      // Kotlin inline functions and arguments have their inlining information stored in the
+      // source debug extension annotation. Instantiate the kotlin remapper on top of the original
+      // remapper to allow for remapping original positions to kotlin inline positions.
+      KotlinInlineFunctionPositionRemapper kotlinRemapper =
+          new KotlinInlineFunctionPositionRemapper(
+              appView, positionRemapper, cfLineToMethodMapper);
+
+      for (DexEncodedMethod method : methods) {
+        kotlinRemapper.currentMethod = method;
+        List<MappedPosition> mappedPositions = new ArrayList<>();
+        Code code = method.getCode();
+        if (code != null) {
+          if (code.isDexCode() && doesContainPositions(code.asDexCode())) {
+            if (appView.options().canUseDexPcAsDebugInformation() && methods.size() == 1) {
+              optimizeDexCodePositionsForPc(method, kotlinRemapper, mappedPositions);
+            } else {
+              optimizeDexCodePositions(
+                  method, appView, kotlinRemapper, mappedPositions, identityMapping);
             }
+          } else if (code.isCfCode()
+              && doesContainPositions(code.asCfCode())
+              && !appView.isCfByteCodePassThrough(method)) {
+            optimizeCfCodePositions(method, kotlinRemapper, mappedPositions, appView);
           }
+        }
 
-          DexMethod originalMethod =
-              appView.graphLens().getOriginalMethodSignature(method.getReference());
-          MethodSignature originalSignature =
-              MethodSignature.fromDexMethod(originalMethod, originalMethod.holder != originalType);
-
-          DexString obfuscatedNameDexString = namingLens.lookupName(method.getReference());
-          String obfuscatedName = obfuscatedNameDexString.toString();
-
-          // Add simple "a() -> b" mapping if we won't have any other with concrete line numbers
-          if (mappedPositions.isEmpty()) {
-            // But only if it's been renamed.
-            if (obfuscatedNameDexString != originalMethod.name
-                || originalMethod.holder != originalType) {
-              onDemandClassNamingBuilder
-                  .get()
-                  .addMappedRange(null, originalSignature, null, obfuscatedName);
-            }
-            continue;
+        DexMethod originalMethod =
+            appView.graphLens().getOriginalMethodSignature(method.getReference());
+        MethodSignature originalSignature =
+            MethodSignature.fromDexMethod(originalMethod, originalMethod.holder != originalType);
+
+        DexString obfuscatedNameDexString = namingLens.lookupName(method.getReference());
+        String obfuscatedName = obfuscatedNameDexString.toString();
+
+        // Add simple "a() -> b" mapping if we won't have any other with concrete line numbers
+        if (mappedPositions.isEmpty()) {
+          // But only if it's been renamed.
+          if (obfuscatedNameDexString != originalMethod.name
+              || originalMethod.holder != originalType) {
+            onDemandClassNamingBuilder
+                .get()
+                .addMappedRange(null, originalSignature, null, obfuscatedName);
           }
+          continue;
+        }
 
-          Map<DexMethod, MethodSignature> signatures = new IdentityHashMap<>();
-          signatures.put(originalMethod, originalSignature);
-          Function<DexMethod, MethodSignature> getOriginalMethodSignature =
-              m ->
-                  signatures.computeIfAbsent(
-                      m, key -> MethodSignature.fromDexMethod(m, m.holder != clazz.getType()));
-
-          MemberNaming memberNaming = new MemberNaming(originalSignature, obfuscatedName);
-          onDemandClassNamingBuilder.get().addMemberEntry(memberNaming);
-
-          // Update memberNaming with the collected positions, merging multiple positions into a
-          // single region whenever possible.
-          for (int i = 0; i < mappedPositions.size(); /* updated in body */ ) {
-            MappedPosition firstPosition = mappedPositions.get(i);
-            int j = i + 1;
-            MappedPosition lastPosition = firstPosition;
-            for (; j < mappedPositions.size(); j++) {
-              // Break if this position cannot be merged with lastPosition.
-              MappedPosition mp = mappedPositions.get(j);
-              // We allow for ranges being mapped to the same line but not to other ranges:
-              //   1:10:void foo():42:42 -> a
-              // is OK since retrace(a(:7)) = 42, however, the following is not OK:
-              //   1:10:void foo():42:43 -> a
-              // since retrace(a(:7)) = 49, which is not correct.
-              boolean isSingleLine = mp.originalLine == firstPosition.originalLine;
-              boolean differentDelta =
-                  mp.originalLine - lastPosition.originalLine
-                      != mp.obfuscatedLine - lastPosition.obfuscatedLine;
-              boolean isMappingRangeToSingleLine =
-                  firstPosition.obfuscatedLine != lastPosition.obfuscatedLine
-                      && firstPosition.originalLine == lastPosition.originalLine;
-              // Note that mp.caller and lastPosition.class must be deep-compared since multiple
-              // inlining passes lose the canonical property of the positions.
-              if (mp.method != lastPosition.method
-                  || (!isSingleLine && differentDelta)
-                  || (!isSingleLine && isMappingRangeToSingleLine)
-                  || !Objects.equals(mp.caller, lastPosition.caller)) {
-                break;
-              }
-              // The mapped positions are not guaranteed to be in order, so maintain first and last
-              // position.
-              if (firstPosition.obfuscatedLine > mp.obfuscatedLine) {
-                firstPosition = mp;
-              }
-              if (lastPosition.obfuscatedLine < mp.obfuscatedLine) {
-                lastPosition = mp;
-              }
+        Map<DexMethod, MethodSignature> signatures = new IdentityHashMap<>();
+        signatures.put(originalMethod, originalSignature);
+        Function<DexMethod, MethodSignature> getOriginalMethodSignature =
+            m ->
+                signatures.computeIfAbsent(
+                    m, key -> MethodSignature.fromDexMethod(m, m.holder != clazz.getType()));
+
+        MemberNaming memberNaming = new MemberNaming(originalSignature, obfuscatedName);
+        onDemandClassNamingBuilder.get().addMemberEntry(memberNaming);
+
+        // Update memberNaming with the collected positions, merging multiple positions into a
+        // single region whenever possible.
+        for (int i = 0; i < mappedPositions.size(); /* updated in body */ ) {
+          MappedPosition firstPosition = mappedPositions.get(i);
+          int j = i + 1;
+          MappedPosition lastPosition = firstPosition;
+          for (; j < mappedPositions.size(); j++) {
+            // Break if this position cannot be merged with lastPosition.
+            MappedPosition mp = mappedPositions.get(j);
+            // We allow for ranges being mapped to the same line but not to other ranges:
+            //   1:10:void foo():42:42 -> a
+            // is OK since retrace(a(:7)) = 42, however, the following is not OK:
+            //   1:10:void foo():42:43 -> a
+            // since retrace(a(:7)) = 49, which is not correct.
+            boolean isSingleLine = mp.originalLine == firstPosition.originalLine;
+            boolean differentDelta =
+                mp.originalLine - lastPosition.originalLine
+                    != mp.obfuscatedLine - lastPosition.obfuscatedLine;
+            boolean isMappingRangeToSingleLine =
+                firstPosition.obfuscatedLine != lastPosition.obfuscatedLine
+                    && firstPosition.originalLine == lastPosition.originalLine;
+            // Note that mp.caller and lastPosition.class must be deep-compared since multiple
+            // inlining passes lose the canonical property of the positions.
+            if (mp.method != lastPosition.method
+                || (!isSingleLine && differentDelta)
+                || (!isSingleLine && isMappingRangeToSingleLine)
+                || !Objects.equals(mp.caller, lastPosition.caller)) {
+              break;
             }
-            Range obfuscatedRange =
-                new Range(firstPosition.obfuscatedLine, lastPosition.obfuscatedLine);
-            Range originalRange = new Range(firstPosition.originalLine, lastPosition.originalLine);
-
-            ClassNaming.Builder classNamingBuilder = onDemandClassNamingBuilder.get();
+            // The mapped positions are not guaranteed to be in order, so maintain first and last
+            // position.
+            if (firstPosition.obfuscatedLine > mp.obfuscatedLine) {
+              firstPosition = mp;
+            }
+            if (lastPosition.obfuscatedLine < mp.obfuscatedLine) {
+              lastPosition = mp;
+            }
+          }
+          Range obfuscatedRange =
+              new Range(firstPosition.obfuscatedLine, lastPosition.obfuscatedLine);
+          Range originalRange = new Range(firstPosition.originalLine, lastPosition.originalLine);
+
+          ClassNaming.Builder classNamingBuilder = onDemandClassNamingBuilder.get();
+          classNamingBuilder.addMappedRange(
+              obfuscatedRange,
+              getOriginalMethodSignature.apply(firstPosition.method),
+              originalRange,
+              obfuscatedName);
+          Position caller = firstPosition.caller;
+          while (caller != null) {
             classNamingBuilder.addMappedRange(
                 obfuscatedRange,
-                getOriginalMethodSignature.apply(firstPosition.method),
-                originalRange,
+                getOriginalMethodSignature.apply(caller.method),
+                Math.max(caller.line, 0), // Prevent against "no-position".
                 obfuscatedName);
-            Position caller = firstPosition.caller;
-            while (caller != null) {
-              classNamingBuilder.addMappedRange(
-                  obfuscatedRange,
-                  getOriginalMethodSignature.apply(caller.method),
-                  Math.max(caller.line, 0), // Prevent against "no-position".
-                  obfuscatedName);
-              caller = caller.callerPosition;
-            }
-            i = j;
+            caller = caller.callerPosition;
           }
-        } // for each method of the group
-      } // for each method group, grouped by name
-    } // for each class
-    return classNameMapperBuilder.build();
+          i = j;
+        }
+      } // for each method of the group
+    } // for each method group, grouped by name
+    return classNaming.get();
   }
 
   private static boolean verifyMethodsAreKeptDirectlyOrIndirectly(
@@ -542,7 +568,7 @@ public class LineNumberOptimizer {
       Supplier<Builder> onDemandClassNamingBuilder) {
     // We do know we need to create a ClassNaming.Builder if the class itself had been renamed.
     if (originalType.descriptor != renamedClassName) {
-      // Not using return value, it's registered in classNameMapperBuilder
+      // Not using return value, it's recorded as the class naming of the class
       onDemandClassNamingBuilder.get();
     }
   }
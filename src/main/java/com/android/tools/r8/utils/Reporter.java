@@ -13,6 +13,7 @@ import com.android.tools.r8.DiagnosticsLevel;
 import com.android.tools.r8.errors.Unreachable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public class Reporter implements DiagnosticsHandler {
 
@@ -44,6 +45,8 @@ public class Reporter implements DiagnosticsHandler {
   private final DiagnosticsHandler clientHandler;
   private final List<DiagnosticsLevelMapping> diagnosticsLevelMapping = new ArrayList<>();
   private AbortException abort = null;
+  // Receives every reported diagnostic with the level at which it was reported, if set.
+  private BiConsumer<DiagnosticsLevel, Diagnostic> diagnosticsListener = null;
 
   public Reporter() {
     this(new DiagnosticsHandler() {});
@@ -54,6 +57,9 @@ public class Reporter implements DiagnosticsHandler {
   }
 
   private void handleDiagnostic(DiagnosticsLevel level, Diagnostic diagnostic) {
+    if (level != null && diagnosticsListener != null) {
+      diagnosticsListener.accept(level, diagnostic);
+    }
     // To avoid having an entry for fatal error in the public  API enum use null to signal
     // fatal error internally.
     if (level != null) {
@@ -121,6 +127,15 @@ public class Reporter implements DiagnosticsHandler {
     throw abort;
   }
 
+  /**
+   * Sets a listener that receives each subsequent info, warning and error, with the level at which
+   * it is reported, before the levels are modified by the client or the level mappings.
+   */
+  public synchronized void setDiagnosticsListener(
+      BiConsumer<DiagnosticsLevel, Diagnostic> diagnosticsListener) {
+    this.diagnosticsListener = diagnosticsListener;
+  }
+
   /** @throws AbortException if any error was reported. */
   public synchronized void failIfPendingErrors() {
     if (abort != null) {
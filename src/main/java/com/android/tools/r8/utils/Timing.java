@@ -27,7 +27,7 @@ public class Timing {
   private static final int MINIMUM_REPORT_PERCENTAGE = 2;
 
   private static final Timing EMPTY =
-      new Timing("<empty>", false) {
+      new Timing("<empty>", false, Tracer.empty()) {
         @Override
         public TimingMerger beginMerger(String title, int numberOfThreads) {
           return new TimingMerger(null, -1, this) {
@@ -70,26 +70,29 @@ public class Timing {
 
   public static Timing create(String title, InternalOptions options) {
     // We also create a timer when running assertions to validate wellformedness of the node stack.
-    return options.printTimes || InternalOptions.assertionsEnabled()
-        ? new Timing(title, options.printMemory)
+    return options.printTimes || InternalOptions.assertionsEnabled() || options.tracer.isEnabled()
+        ? new Timing(title, options.printMemory, options.tracer)
         : Timing.empty();
   }
 
   public static Timing create(String title, boolean printMemory) {
-    return new Timing(title, printMemory);
+    return new Timing(title, printMemory, Tracer.empty());
   }
 
   private final Node top;
   private final Stack<Node> stack;
   private final boolean trackMemory;
+  // Receives a span for each node when it ends.
+  private final Tracer tracer;
 
   @Deprecated
   public Timing(String title) {
-    this(title, false);
+    this(title, false, Tracer.empty());
   }
 
-  private Timing(String title, boolean trackMemory) {
+  private Timing(String title, boolean trackMemory, Tracer tracer) {
     this.trackMemory = trackMemory;
+    this.tracer = tracer;
     stack = new Stack<>();
     top = new Node(title, trackMemory);
     stack.push(top);
@@ -371,8 +374,10 @@ public class Timing {
   }
 
   public void end() {
-    stack.peek().end();  // record time.
-    stack.pop();
+    Node node = stack.pop();
+    long startTime = node.start_time;
+    node.end(); // record time.
+    tracer.span("timing", node.title, startTime);
   }
 
   public void report() {
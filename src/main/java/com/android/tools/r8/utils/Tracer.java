@@ -0,0 +1,262 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringConsumer;
+import com.google.gson.stream.JsonWriter;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects spans, counters and histograms during a compilation and writes them in the Chrome trace
+ * event format, which can be opened in chrome://tracing or https://ui.perfetto.dev.
+ *
+ * <p>Spans are recorded in a list per thread without synchronization. Counters and histograms can
+ * be updated concurrently. Callers should check {@link #isEnabled()} before computing span names or
+ * counter names, such that tracing has no cost when it is disabled.
+ */
+public class Tracer {
+
+  private static final Tracer EMPTY = new Tracer(null);
+
+  private final StringConsumer consumer;
+  private final long startNanos = System.nanoTime();
+
+  private final Queue<ThreadSpans> spansPerThread = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<ThreadSpans> spans =
+      ThreadLocal.withInitial(
+          () -> {
+            ThreadSpans threadSpans = new ThreadSpans(Thread.currentThread());
+            spansPerThread.add(threadSpans);
+            return threadSpans;
+          });
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+  private Tracer(StringConsumer consumer) {
+    this.consumer = consumer;
+  }
+
+  public static Tracer empty() {
+    return EMPTY;
+  }
+
+  public static Tracer create(StringConsumer consumer) {
+    return consumer == null ? empty() : new Tracer(consumer);
+  }
+
+  public boolean isEnabled() {
+    return this != EMPTY;
+  }
+
+  /** Records a span on the current thread from {@param startNanos} until now. */
+  public void span(String category, String name, long startNanos) {
+    if (isEnabled()) {
+      spans.get().add(category, name, startNanos, System.nanoTime());
+    }
+  }
+
+  public void increment(String counter) {
+    add(counter, 1);
+  }
+
+  public void add(String counter, long delta) {
+    if (isEnabled()) {
+      counters.computeIfAbsent(counter, ignore -> new LongAdder()).add(delta);
+    }
+  }
+
+  public void record(String histogram, long value) {
+    if (isEnabled()) {
+      histograms.computeIfAbsent(histogram, ignore -> new Histogram()).record(value);
+    }
+  }
+
+  /**
+   * Writes the trace to the consumer in chunks, such that the trace is never materialized as a
+   * single string. Must only be called once all threads have finished.
+   */
+  public void finished(DiagnosticsHandler handler) {
+    if (isEnabled()) {
+      writeChromeTraceJson(new ChunkedWriter(consumer, handler));
+      consumer.finished(handler);
+    }
+  }
+
+  private void writeChromeTraceJson(Writer output) {
+    try (JsonWriter writer = new JsonWriter(output)) {
+      long endNanos = System.nanoTime();
+      writer.beginObject();
+      writer.name("displayTimeUnit").value("ms");
+      writer.name("traceEvents").beginArray();
+      for (ThreadSpans threadSpans : spansPerThread) {
+        writer.beginObject();
+        writer.name("name").value("thread_name");
+        writer.name("ph").value("M");
+        writer.name("pid").value(1);
+        writer.name("tid").value(threadSpans.threadId);
+        writer.name("args").beginObject().name("name").value(threadSpans.threadName).endObject();
+        writer.endObject();
+        for (int i = 0; i < threadSpans.names.size(); i++) {
+          long spanStartNanos = threadSpans.times.getLong(i * 2);
+          long spanEndNanos = threadSpans.times.getLong(i * 2 + 1);
+          writer.beginObject();
+          writer.name("name").value(threadSpans.names.get(i));
+          writer.name("cat").value(threadSpans.categories.get(i));
+          writer.name("ph").value("X");
+          writer.name("ts").value(toMicros(spanStartNanos - startNanos));
+          writer.name("dur").value(toMicros(spanEndNanos - spanStartNanos));
+          writer.name("pid").value(1);
+          writer.name("tid").value(threadSpans.threadId);
+          writer.endObject();
+        }
+      }
+      // Counters are reported with their final value at the end of the trace.
+      for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+        writer.beginObject();
+        writer.name("name").value(entry.getKey());
+        writer.name("ph").value("C");
+        writer.name("ts").value(toMicros(endNanos - startNanos));
+        writer.name("pid").value(1);
+        writer.name("args").beginObject().name("value").value(entry.getValue().sum()).endObject();
+        writer.endObject();
+      }
+      writer.endArray();
+      // Trace viewers ignore unknown top-level keys, so the histograms are stored alongside.
+      writer.name("histograms").beginObject();
+      for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+        writer.name(entry.getKey());
+        entry.getValue().write(writer);
+      }
+      writer.endObject();
+      writer.endObject();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static double toMicros(long nanos) {
+    return nanos / 1000.0;
+  }
+
+  // Buffers the output of the JsonWriter and passes it on to the consumer in bounded chunks.
+  private static class ChunkedWriter extends Writer {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final StringConsumer consumer;
+    private final DiagnosticsHandler handler;
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+
+    ChunkedWriter(StringConsumer consumer, DiagnosticsHandler handler) {
+      this.consumer = consumer;
+      this.handler = handler;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      buffer.append(chars, offset, length);
+      if (buffer.length() >= CHUNK_SIZE) {
+        flushBuffer();
+      }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+      buffer.append(string, offset, offset + length);
+      if (buffer.length() >= CHUNK_SIZE) {
+        flushBuffer();
+      }
+    }
+
+    private void flushBuffer() {
+      if (buffer.length() > 0) {
+        consumer.accept(buffer.toString(), handler);
+        buffer.setLength(0);
+      }
+    }
+
+    // Chunks are only passed on when the buffer is full or the writer is closed.
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {
+      flushBuffer();
+    }
+  }
+
+  private static class ThreadSpans {
+
+    final long threadId;
+    final String threadName;
+
+    final List<String> categories = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    // The start and end time of each span.
+    final LongArrayList times = new LongArrayList();
+
+    ThreadSpans(Thread thread) {
+      this.threadId = thread.getId();
+      this.threadName = thread.getName();
+    }
+
+    void add(String category, String name, long startNanos, long endNanos) {
+      categories.add(category);
+      names.add(name);
+      times.add(startNanos);
+      times.add(endNanos);
+    }
+  }
+
+  /** Histogram with a bucket for each power of two. */
+  private static class Histogram {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    // Bucket i holds the values v where 2^(i-1) <= v < 2^i, and bucket 0 holds the values v <= 0.
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+    void record(long value) {
+      count.increment();
+      sum.add(value);
+      min.accumulate(value);
+      max.accumulate(value);
+      buckets.incrementAndGet(value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value));
+    }
+
+    void write(JsonWriter writer) throws IOException {
+      writer.beginObject();
+      writer.name("count").value(count.sum());
+      writer.name("sum").value(sum.sum());
+      writer.name("min").value(min.get());
+      writer.name("max").value(max.get());
+      // Buckets are keyed by their exclusive upper bound.
+      writer.name("buckets").beginObject();
+      for (int i = 0; i < buckets.length(); i++) {
+        long bucketCount = buckets.get(i);
+        if (bucketCount > 0) {
+          writer.name(i == Long.SIZE - 1 ? "max" : Long.toString(1L << i));
+          writer.value(bucketCount);
+        }
+      }
+      writer.endObject();
+      writer.endObject();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils.collections;
+
+import com.android.tools.r8.graph.DexReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Thread safe map from interned references to values that is indexed by the id of the references.
+ *
+ * <p>Lookups are a volatile read of an array slot. Insertions and the growing of the backing array
+ * are synchronized. Since ids are only unique among the references of the same kind, all keys of a
+ * map must be of the same kind.
+ */
+public class ConcurrentDexReferenceMap<R extends DexReference, V> {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // Replaced by a larger copy when an id outside the current array is inserted. A reader that sees
+  // an old array may miss an entry, in which case it falls back to the synchronized slow path.
+  private volatile AtomicReferenceArray<V> values = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+  public V get(R reference) {
+    int id = reference.getId();
+    AtomicReferenceArray<V> current = values;
+    return id < current.length() ? current.get(id) : null;
+  }
+
+  public V computeIfAbsent(R reference, Function<? super R, ? extends V> fn) {
+    V value = get(reference);
+    return value != null ? value : computeIfAbsentSlow(reference, fn);
+  }
+
+  private synchronized V computeIfAbsentSlow(R reference, Function<? super R, ? extends V> fn) {
+    int id = reference.getId();
+    AtomicReferenceArray<V> current = ensureCapacity(id + 1);
+    V value = current.get(id);
+    if (value == null) {
+      value = fn.apply(reference);
+      assert value != null;
+      current.set(id, value);
+    }
+    return value;
+  }
+
+  private AtomicReferenceArray<V> ensureCapacity(int capacity) {
+    AtomicReferenceArray<V> current = values;
+    if (capacity <= current.length()) {
+      return current;
+    }
+    int newLength = current.length();
+    while (newLength < capacity) {
+      newLength <<= 1;
+    }
+    AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(newLength);
+    for (int i = 0; i < current.length(); i++) {
+      grown.set(i, current.get(i));
+    }
+    values = grown;
+    return grown;
+  }
+}
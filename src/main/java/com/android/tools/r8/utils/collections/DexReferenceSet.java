@@ -0,0 +1,132 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils.collections;
+
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexReference;
+import com.android.tools.r8.graph.DexType;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of interned references that is indexed by the id of the references.
+ *
+ * <p>Membership is a lookup in a bit set, which avoids the entry objects and the identity hashing
+ * of an identity hash set. The elements are iterated in insertion order. Since ids are only unique
+ * among the references of the same kind, all elements of a set must be of the same kind.
+ *
+ * <p>The bit set is sized by the largest id of an element, which is bounded by the number of
+ * references of that kind in the factory. This set is therefore only suited for few, long-lived
+ * sets that may hold a large part of all references, and not for many small or short-lived sets.
+ */
+public class DexReferenceSet<R extends DexReference> extends AbstractSet<R> {
+
+  private final Class<R> kind;
+  private final BitSet ids = new BitSet();
+  private final List<R> items = new ArrayList<>();
+
+  private DexReferenceSet(Class<R> kind) {
+    this.kind = kind;
+  }
+
+  public static DexReferenceSet<DexType> newTypeSet() {
+    return new DexReferenceSet<>(DexType.class);
+  }
+
+  public static DexReferenceSet<DexField> newFieldSet() {
+    return new DexReferenceSet<>(DexField.class);
+  }
+
+  public static DexReferenceSet<DexMethod> newMethodSet() {
+    return new DexReferenceSet<>(DexMethod.class);
+  }
+
+  @Override
+  public boolean add(R reference) {
+    assert kind.isInstance(reference);
+    int id = reference.getId();
+    if (ids.get(id)) {
+      return false;
+    }
+    ids.set(id);
+    items.add(reference);
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object object) {
+    // A reference of another kind may have the same id as an element.
+    return kind.isInstance(object) && ids.get(kind.cast(object).getId());
+  }
+
+  @Override
+  public boolean remove(Object object) {
+    if (!contains(object)) {
+      return false;
+    }
+    ids.clear(((DexReference) object).getId());
+    // Removal is linear in the size of the set, but none of the current users remove frequently.
+    items.remove(object);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    // Clear the ids of the elements only, such that clearing is linear in the size of the set and
+    // not in the largest id.
+    for (R item : items) {
+      ids.clear(item.getId());
+    }
+    items.clear();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return items.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return items.size();
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    return new Iterator<R>() {
+
+      private int index = 0;
+      private R last = null;
+
+      @Override
+      public boolean hasNext() {
+        return index < items.size();
+      }
+
+      @Override
+      public R next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = items.get(index++);
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        ids.clear(last.getId());
+        items.remove(--index);
+        last = null;
+      }
+    };
+  }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.DescriptorUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ClassFileResourcePoolTest extends TestBase {
+
+  private final TestParameters parameters;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withApiLevel(AndroidApiLevel.B).build();
+  }
+
+  public ClassFileResourcePoolTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void testSharedProviders() throws Exception {
+    Path library = jarTestClasses(Library.class);
+    String descriptor = DescriptorUtils.javaTypeToDescriptor(Library.class.getTypeName());
+    try (ClassFileResourcePool pool = ClassFileResourcePool.create(Long.MAX_VALUE)) {
+      ClassFileResourceProvider first = pool.getArchiveProvider(library);
+      ClassFileResourceProvider second = pool.getArchiveProvider(library);
+      assertEquals(first.getClassDescriptors(), second.getClassDescriptors());
+      assertTrue(first.getClassDescriptors().contains(descriptor));
+      ProgramResource resource = first.getProgramResource(descriptor);
+      assertSame(resource, second.getProgramResource(descriptor));
+      assertEquals(resource.getBytes().length, pool.getSizeInBytes());
+    }
+  }
+
+  @Test
+  public void testNoCaching() throws Exception {
+    Path library = jarTestClasses(Library.class);
+    String descriptor = DescriptorUtils.javaTypeToDescriptor(Library.class.getTypeName());
+    try (ClassFileResourcePool pool = ClassFileResourcePool.create(0)) {
+      ClassFileResourceProvider provider = pool.getArchiveProvider(library);
+      assertArrayEquals(
+          provider.getProgramResource(descriptor).getBytes(),
+          provider.getProgramResource(descriptor).getBytes());
+      assertEquals(0, pool.getSizeInBytes());
+    }
+  }
+
+  @Test
+  public void testStaleArchiveIsClosedWithItsLastProvider() throws Exception {
+    Path library = jarTestClasses(Library.class);
+    String descriptor = DescriptorUtils.javaTypeToDescriptor(Library.class.getTypeName());
+    try (ClassFileResourcePool pool = ClassFileResourcePool.create(Long.MAX_VALUE)) {
+      ClassFileResourcePool.PooledProvider first = pool.getArchiveProvider(library);
+      ClassFileResourcePool.PooledProvider second = pool.getArchiveProvider(library);
+      changeArchive(library);
+      ClassFileResourcePool.PooledProvider changed = pool.getArchiveProvider(library);
+      assertEquals(1, pool.getNumberOfStaleArchives());
+      // The providers of the stale archive remain usable until they are closed.
+      assertNotNull(first.getProgramResource(descriptor));
+      first.close();
+      assertEquals(1, pool.getNumberOfStaleArchives());
+      second.close();
+      assertEquals(0, pool.getNumberOfStaleArchives());
+      assertNotNull(changed.getProgramResource(descriptor));
+    }
+  }
+
+  @Test
+  public void testUnusedStaleArchiveIsClosed() throws Exception {
+    Path library = jarTestClasses(Library.class);
+    try (ClassFileResourcePool pool = ClassFileResourcePool.create(Long.MAX_VALUE)) {
+      pool.getArchiveProvider(library).close();
+      changeArchive(library);
+      pool.getArchiveProvider(library);
+      assertEquals(0, pool.getNumberOfStaleArchives());
+    }
+  }
+
+  @Test
+  public void testCompilations() throws Exception {
+    Path library = jarTestClasses(Library.class);
+    try (ClassFileResourcePool pool = ClassFileResourcePool.create(Long.MAX_VALUE)) {
+      for (int i = 0; i < 2; i++) {
+        testForD8(parameters.getBackend())
+            .addProgramClasses(Main.class)
+            .addLibraryProvider(
+                pool.getArchiveProvider(ToolHelper.getAndroidJar(parameters.getApiLevel())))
+            .addClasspathFiles(library)
+            .setMinApi(parameters.getApiLevel())
+            .compile()
+            .addRunClasspathClasses(Library.class)
+            .run(parameters.getRuntime(), Main.class)
+            .assertSuccessWithOutputLines("Hello, world!");
+      }
+      assertTrue(pool.getSizeInBytes() > 0);
+    }
+  }
+
+  private void changeArchive(Path archive) throws Exception {
+    FileTime lastModifiedTime = Files.getLastModifiedTime(archive);
+    Files.copy(jarTestClasses(Library.class, Main.class), archive, REPLACE_EXISTING);
+    Files.setLastModifiedTime(archive, FileTime.fromMillis(lastModifiedTime.toMillis() + 1000));
+  }
+
+  static class Library {
+
+    static String greeting() {
+      return "Hello, world!";
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println(Library.greeting());
+    }
+  }
+}
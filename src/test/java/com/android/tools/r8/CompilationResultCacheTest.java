@@ -0,0 +1,163 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8;
+
+import static com.android.tools.r8.DiagnosticsMatcher.diagnosticMessage;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.FileUtils;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.io.ByteStreams;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class CompilationResultCacheTest extends TestBase {
+
+  private static final String REUSED = "Reused the compilation result";
+  private static final String COMPILER = "compiler";
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public CompilationResultCacheTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private String keepMain() {
+    // Keep A with obfuscation allowed, such that the mapping file is not empty.
+    return StringUtils.lines(
+        keepMainProguardConfiguration(Main.class),
+        "-keep,allowobfuscation class " + A.class.getTypeName() + " { *; }",
+        "-ignorewarnings");
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    TestDiagnosticMessagesImpl firstDiagnostics = new TestDiagnosticMessagesImpl();
+    Path first = compile(cache, COMPILER, keepMain(), firstDiagnostics);
+    assertThat(firstDiagnostics.getInfos(), not(hasReusedInfo()));
+    // The missing class is reported as a warning during the compilation.
+    assertFalse(firstDiagnostics.getWarnings().isEmpty());
+
+    TestDiagnosticMessagesImpl secondDiagnostics = new TestDiagnosticMessagesImpl();
+    Path second = compile(cache, COMPILER, keepMain(), secondDiagnostics);
+    assertThat(secondDiagnostics.getInfos(), hasReusedInfo());
+    assertEquals(
+        getMessages(firstDiagnostics.getWarnings()), getMessages(secondDiagnostics.getWarnings()));
+    assertEquals(
+        FileUtils.readAllLines(first.resolveSibling("mapping.txt")),
+        FileUtils.readAllLines(second.resolveSibling("mapping.txt")));
+    assertSameDex(first, second);
+  }
+
+  @Test
+  public void testChangedKeepRules() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, COMPILER, keepMain(), new TestDiagnosticMessagesImpl());
+    TestDiagnosticMessagesImpl diagnostics = new TestDiagnosticMessagesImpl();
+    compile(cache, COMPILER, keepMain() + "-dontobfuscate\n", diagnostics);
+    assertThat(diagnostics.getInfos(), not(hasReusedInfo()));
+  }
+
+  @Test
+  public void testChangedCompiler() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, COMPILER, keepMain(), new TestDiagnosticMessagesImpl());
+    TestDiagnosticMessagesImpl diagnostics = new TestDiagnosticMessagesImpl();
+    compile(cache, "other " + COMPILER, keepMain(), diagnostics);
+    assertThat(diagnostics.getInfos(), not(hasReusedInfo()));
+  }
+
+  private Path compile(
+      Path cache,
+      String compilerIdentity,
+      String keepRules,
+      TestDiagnosticMessagesImpl diagnostics)
+      throws Exception {
+    Path directory = temp.newFolder().toPath();
+    Path output = directory.resolve("out.zip");
+    R8Command command =
+        R8Command.builder(diagnostics)
+            .addProgramFiles(
+                ToolHelper.getClassFileForTestClass(A.class),
+                ToolHelper.getClassFileForTestClass(Main.class))
+            .addLibraryFiles(ToolHelper.getAndroidJar(AndroidApiLevel.B))
+            .addProguardConfiguration(StringUtils.splitLines(keepRules), Origin.unknown())
+            .setMinApiLevel(AndroidApiLevel.B.getLevel())
+            .setProguardMapOutputPath(directory.resolve("mapping.txt"))
+            .setOutput(output, OutputMode.DexIndexed)
+            .setCompilationResultCache(cache, 1 << 20)
+            .build();
+    ToolHelper.runR8WithoutResult(
+        command, options -> options.testing.compilerIdentity = compilerIdentity);
+    return output;
+  }
+
+  private static Matcher<Iterable<? super Diagnostic>> hasReusedInfo() {
+    return hasItem(diagnosticMessage(containsString(REUSED)));
+  }
+
+  private static List<String> getMessages(List<Diagnostic> diagnostics) {
+    return diagnostics.stream()
+        .map(diagnostic -> diagnostic.getOrigin() + ": " + diagnostic.getDiagnosticMessage())
+        .collect(Collectors.toList());
+  }
+
+  private static void assertSameDex(Path first, Path second) throws Exception {
+    List<ProgramResource> firstDex =
+        AndroidApp.builder().addProgramFiles(first).build().getDexProgramResourcesForTesting();
+    List<ProgramResource> secondDex =
+        AndroidApp.builder().addProgramFiles(second).build().getDexProgramResourcesForTesting();
+    assertEquals(firstDex.size(), secondDex.size());
+    for (int i = 0; i < firstDex.size(); i++) {
+      assertArrayEquals(
+          ByteStreams.toByteArray(firstDex.get(i).getByteStream()),
+          ByteStreams.toByteArray(secondDex.get(i).getByteStream()));
+    }
+  }
+
+  // Not passed to the compilation, such that a missing class warning is reported.
+  static class Missing {
+
+    static void foo() {
+      System.out.println("Missing");
+    }
+  }
+
+  static class A {
+
+    void bar() {
+      System.out.println("A");
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello, world!");
+      new A().bar();
+      if (args.length > 0) {
+        Missing.foo();
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.cf.stackmap;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestDiagnosticMessagesImpl;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.cf.code.CfInstruction;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.CfCode;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.GraphLens.ClearCodeRewritingGraphLens;
+import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.ir.code.NumberGenerator;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.conversion.OneTimeMethodProcessor;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Reporter;
+import com.android.tools.r8.utils.Timing;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Tests that the stack map status of class file code is reused when IR is built again for the same
+ * method under the same graph lens, and recomputed otherwise.
+ */
+@RunWith(Parameterized.class)
+public class StackMapStatusReuseTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public StackMapStatusReuseTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private final TestDiagnosticMessagesImpl diagnostics = new TestDiagnosticMessagesImpl();
+
+  private AppView<AppInfo> appView;
+  private ProgramMethod caller;
+  private ProgramMethod callee;
+  private CfCode code;
+
+  @Before
+  public void setUp() throws Exception {
+    // The code of the callee has a jump but no stack map frames, which is reported as a warning.
+    AndroidApp app =
+        AndroidApp.builder()
+            .addClassProgramData(
+                transformer(Callee.class).stripFrames("callee").transform(), Origin.unknown())
+            .build();
+    InternalOptions options = new InternalOptions(new DexItemFactory(), new Reporter(diagnostics));
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    options.testing.readInputStackMaps = true;
+    appView =
+        AppView.createForD8(
+            AppInfo.createInitialAppInfo(
+                new ApplicationReader(app, options, Timing.empty()).read()));
+    DexProgramClass clazz = appView.appInfo().classes().iterator().next();
+    caller = clazz.lookupProgramMethod(getMethod("caller"));
+    callee = clazz.lookupProgramMethod(getMethod("callee"));
+    code = callee.getDefinition().getCode().asCfCode();
+  }
+
+  @Test
+  public void testWarningReportedOnceForInlinee() {
+    for (int i = 0; i < 3; i++) {
+      buildInliningIR();
+    }
+    assertEquals(1, diagnostics.getWarnings().size());
+    code.buildIR(callee, appView, Origin.unknown());
+    assertEquals(1, diagnostics.getWarnings().size());
+  }
+
+  @Test
+  public void testStatusRecomputedAfterSetInstructions() {
+    List<CfInstruction> instructions = new ArrayList<>(code.getInstructions());
+    code.buildIR(callee, appView, Origin.unknown());
+    assertEquals(1, diagnostics.getWarnings().size());
+    code.setInstructions(instructions);
+    code.buildIR(callee, appView, Origin.unknown());
+    assertEquals(2, diagnostics.getWarnings().size());
+    buildInliningIR();
+    assertEquals(2, diagnostics.getWarnings().size());
+  }
+
+  @Test
+  public void testStatusRecomputedUnderNewGraphLens() {
+    buildInliningIR();
+    assertEquals(1, diagnostics.getWarnings().size());
+    appView.setGraphLens(
+        new ClearCodeRewritingGraphLens(appView.dexItemFactory(), appView.graphLens()));
+    buildInliningIR();
+    assertEquals(2, diagnostics.getWarnings().size());
+    buildInliningIR();
+    assertEquals(2, diagnostics.getWarnings().size());
+  }
+
+  private void buildInliningIR() {
+    code.buildInliningIR(
+        caller,
+        callee,
+        appView,
+        new NumberGenerator(),
+        Position.noneWithMethod(caller.getReference(), null),
+        Origin.unknown(),
+        OneTimeMethodProcessor.create(caller, appView));
+  }
+
+  private DexMethod getMethod(String name) throws Exception {
+    return buildMethod(
+        Callee.class.getDeclaredMethod(name, boolean.class), appView.dexItemFactory());
+  }
+
+  static class Callee {
+
+    static int callee(boolean b) {
+      if (b) {
+        return 1;
+      }
+      return 2;
+    }
+
+    static int caller(boolean b) {
+      return callee(b) + callee(!b);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.classmerging.horizontal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.NeverClassInline;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.R8TestCompileResult;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.StreamUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Checks that applying the horizontal class merging policies and merges in parallel gives the same
+ * merge groups, graph lens and output as a sequential compilation.
+ */
+@RunWith(Parameterized.class)
+public class ParallelPolicyExecutionTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ParallelPolicyExecutionTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void test() throws Exception {
+    Map<String, Set<String>> sequentialMergeGroups = new TreeMap<>();
+    R8TestCompileResult sequential = compile(1, sequentialMergeGroups);
+    // The classes are merged into one group per shape of the instance fields.
+    assertEquals(3, sequentialMergeGroups.size());
+    for (int i = 0; i < 3; i++) {
+      Map<String, Set<String>> parallelMergeGroups = new TreeMap<>();
+      R8TestCompileResult parallel = compile(4, parallelMergeGroups);
+      assertEquals(sequentialMergeGroups, parallelMergeGroups);
+      // The mapping file reflects the field and method mappings of the graph lens.
+      assertEquals(sequential.getProguardMap(), parallel.getProguardMap());
+      assertProgramsEqual(sequential, parallel);
+    }
+  }
+
+  private R8TestCompileResult compile(int threadCount, Map<String, Set<String>> mergeGroups)
+      throws Exception {
+    return testForR8(Backend.DEX)
+        .addInnerClasses(getClass())
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(options -> options.threadCount = threadCount)
+        .addHorizontallyMergedClassesInspector(
+            inspector ->
+                inspector.forEachMergeGroup(
+                    (sources, target) -> {
+                      Set<String> group = new TreeSet<>();
+                      for (DexType source : sources) {
+                        group.add(source.getTypeName());
+                      }
+                      assertTrue(mergeGroups.put(target.getTypeName(), group) == null);
+                    }))
+        .enableInliningAnnotations()
+        .enableNeverClassInliningAnnotations()
+        .setMinApi(AndroidApiLevel.B)
+        .compile();
+  }
+
+  private static void assertProgramsEqual(
+      R8TestCompileResult expected, R8TestCompileResult actual) throws Exception {
+    List<byte[]> expectedDex = getDex(expected);
+    List<byte[]> actualDex = getDex(actual);
+    assertEquals(expectedDex.size(), actualDex.size());
+    for (int i = 0; i < expectedDex.size(); i++) {
+      assertArrayEquals(expectedDex.get(i), actualDex.get(i));
+    }
+  }
+
+  private static List<byte[]> getDex(R8TestCompileResult compileResult) throws Exception {
+    List<byte[]> dex = new ArrayList<>();
+    for (ProgramResource resource : compileResult.app.getDexProgramResourcesForTesting()) {
+      dex.add(StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
+    }
+    return dex;
+  }
+
+  @NeverClassInline
+  public static class A {
+
+    @NeverInline
+    public void foo() {
+      System.out.println("A");
+    }
+  }
+
+  @NeverClassInline
+  public static class B {
+
+    @NeverInline
+    public void foo() {
+      System.out.println("B");
+    }
+  }
+
+  @NeverClassInline
+  public static class C {
+
+    @NeverInline
+    public void foo() {
+      System.out.println("C");
+    }
+  }
+
+  @NeverClassInline
+  public static class D {
+
+    int field;
+
+    public D(int field) {
+      this.field = field;
+    }
+
+    @NeverInline
+    public void foo() {
+      System.out.println("D" + field);
+    }
+  }
+
+  @NeverClassInline
+  public static class E {
+
+    int field;
+
+    public E(int field) {
+      this.field = field;
+    }
+
+    @NeverInline
+    public void foo() {
+      System.out.println("E" + field);
+    }
+  }
+
+  @NeverClassInline
+  public static class F {
+
+    String field;
+
+    public F(String field) {
+      this.field = field;
+    }
+
+    @NeverInline
+    public void foo() {
+      System.out.println("F" + field);
+    }
+  }
+
+  @NeverClassInline
+  public static class G {
+
+    String field;
+
+    public G(String field) {
+      this.field = field;
+    }
+
+    @NeverInline
+    public void foo() {
+      System.out.println("G" + field);
+    }
+  }
+
+  public static class Main {
+
+    public static void main(String[] args) {
+      new A().foo();
+      new B().foo();
+      new C().foo();
+      new D(args.length).foo();
+      new E(args.length).foo();
+      new F(String.valueOf(args.length)).foo();
+      new G(String.valueOf(args.length)).foo();
+    }
+  }
+}
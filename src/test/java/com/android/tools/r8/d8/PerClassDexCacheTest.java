@@ -0,0 +1,158 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.d8;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.DexFilePerClassFileConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.transformers.ClassFileTransformer.MethodPredicate;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.DescriptorUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class PerClassDexCacheTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public PerClassDexCacheTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    Map<String, byte[]> uncached = compile(cache, Long.MAX_VALUE, getProgramClassFileData());
+    assertEquals(uncached.size(), countEntries(cache));
+    Map<String, byte[]> cached = compile(cache, Long.MAX_VALUE, getProgramClassFileData());
+    assertOutputEquals(uncached, cached);
+    assertEquals(uncached.size(), countEntries(cache));
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    Map<String, byte[]> output = compile(cache, 1, getProgramClassFileData());
+    assertEquals(3, output.size());
+    assertEquals(0, countEntries(cache));
+  }
+
+  @Test
+  public void testChangedInterface() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    Map<String, byte[]> before = compile(cache, Long.MAX_VALUE, getProgramClassFileData());
+    // A inherits the desugared default method of I, so changing I must recompile A.
+    byte[] changedI =
+        transformer(I.class).renameMethod(MethodPredicate.onName("greet"), "hello").transform();
+    byte[][] changedProgram = getProgramClassFileData(changedI);
+    Map<String, byte[]> cached = compile(cache, Long.MAX_VALUE, changedProgram);
+    Map<String, byte[]> uncached = compile(null, Long.MAX_VALUE, changedProgram);
+    assertOutputEquals(uncached, cached);
+    String descriptorOfA = DescriptorUtils.javaTypeToDescriptor(A.class.getTypeName());
+    assertFalse(Arrays.equals(before.get(descriptorOfA), cached.get(descriptorOfA)));
+  }
+
+  @Test
+  public void testChangedCompiler() throws Exception {
+    Path cache = temp.newFolder().toPath();
+    compile(cache, Long.MAX_VALUE, "compiler", getProgramClassFileData());
+    assertEquals(3, countEntries(cache));
+    // Each class gets a new entry, since no entry of the other compiler is reused.
+    compile(cache, Long.MAX_VALUE, "other compiler", getProgramClassFileData());
+    assertEquals(6, countEntries(cache));
+  }
+
+  private static byte[][] getProgramClassFileData() throws IOException {
+    return getProgramClassFileData(ToolHelper.getClassAsBytes(I.class));
+  }
+
+  private static byte[][] getProgramClassFileData(byte[] classFileDataForI) throws IOException {
+    return new byte[][] {
+      classFileDataForI, ToolHelper.getClassAsBytes(A.class), ToolHelper.getClassAsBytes(Main.class)
+    };
+  }
+
+  private static void assertOutputEquals(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    for (String descriptor : expected.keySet()) {
+      assertArrayEquals(expected.get(descriptor), actual.get(descriptor));
+    }
+  }
+
+  private Map<String, byte[]> compile(Path cache, long maximumSizeInBytes, byte[]... program)
+      throws Exception {
+    return compile(cache, maximumSizeInBytes, "compiler", program);
+  }
+
+  private Map<String, byte[]> compile(
+      Path cache, long maximumSizeInBytes, String compilerIdentity, byte[]... program)
+      throws Exception {
+    Map<String, byte[]> output = new ConcurrentHashMap<>();
+    testForD8()
+        .addProgramClassFileData(program)
+        .setMinApi(AndroidApiLevel.B)
+        .setProgramConsumer(
+            new DexFilePerClassFileConsumer.ForwardingConsumer(null) {
+              @Override
+              public void accept(
+                  String primaryClassDescriptor,
+                  ByteDataView data,
+                  Set<String> descriptors,
+                  DiagnosticsHandler handler) {
+                output.put(primaryClassDescriptor, data.copyByteData());
+              }
+            })
+        .addOptionsModification(options -> options.testing.compilerIdentity = compilerIdentity)
+        .applyIf(
+            cache != null,
+            b -> b.getBuilder().setPerClassDexCache(cache, maximumSizeInBytes))
+        .compile();
+    return output;
+  }
+
+  private static long countEntries(Path cache) throws IOException {
+    try (Stream<Path> files = Files.list(cache)) {
+      return files.filter(file -> file.toString().endsWith(".dexentry")).count();
+    }
+  }
+
+  interface I {
+
+    // Gives rise to a companion class, which is combined with the output for I.
+    default void greet() {
+      System.out.println("Hello, world!");
+    }
+  }
+
+  static class A implements I {}
+
+  static class Main {
+
+    public static void main(String[] args) {
+      Runnable runnable = () -> new A().greet();
+      runnable.run();
+    }
+  }
+}
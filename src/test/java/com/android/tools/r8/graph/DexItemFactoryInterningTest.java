@@ -0,0 +1,131 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.errors.CompilationError;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+public class DexItemFactoryInterningTest {
+
+  private static final int NUMBER_OF_THREADS = 4;
+  private static final int NUMBER_OF_MEMBERS = 1000;
+  private static final String INVALID_NAME = "";
+
+  private final DexItemFactory factory = new DexItemFactory();
+  private final DexType holder = factory.createType("LHolder;");
+
+  @Test
+  public void testConcurrentFieldInterning() throws Exception {
+    int firstId = createField("before").getId();
+    List<List<DexField>> results =
+        runOnAllThreads(
+            () -> {
+              List<DexField> fields = new ArrayList<>(NUMBER_OF_MEMBERS);
+              for (int i = 0; i < NUMBER_OF_MEMBERS; i++) {
+                fields.add(createField("f" + i));
+              }
+              return fields;
+            });
+    for (List<DexField> fields : results) {
+      for (int i = 0; i < NUMBER_OF_MEMBERS; i++) {
+        assertSame(results.get(0).get(i), fields.get(i));
+      }
+    }
+    // Only the interned fields take an id, even when several threads race to intern a field.
+    assertEquals(firstId + NUMBER_OF_MEMBERS + 1, createField("after").getId());
+  }
+
+  @Test
+  public void testConcurrentMethodInterning() throws Exception {
+    int firstId = createMethod("before").getId();
+    List<List<DexMethod>> results =
+        runOnAllThreads(
+            () -> {
+              List<DexMethod> methods = new ArrayList<>(NUMBER_OF_MEMBERS);
+              for (int i = 0; i < NUMBER_OF_MEMBERS; i++) {
+                methods.add(createMethod("m" + i));
+              }
+              return methods;
+            });
+    for (List<DexMethod> methods : results) {
+      for (int i = 0; i < NUMBER_OF_MEMBERS; i++) {
+        assertSame(results.get(0).get(i), methods.get(i));
+      }
+    }
+    assertEquals(firstId + NUMBER_OF_MEMBERS + 1, createMethod("after").getId());
+  }
+
+  @Test
+  public void testStringInterning() {
+    // Strings with one, two and three byte encodings, and strings that only differ in their length.
+    String[] strings = {
+      "", "a", "ab", "\u0000", "\u00e9", "a\u00e9", "\u20ac", "\u20aca", "\ud83d\ude00"
+    };
+    for (String string : strings) {
+      DexString created = factory.createString(string);
+      DexString encoded = factory.createString(string.length(), DexString.encodeToMutf8(string));
+      assertSame(created, encoded);
+      assertSame(created, factory.createString(string));
+      assertEquals(string, created.toString());
+      assertEquals(created.computeHashCode(), DexString.computeHashCode(string));
+      for (String other : strings) {
+        assertEquals(string.equals(other), created.isEncodingOf(other));
+      }
+    }
+  }
+
+  @Test(expected = CompilationError.class)
+  public void testInvalidFieldName() {
+    createField(INVALID_NAME);
+  }
+
+  @Test(expected = CompilationError.class)
+  public void testInvalidMethodName() {
+    createMethod(INVALID_NAME);
+  }
+
+  @Test
+  public void testInvalidNameIsNotInterned() {
+    int firstId = createMethod("before").getId();
+    for (int i = 0; i < 2; i++) {
+      try {
+        createMethod(INVALID_NAME);
+      } catch (CompilationError e) {
+        // Expected.
+      }
+    }
+    assertEquals(firstId + 1, createMethod("after").getId());
+  }
+
+  private DexField createField(String name) {
+    return factory.createField(holder, factory.intType, name);
+  }
+
+  private DexMethod createMethod(String name) {
+    return factory.createMethod(holder, factory.createProto(factory.voidType), name);
+  }
+
+  private static <T> List<T> runOnAllThreads(Supplier<T> supplier) throws Exception {
+    ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    try {
+      List<Integer> threads = new ArrayList<>();
+      for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+        threads.add(i);
+      }
+      return new ArrayList<>(
+          ThreadUtils.processItemsWithResults(threads, thread -> supplier.get(), executorService));
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}
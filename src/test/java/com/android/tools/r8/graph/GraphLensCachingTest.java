@@ -0,0 +1,148 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.GraphLens.ClearCodeRewritingGraphLens;
+import com.android.tools.r8.graph.GraphLens.NonIdentityGraphLens;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.collections.BidirectionalManyToOneRepresentativeHashMap;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class GraphLensCachingTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public GraphLensCachingTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private AppView<AppInfo> appView;
+  private DexType a;
+  private DexType b;
+  private DexType c;
+  private DexType d;
+
+  @Before
+  public void setUp() throws Exception {
+    appView = computeAppView(AndroidApp.builder().build());
+    a = createType("A");
+    b = createType("B");
+    c = createType("C");
+    d = createType("D");
+  }
+
+  private DexType createType(String name) {
+    return appView.dexItemFactory().createType("L" + name + ";");
+  }
+
+  private DexField createField(DexType holder) {
+    DexItemFactory factory = appView.dexItemFactory();
+    return factory.createField(holder, factory.intType, "f");
+  }
+
+  // Creates a nested lens that maps `from` to `to` on top of the current graph lens, and makes it
+  // the graph lens of the application.
+  private NonIdentityGraphLens pushLens(DexType from, DexType to) {
+    BidirectionalManyToOneRepresentativeHashMap<DexField, DexField> fieldMap =
+        BidirectionalManyToOneRepresentativeHashMap.newIdentityHashMap();
+    fieldMap.put(createField(from), createField(to));
+    NonIdentityGraphLens lens = new TestLens(appView, fieldMap, ImmutableMap.of(from, to));
+    appView.setGraphLens(lens);
+    return lens;
+  }
+
+  @Test
+  public void testCachedLookups() {
+    pushLens(a, b);
+    NonIdentityGraphLens lens = pushLens(b, c);
+    assertFalse(lens.hasCachedLookups());
+    assertSame(c, lens.lookupClassType(a));
+    assertSame(createField(c), lens.lookupField(createField(b)));
+    assertTrue(lens.hasCachedLookups());
+    assertSame(c, lens.lookupClassType(a));
+    assertSame(createField(c), lens.lookupField(createField(b)));
+    assertSame(d, lens.lookupClassType(d));
+  }
+
+  @Test
+  public void testSupersededLensDropsCache() {
+    pushLens(a, b);
+    NonIdentityGraphLens lens = pushLens(b, c);
+    assertSame(c, lens.lookupClassType(a));
+    assertTrue(lens.hasCachedLookups());
+
+    NonIdentityGraphLens newLens = pushLens(c, d);
+    assertFalse(lens.hasCachedLookups());
+    assertSame(c, lens.lookupClassType(a));
+    assertFalse(lens.hasCachedLookups());
+    assertSame(d, newLens.lookupClassType(a));
+    assertTrue(newLens.hasCachedLookups());
+  }
+
+  @Test
+  public void testNonNestedLensBelowCachingLens() {
+    pushLens(a, b);
+    ClearCodeRewritingGraphLens clearCodeRewritingLens =
+        new ClearCodeRewritingGraphLens(appView.dexItemFactory(), appView.graphLens());
+    appView.setGraphLens(clearCodeRewritingLens);
+    NonIdentityGraphLens lens = pushLens(b, c);
+    for (int i = 0; i < 2; i++) {
+      assertSame(b, clearCodeRewritingLens.lookupClassType(a));
+      assertSame(c, lens.lookupClassType(a));
+      assertSame(c, lens.lookupClassType(b));
+      // The clear code rewriting lens hides the field mappings of the lenses below it.
+      assertSame(createField(a), lens.lookupField(createField(a)));
+      assertSame(createField(c), lens.lookupField(createField(b)));
+    }
+    assertFalse(clearCodeRewritingLens.hasCachedLookups());
+  }
+
+  @Test
+  public void testAlternativeParentLens() {
+    // Simulates AppView.rewriteWithLens, where the lens that maps A to B has been applied and is
+    // temporarily replaced by the identity lens.
+    pushLens(a, b);
+    NonIdentityGraphLens firstUnappliedLens = pushLens(b, c);
+    NonIdentityGraphLens lens = pushLens(c, d);
+    assertSame(d, lens.lookupClassType(a));
+    assertSame(c, firstUnappliedLens.lookupClassType(a));
+    lens.withAlternativeParentLens(
+        firstUnappliedLens,
+        GraphLens.getIdentityLens(),
+        () -> {
+          assertSame(a, lens.lookupClassType(a));
+          assertSame(d, lens.lookupClassType(b));
+          assertEquals(createField(a), lens.lookupField(createField(a)));
+        });
+    assertSame(d, lens.lookupClassType(a));
+    assertSame(d, lens.lookupClassType(b));
+    assertSame(createField(d), lens.lookupField(createField(a)));
+  }
+
+  private static class TestLens extends NestedGraphLens {
+
+    TestLens(
+        AppView<?> appView,
+        BidirectionalManyToOneRepresentativeHashMap<DexField, DexField> fieldMap,
+        ImmutableMap<DexType, DexType> typeMap) {
+      super(appView, fieldMap, EMPTY_METHOD_MAP, typeMap);
+    }
+  }
+}
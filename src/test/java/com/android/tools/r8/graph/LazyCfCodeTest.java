@@ -0,0 +1,193 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.cf.code.CfInstruction;
+import com.android.tools.r8.dex.ApplicationReader;
+import com.android.tools.r8.graph.JarClassFileReader.ReparseContext;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.Timing;
+import com.google.common.collect.ImmutableList;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+@RunWith(Parameterized.class)
+public class LazyCfCodeTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public LazyCfCodeTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testParseSingleMethod() throws Exception {
+    Map<String, LazyCfCode> codes = readCodes(ToolHelper.getClassAsBytes(A.class));
+    ReparseContext context = codes.get("foo").getReparseContextForTesting();
+    assertNotNull(context);
+
+    LazyCfCode.parseCode(ImmutableList.of(codes.get("foo")));
+    assertParsed(codes.get("foo"));
+    assertNotParsed(codes.get("<init>"));
+    assertNotParsed(codes.get("bar"));
+    assertNotParsed(codes.get("baz"));
+    assertNotNull(context.classCache);
+  }
+
+  @Test
+  public void testClassContentReleased() throws Exception {
+    Map<String, LazyCfCode> codes = readCodes(ToolHelper.getClassAsBytes(A.class));
+    ReparseContext context = codes.get("foo").getReparseContextForTesting();
+
+    LazyCfCode.parseCode(ImmutableList.of(codes.get("foo")));
+    LazyCfCode.parseCode(ImmutableList.of(codes.get("<init>"), codes.get("bar")));
+    assertParsed(codes.get("<init>"));
+    assertParsed(codes.get("bar"));
+    assertNotParsed(codes.get("baz"));
+    assertNotNull(context.classCache);
+
+    // The content of the class is released once the code of the last method has been parsed.
+    LazyCfCode.parseCode(ImmutableList.of(codes.get("baz")));
+    codes.values().forEach(LazyCfCodeTest::assertParsed);
+    assertNull(context.classCache);
+  }
+
+  @Test
+  public void testAsCfCodeParsesRemainingMethods() throws Exception {
+    Map<String, LazyCfCode> codes = readCodes(ToolHelper.getClassAsBytes(A.class));
+    ReparseContext context = codes.get("foo").getReparseContextForTesting();
+
+    LazyCfCode.parseCode(ImmutableList.of(codes.get("foo")));
+    CfCode code = codes.get("foo").asCfCode();
+    assertNotParsed(codes.get("bar"));
+
+    // Outside of a batch, the code of all remaining methods of the class is parsed in one pass.
+    codes.get("bar").asCfCode();
+    codes.values().forEach(LazyCfCodeTest::assertParsed);
+    assertNull(context.classCache);
+    assertSame(code, codes.get("foo").asCfCode());
+  }
+
+  @Test
+  public void testParseMethodsWithJsr() throws Exception {
+    Map<String, LazyCfCode> codes = readCodes(JsrDump.dump());
+    ReparseContext context = codes.get("before").getReparseContextForTesting();
+
+    // The code of the methods before the JSR instruction is parsed in the first pass, and the
+    // code of the remaining methods is parsed again with the JSR inliner.
+    LazyCfCode.parseCode(codes.values());
+    codes.values().forEach(LazyCfCodeTest::assertParsed);
+    assertNull(context.classCache);
+    for (LazyCfCode code : codes.values()) {
+      assertTrue(code.asCfCode().getInstructions().stream().anyMatch(CfInstruction::isReturn));
+    }
+  }
+
+  @Test
+  public void testParseSingleMethodWithJsr() throws Exception {
+    Map<String, LazyCfCode> codes = readCodes(JsrDump.dump());
+    LazyCfCode.parseCode(ImmutableList.of(codes.get("jsr")));
+    assertParsed(codes.get("jsr"));
+    assertNotParsed(codes.get("before"));
+    assertNotParsed(codes.get("after"));
+  }
+
+  private static void assertParsed(LazyCfCode code) {
+    assertNull(code.getReparseContextForTesting());
+  }
+
+  private static void assertNotParsed(LazyCfCode code) {
+    assertNotNull(code.getReparseContextForTesting());
+  }
+
+  private static Map<String, LazyCfCode> readCodes(byte[] classFileData) throws Exception {
+    AndroidApp app =
+        AndroidApp.builder().addClassProgramData(classFileData, Origin.unknown()).build();
+    InternalOptions options = new InternalOptions();
+    options.programConsumer = DexIndexedConsumer.emptyConsumer();
+    DexApplication application = new ApplicationReader(app, options, Timing.empty()).read();
+    Map<String, LazyCfCode> codes = new HashMap<>();
+    for (DexEncodedMethod method : application.classes().iterator().next().methods()) {
+      codes.put(method.getName().toString(), method.getCode().asLazyCfCode());
+    }
+    return codes;
+  }
+
+  static class A {
+
+    int foo() {
+      return 1;
+    }
+
+    int bar() {
+      return 2;
+    }
+
+    int baz() {
+      return 3;
+    }
+  }
+
+  // A class file with a JSR instruction in the method jsr, which is between the methods before and
+  // after.
+  static class JsrDump implements Opcodes {
+
+    static byte[] dump() {
+      ClassWriter classWriter = new ClassWriter(0);
+      classWriter.visit(V1_4, ACC_PUBLIC | ACC_SUPER, "Jsr", null, "java/lang/Object", null);
+
+      MethodVisitor methodVisitor =
+          classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "before", "()I", null, null);
+      methodVisitor.visitCode();
+      methodVisitor.visitInsn(ICONST_1);
+      methodVisitor.visitInsn(IRETURN);
+      methodVisitor.visitMaxs(1, 0);
+      methodVisitor.visitEnd();
+
+      methodVisitor = classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "jsr", "()V", null, null);
+      methodVisitor.visitCode();
+      Label subroutine = new Label();
+      methodVisitor.visitJumpInsn(JSR, subroutine);
+      methodVisitor.visitInsn(RETURN);
+      methodVisitor.visitLabel(subroutine);
+      methodVisitor.visitVarInsn(ASTORE, 0);
+      methodVisitor.visitVarInsn(RET, 0);
+      methodVisitor.visitMaxs(1, 1);
+      methodVisitor.visitEnd();
+
+      methodVisitor =
+          classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "after", "()I", null, null);
+      methodVisitor.visitCode();
+      methodVisitor.visitInsn(ICONST_2);
+      methodVisitor.visitInsn(IRETURN);
+      methodVisitor.visitMaxs(1, 0);
+      methodVisitor.visitEnd();
+
+      classWriter.visitEnd();
+      return classWriter.toByteArray();
+    }
+  }
+}
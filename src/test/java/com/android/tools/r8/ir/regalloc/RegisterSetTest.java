@@ -0,0 +1,69 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.ir.regalloc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.junit.Test;
+
+public class RegisterSetTest {
+
+  private static IntList toList(IntIterator iterator) {
+    IntList result = new IntArrayList();
+    while (iterator.hasNext()) {
+      result.add(iterator.nextInt());
+    }
+    return result;
+  }
+
+  private static RegisterSet create(int... registers) {
+    RegisterSet set = new RegisterSet();
+    for (int register : registers) {
+      set.add(register);
+    }
+    return set;
+  }
+
+  @Test
+  public void testAddRemove() {
+    RegisterSet set = new RegisterSet();
+    assertTrue(set.add(3));
+    assertFalse(set.add(3));
+    assertTrue(set.contains(3));
+    assertFalse(set.contains(-1));
+    assertTrue(set.remove(3));
+    assertFalse(set.remove(3));
+    assertFalse(set.remove(-1));
+
+    set.addAll(IntArrayList.wrap(new int[] {1, 2, 5}));
+    set.removeAll(IntArrayList.wrap(new int[] {2, 7}));
+    assertEquals(create(1, 5), set);
+  }
+
+  @Test
+  public void testCopy() {
+    RegisterSet set = create(0, 4);
+    RegisterSet copy = set.copy();
+    copy.add(8);
+    assertNotEquals(set, copy);
+    assertEquals(IntArrayList.wrap(new int[] {0, 4}), toList(set.iterator()));
+    assertEquals(IntArrayList.wrap(new int[] {0, 4, 8}), toList(copy.iterator()));
+  }
+
+  @Test
+  public void testIterationOrder() {
+    RegisterSet set = create(9, 0, 2, 5, 3);
+    assertEquals(IntArrayList.wrap(new int[] {0, 2, 3, 5, 9}), toList(set.iterator()));
+    assertEquals(IntArrayList.wrap(new int[] {3, 5, 9, 0, 2}), toList(set.iterator(3)));
+    assertEquals(IntArrayList.wrap(new int[] {5, 9, 0, 2, 3}), toList(set.iterator(4)));
+    assertEquals(IntArrayList.wrap(new int[] {0, 2, 3, 5, 9}), toList(set.iterator(10)));
+    assertEquals(IntArrayList.wrap(new int[] {}), toList(new RegisterSet().iterator(3)));
+  }
+}
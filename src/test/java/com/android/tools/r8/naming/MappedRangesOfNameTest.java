@@ -0,0 +1,118 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRange;
+import com.android.tools.r8.naming.ClassNamingForNameMapper.MappedRangesOfName;
+import com.android.tools.r8.utils.StringUtils;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class MappedRangesOfNameTest extends TestBase {
+
+  private static final int NUMBER_OF_RANGES = 50;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public MappedRangesOfNameTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testDisjointRanges() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add("com.example.Main -> a:");
+    lines.add("    void noLines() -> a");
+    // Add the ranges in reverse order with an inlined frame for each range.
+    for (int i = NUMBER_OF_RANGES - 1; i >= 0; i--) {
+      int from = i * 10 + 1;
+      String minifiedRange = from + ":" + (from + 4);
+      lines.add("    " + minifiedRange + ":void com.example.Inlinee.m" + i + "():1:5 -> a");
+      lines.add("    " + minifiedRange + ":void m" + i + "():" + (100 + i) + " -> a");
+    }
+    // A range with no lines.
+    lines.add("    20:10:void empty():1:1 -> a");
+    checkLookups(lines);
+  }
+
+  @Test
+  public void testOverlappingRanges() throws Exception {
+    List<String> lines = new ArrayList<>();
+    lines.add("com.example.Main -> a:");
+    for (int i = 0; i < NUMBER_OF_RANGES; i++) {
+      int from = i * 5 + 1;
+      lines.add("    " + from + ":" + (from + 9) + ":void m" + i + "():1:10 -> a");
+    }
+    lines.add("    void noLines() -> a");
+    checkLookups(lines);
+  }
+
+  private void checkLookups(List<String> lines) throws Exception {
+    ClassNameMapper mapper = ClassNameMapper.mapperFromString(StringUtils.lines(lines));
+    MappedRangesOfName mappedRanges =
+        mapper.getClassNaming("a").mappedRangesByRenamedName.get("a");
+    for (int line = 0; line <= NUMBER_OF_RANGES * 10 + 10; line++) {
+      List<MappedRange> ranges = mappedRanges.getMappedRanges();
+      assertSame(firstRangeForLine(ranges, line), mappedRanges.firstRangeForLine(line));
+      assertEquals(
+          allRangesForLine(ranges, line, true), mappedRanges.allRangesForLine(line, true));
+      assertEquals(
+          allRangesForLine(ranges, line, false), mappedRanges.allRangesForLine(line, false));
+      assertEquals(
+          allRangesForLine(ranges, line, false),
+          MappedRangesOfName.allRangesForLineWithoutIndex(ranges, line, false));
+    }
+  }
+
+  // Reference implementation of MappedRangesOfName.firstRangeForLine.
+  private static MappedRange firstRangeForLine(List<MappedRange> ranges, int line) {
+    MappedRange noLineRange = null;
+    for (MappedRange range : ranges) {
+      if (range.minifiedRange == null) {
+        if (noLineRange == null) {
+          noLineRange = range;
+        }
+      } else if (range.minifiedRange.contains(line)) {
+        return range;
+      }
+    }
+    return noLineRange;
+  }
+
+  // Reference implementation of MappedRangesOfName.allRangesForLine.
+  private static List<MappedRange> allRangesForLine(
+      List<MappedRange> ranges, int line, boolean takeFirstWithNoLineRange) {
+    MappedRange noLineRange = null;
+    for (int i = 0; i < ranges.size(); i++) {
+      Range minifiedRange = ranges.get(i).minifiedRange;
+      if (minifiedRange == null) {
+        if (noLineRange == null && takeFirstWithNoLineRange) {
+          noLineRange = ranges.get(i);
+        }
+      } else if (minifiedRange.contains(line)) {
+        int j = i + 1;
+        while (j < ranges.size() && Objects.equals(ranges.get(j).minifiedRange, minifiedRange)) {
+          j++;
+        }
+        return ranges.subList(i, j);
+      }
+    }
+    return noLineRange == null ? Collections.emptyList() : Collections.singletonList(noLineRange);
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Checks that optimizing line numbers in parallel gives the same mapping file as a sequential
+ * compilation, also when the mapping file is emitted in several chunks.
+ */
+@RunWith(Parameterized.class)
+public class ParallelLineNumberOptimizationMappingTest extends TestBase implements Opcodes {
+
+  private static final int NUMBER_OF_CLASSES = 300;
+  private static final int NUMBER_OF_METHODS = 20;
+
+  // The size of the chunks of the mapping file that is passed to the consumer.
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public ParallelLineNumberOptimizationMappingTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void test() throws Exception {
+    List<byte[]> program = createProgram();
+    String sequentialMapping = compile(program, 1);
+    assertTrue(sequentialMapping.length() > 2 * CHUNK_SIZE);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(sequentialMapping, compile(program, 4));
+    }
+  }
+
+  private String compile(List<byte[]> program, int threadCount) throws Exception {
+    return testForR8(Backend.DEX)
+        .addProgramClassFileData(program)
+        .addKeepRules("-keep,allowobfuscation class p.** { *; }")
+        .addKeepAttributeLineNumberTable()
+        .addKeepAttributeSourceFile()
+        .addOptionsModification(
+            options -> {
+              options.outline.enabled = false;
+              options.threadCount = threadCount;
+            })
+        .setMinApi(AndroidApiLevel.B)
+        .compile()
+        .getProguardMap();
+  }
+
+  // Creates classes with methods that each span several lines, such that the mapping file has a
+  // mapped range for each line of each method.
+  private static List<byte[]> createProgram() {
+    List<byte[]> program = new ArrayList<>(NUMBER_OF_CLASSES);
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+      classWriter.visit(V1_8, ACC_PUBLIC | ACC_SUPER, "p/C" + i, null, "java/lang/Object", null);
+      classWriter.visitSource("C" + i + ".java", null);
+      for (int j = 0; j < NUMBER_OF_METHODS; j++) {
+        MethodVisitor methodVisitor =
+            classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "m" + j, "(I)I", null, null);
+        methodVisitor.visitCode();
+        for (int line = 0; line < 3; line++) {
+          Label label = new Label();
+          methodVisitor.visitLabel(label);
+          methodVisitor.visitLineNumber(10 * j + line + 1, label);
+          // The division may throw, so the line is kept.
+          methodVisitor.visitVarInsn(ILOAD, 0);
+          methodVisitor.visitVarInsn(ILOAD, 0);
+          methodVisitor.visitLdcInsn(line + 1);
+          methodVisitor.visitInsn(IADD);
+          methodVisitor.visitInsn(IDIV);
+          methodVisitor.visitVarInsn(ISTORE, 0);
+        }
+        methodVisitor.visitVarInsn(ILOAD, 0);
+        methodVisitor.visitInsn(IRETURN);
+        methodVisitor.visitMaxs(0, 0);
+        methodVisitor.visitEnd();
+      }
+      classWriter.visitEnd();
+      program.add(classWriter.toByteArray());
+    }
+    return program;
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestDiagnosticMessagesImpl;
+import com.android.tools.r8.naming.BinaryClassNameMapper;
+import com.android.tools.r8.naming.BinaryProguardMapWriter;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.StringUtils;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class RetraceFromPathTests extends TestBase {
+
+  private static final String MAPPING =
+      StringUtils.lines(
+          "# compiler: R8",
+          "com.example.Main -> a:",
+          "# {\"id\":\"sourceFile\",\"fileName\":\"Main.kt\"}",
+          "    1:3:void main(java.lang.String[]):10:12 -> a",
+          "    4:4:void com.example.Util.inlined():20:20 -> a",
+          "    4:4:void main(java.lang.String[]):13 -> a",
+          "com.example.Util -> b:",
+          "    int counter -> a",
+          "    1:1:void inlined():20:20 -> b",
+          "com.example.Other -> c:",
+          "    void other() -> a");
+
+  @Test
+  public void testRetraceFromPath() throws Exception {
+    Path mappingFile = temp.newFile("mapping.txt").toPath();
+    Files.write(mappingFile, MAPPING.getBytes(StandardCharsets.UTF_8));
+    Retracer fromString = Retracer.createDefault(() -> MAPPING, new TestDiagnosticMessagesImpl());
+    Retracer fromPath =
+        Retracer.createDefault(
+            ProguardMapProducer.fromPath(mappingFile), new TestDiagnosticMessagesImpl());
+    for (String obfuscatedName : new String[] {"a", "b", "c", "d"}) {
+      assertEquals(
+          retrace(fromString, obfuscatedName, "a", 4), retrace(fromPath, obfuscatedName, "a", 4));
+      assertEquals(
+          retrace(fromString, obfuscatedName, "b", 1), retrace(fromPath, obfuscatedName, "b", 1));
+    }
+    assertFalse(retrace(fromPath, "a", "a", 4).isEmpty());
+  }
+
+  @Test
+  public void testRetraceFromBinaryPath() throws Exception {
+    ClassNameMapper classNameMapper = ClassNameMapper.mapperFromString(MAPPING);
+    Path binaryMappingFile = temp.newFile("mapping.bin").toPath();
+    BinaryProguardMapWriter.write(classNameMapper, binaryMappingFile);
+    assertTrue(BinaryClassNameMapper.isBinaryMappingFile(binaryMappingFile));
+
+    BinaryClassNameMapper binaryMapper =
+        BinaryClassNameMapper.mapperFromFile(binaryMappingFile, new TestDiagnosticMessagesImpl());
+    assertEquals(classNameMapper.getClassNameMappings().size(), binaryMapper.size());
+    classNameMapper
+        .getClassNameMappings()
+        .forEach(
+            (obfuscatedName, classNaming) -> {
+              assertEquals(classNaming, binaryMapper.getClassNaming(obfuscatedName));
+              assertEquals(
+                  classNaming.getAdditionalMappings().size(),
+                  binaryMapper.getClassNaming(obfuscatedName).getAdditionalMappings().size());
+            });
+    assertNull(binaryMapper.getClassNaming("d"));
+
+    // The producer renders the binary mapping file as a textual map.
+    ProguardMapProducer producer = ProguardMapProducer.fromPath(binaryMappingFile);
+    assertEquals(
+        classNameMapper.sorted().toString(),
+        ClassNameMapper.mapperFromString(producer.get()).sorted().toString());
+
+    Retracer fromString = Retracer.createDefault(() -> MAPPING, new TestDiagnosticMessagesImpl());
+    Retracer fromBinaryPath = Retracer.createDefault(producer, new TestDiagnosticMessagesImpl());
+    for (String obfuscatedName : new String[] {"a", "b", "c", "d"}) {
+      assertEquals(
+          retrace(fromString, obfuscatedName, "a", 4),
+          retrace(fromBinaryPath, obfuscatedName, "a", 4));
+      assertEquals(
+          retrace(fromString, obfuscatedName, "b", 1),
+          retrace(fromBinaryPath, obfuscatedName, "b", 1));
+    }
+  }
+
+  @Test
+  public void testBinaryMappingFileFromR8() throws Exception {
+    Path binaryMappingFile = temp.newFolder().toPath().resolve("mapping.bin");
+    String proguardMap =
+        testForR8(Backend.DEX)
+            .addProgramClasses(A.class, Main.class)
+            .addKeepMainRule(Main.class)
+            .addKeepRules("-keep,allowobfuscation class " + A.class.getTypeName() + " { *; }")
+            .setMinApi(AndroidApiLevel.B)
+            .apply(b -> b.getBuilder().setBinaryProguardMapOutputPath(binaryMappingFile))
+            .compile()
+            .getProguardMap();
+    assertTrue(BinaryClassNameMapper.isBinaryMappingFile(binaryMappingFile));
+    assertEquals(
+        ClassNameMapper.mapperFromString(proguardMap).sorted().toString(),
+        ClassNameMapper.mapperFromString(ProguardMapProducer.fromPath(binaryMappingFile).get())
+            .sorted()
+            .toString());
+  }
+
+  private static List<String> retrace(
+      Retracer retracer, String className, String methodName, int position) {
+    List<String> result = new ArrayList<>();
+    retracer
+        .retraceClass(Reference.classFromTypeName(className))
+        .forEach(
+            element -> {
+              result.add(element.getRetracedClass().getTypeName());
+              element
+                  .lookupFrame(methodName, position)
+                  .forEach(
+                      frame ->
+                          frame.visitFrames(
+                              (method, index) ->
+                                  result.add(
+                                      method.getMethodName()
+                                          + ":"
+                                          + method.getOriginalPositionOrDefault(-1))));
+            });
+    return result;
+  }
+
+  static class A {
+
+    void foo() {
+      System.out.println("A");
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      new A().foo();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+public class StringRetraceServiceTests {
+
+  private static final Map<String, String> MAPPINGS =
+      ImmutableMap.of(
+          "first",
+          StringUtils.lines("com.example.Foo -> a:", "    1:1:void foo():10:10 -> a"),
+          "second",
+          StringUtils.lines("com.example.Bar -> a:", "    1:1:void bar():20:20 -> a"),
+          "third",
+          StringUtils.lines("com.example.Baz -> a:", "    1:1:void baz():30:30 -> a"));
+
+  private static final List<String> STACK_TRACE =
+      ImmutableList.of("java.lang.RuntimeException: boom", "    at a.a(SourceFile:1)");
+
+  @Test
+  public void testRetraceService() {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      StringRetraceService service =
+          StringRetraceService.builder(
+                  mappingId -> () -> MAPPINGS.get(mappingId), executorService)
+              .setMaximumNumberOfResidentMappings(2)
+              .build();
+      List<List<String>> stackTraces = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        stackTraces.add(STACK_TRACE);
+      }
+      for (String mappingId : MAPPINGS.keySet()) {
+        List<String> expected = retraceWithStringRetrace(mappingId);
+        assertEquals(expected, service.retrace(mappingId, STACK_TRACE));
+        for (List<String> retraced : service.retraceAll(mappingId, stackTraces)) {
+          assertEquals(expected, retraced);
+        }
+      }
+      StringRetraceService.Statistics statistics = service.getStatistics();
+      assertEquals(3, statistics.getCacheHits());
+      assertEquals(3, statistics.getCacheMisses());
+      assertEquals(1, statistics.getEvictions());
+      assertEquals(2, statistics.getNumberOfResidentMappings());
+      assertEquals(33, statistics.getRetracedStackTraces());
+      assertEquals(66, statistics.getRetracedLines());
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  private static List<String> retraceWithStringRetrace(String mappingId) {
+    return StringRetrace.create(
+            RetraceOptions.builder().setProguardMapProducer(() -> MAPPINGS.get(mappingId)).build())
+        .retrace(STACK_TRACE);
+  }
+}
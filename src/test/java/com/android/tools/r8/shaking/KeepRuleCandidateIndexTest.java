@@ -0,0 +1,84 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static com.android.tools.r8.utils.codeinspector.Matchers.isPresent;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class KeepRuleCandidateIndexTest extends TestBase {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public KeepRuleCandidateIndexTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void test() throws Exception {
+    String prefix = KeepRuleCandidateIndexTest.class.getTypeName() + "$";
+    testForR8(Backend.DEX)
+        .addInnerClasses(KeepRuleCandidateIndexTest.class)
+        .addKeepRules(
+            // Name prefix.
+            "-keep class " + prefix + "KeptByName*",
+            // Multiple name prefixes, one of which is a prefix of the other.
+            "-keep class " + prefix + "KeptByList," + prefix + "KeptByListToo*",
+            // Annotation.
+            "-keep @" + KeepMe.class.getTypeName() + " class *",
+            // Annotation and name prefix.
+            "-keep @" + KeepMe.class.getTypeName() + " class " + prefix + "Never*",
+            // No literal prefix.
+            "-keep class **$KeptByWildcard")
+        // The rule with an annotation and a name prefix matches no class.
+        .allowUnusedProguardConfigurationRules()
+        .setMinApi(AndroidApiLevel.B)
+        .compile()
+        .inspect(
+            inspector -> {
+              assertThat(inspector.clazz(KeptByName.class), isPresent());
+              assertThat(inspector.clazz(KeptByNameToo.class), isPresent());
+              assertThat(inspector.clazz(KeptByList.class), isPresent());
+              assertThat(inspector.clazz(KeptByListToo.class), isPresent());
+              assertThat(inspector.clazz(KeptByAnnotation.class), isPresent());
+              assertThat(inspector.clazz(KeptByWildcard.class), isPresent());
+              assertThat(inspector.clazz(NeverAnnotated.class), not(isPresent()));
+              assertThat(inspector.clazz(NotKept.class), not(isPresent()));
+            });
+  }
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface KeepMe {}
+
+  static class KeptByName {}
+
+  static class KeptByNameToo {}
+
+  static class KeptByList {}
+
+  static class KeptByListToo {}
+
+  @KeepMe
+  static class KeptByAnnotation {}
+
+  static class KeptByWildcard {}
+
+  static class NeverAnnotated {}
+
+  static class NotKept {}
+}
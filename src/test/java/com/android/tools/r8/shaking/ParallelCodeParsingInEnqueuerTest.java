@@ -0,0 +1,104 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.shaking;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.shaking.DeterministicPrintUsagesTest.UsageConsumer;
+import com.android.tools.r8.utils.StringUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class ParallelCodeParsingInEnqueuerTest extends TestBase {
+
+  private static final String EXPECTED = StringUtils.lines("A", "B", "C");
+
+  private final TestParameters parameters;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withAllRuntimesAndApiLevels().build();
+  }
+
+  public ParallelCodeParsingInEnqueuerTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void test() throws Exception {
+    UsageConsumer parallelUsage = compileAndRun(true);
+    UsageConsumer serialUsage = compileAndRun(false);
+    assertEquals(serialUsage.strings, parallelUsage.strings);
+  }
+
+  private UsageConsumer compileAndRun(boolean enableParallelCodeParsing) throws Exception {
+    UsageConsumer consumer = new UsageConsumer();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(ParallelCodeParsingInEnqueuerTest.class)
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(
+            options -> {
+              options.enableParallelCodeParsingInEnqueuer = enableParallelCodeParsing;
+              options.parallelCodeParsingInEnqueuerThreshold = 1;
+            })
+        .apply(b -> b.getBuilder().setProguardUsageConsumer(consumer))
+        .enableInliningAnnotations()
+        .setMinApi(parameters.getApiLevel())
+        .compile()
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutput(EXPECTED);
+    return consumer;
+  }
+
+  static class A {
+
+    @NeverInline
+    static void live() {
+      System.out.println("A");
+      B.live();
+    }
+
+    static void dead() {
+      System.out.println("A::dead");
+    }
+  }
+
+  static class B {
+
+    @NeverInline
+    static void live() {
+      System.out.println("B");
+      new C().live();
+    }
+
+    static void dead() {
+      System.out.println("B::dead");
+    }
+  }
+
+  static class C {
+
+    @NeverInline
+    void live() {
+      System.out.println("C");
+    }
+
+    void dead() {
+      System.out.println("C::dead");
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      A.live();
+    }
+  }
+}
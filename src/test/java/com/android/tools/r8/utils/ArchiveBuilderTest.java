@@ -0,0 +1,70 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.TestBase;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+public class ArchiveBuilderTest extends TestBase {
+
+  private static final int NUMBER_OF_FILES = 64;
+
+  @Test
+  public void testIndexedFilesAddedInParallel() throws Exception {
+    Path archive = temp.newFolder().toPath().resolve("out.zip");
+    ArchiveBuilder builder = new ArchiveBuilder(archive);
+    KeepingDiagnosticHandler handler = new KeepingDiagnosticHandler();
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < NUMBER_OF_FILES; i++) {
+      indices.add(i);
+    }
+    Collections.shuffle(indices);
+    builder.open();
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    try {
+      ThreadUtils.processItems(
+          indices,
+          index -> {
+            // Invalidate the data after adding it, as the application writer does.
+            ByteDataView data = ByteDataView.of(contentFor(index));
+            String name = DexUtils.getDefaultDexFileName(index);
+            builder.addIndexedClassFile(index, name, data, handler);
+            Arrays.fill(data.getBuffer(), (byte) 0);
+            data.invalidate();
+          },
+          executorService);
+    } finally {
+      executorService.shutdown();
+    }
+    builder.close(handler);
+    assertEquals(0, handler.errors.size());
+    List<String> entries = new ArrayList<>();
+    ZipUtils.iter(archive, (entry, input) -> entries.add(entry.getName()));
+    assertEquals(NUMBER_OF_FILES, entries.size());
+    for (int i = 0; i < NUMBER_OF_FILES; i++) {
+      String name = DexUtils.getDefaultDexFileName(i);
+      assertEquals(name, entries.get(i));
+      assertArrayEquals(contentFor(i), ZipUtils.readSingleEntry(archive, name));
+    }
+  }
+
+  private static byte[] contentFor(int index) {
+    byte[] content = new byte[1024 + index * 97];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) (index * 31 + i);
+    }
+    return content;
+  }
+}
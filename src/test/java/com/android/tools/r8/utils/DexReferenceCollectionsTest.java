@@ -0,0 +1,113 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.utils.collections.ConcurrentDexReferenceMap;
+import com.android.tools.r8.utils.collections.DexReferenceSet;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+
+public class DexReferenceCollectionsTest {
+
+  private final DexItemFactory factory = new DexItemFactory();
+
+  private List<DexType> createTypes(int count) {
+    List<DexType> types = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      types.add(factory.createType("LA" + i + ";"));
+    }
+    return types;
+  }
+
+  @Test
+  public void testIdsAreUniquePerKind() {
+    DexType type = factory.createType("LA;");
+    assertEquals(type.getId(), factory.createType("LA;").getId());
+    assertTrue(type.getId() != factory.createType("LB;").getId());
+    DexProto proto = factory.createProto(type);
+    DexMethod method = factory.createMethod(type, proto, "m");
+    assertEquals(method.getId(), factory.createMethod(type, proto, "m").getId());
+  }
+
+  @Test
+  public void testSet() {
+    List<DexType> types = createTypes(100);
+    DexReferenceSet<DexType> set = DexReferenceSet.newTypeSet();
+    for (DexType type : types) {
+      assertTrue(set.add(type));
+      assertFalse(set.add(type));
+    }
+    assertEquals(types.size(), set.size());
+    assertEquals(types, ImmutableList.copyOf(set));
+
+    assertTrue(set.remove(types.get(0)));
+    assertFalse(set.contains(types.get(0)));
+    assertFalse(set.remove(types.get(0)));
+
+    Iterator<DexType> iterator = set.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getId() % 2 == 0) {
+        iterator.remove();
+      }
+    }
+    for (DexType type : types) {
+      assertEquals(type != types.get(0) && type.getId() % 2 != 0, set.contains(type));
+    }
+
+    set.clear();
+    assertTrue(set.isEmpty());
+    assertFalse(set.contains(types.get(1)));
+  }
+
+  @Test
+  public void testSetOfOtherKind() {
+    DexType type = factory.createType("LA;");
+    DexProto proto = factory.createProto(type);
+    // Create new methods and types until a method and a type have the same id.
+    DexMethod method = factory.createMethod(type, proto, "m0");
+    DexType typeWithSameId = factory.createType("LB0;");
+    for (int i = 1; method.getId() != typeWithSameId.getId(); i++) {
+      if (method.getId() < typeWithSameId.getId()) {
+        method = factory.createMethod(type, proto, "m" + i);
+      } else {
+        typeWithSameId = factory.createType("LB" + i + ";");
+      }
+    }
+    DexReferenceSet<DexMethod> methods = DexReferenceSet.newMethodSet();
+    methods.add(method);
+    assertTrue(methods.contains(method));
+    assertFalse(methods.contains(typeWithSameId));
+    assertFalse(methods.remove(typeWithSameId));
+    assertEquals(1, methods.size());
+  }
+
+  @Test
+  public void testConcurrentMap() {
+    List<DexType> types = createTypes(5000);
+    ConcurrentDexReferenceMap<DexType, String> map = new ConcurrentDexReferenceMap<>();
+    for (DexType type : types) {
+      assertNull(map.get(type));
+      assertEquals(type.toSourceString(), map.computeIfAbsent(type, DexType::toSourceString));
+    }
+    for (DexType type : types) {
+      String value = map.get(type);
+      assertEquals(type.toSourceString(), value);
+      assertSame(value, map.computeIfAbsent(type, ignore -> "unexpected"));
+    }
+  }
+}
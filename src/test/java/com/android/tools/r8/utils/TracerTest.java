@@ -0,0 +1,114 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.StringConsumer;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class TracerTest extends TestBase {
+
+  private final TestParameters parameters;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withAllApiLevels().build();
+  }
+
+  public TracerTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void testTrace() throws Exception {
+    StringBuilder trace = new StringBuilder();
+    testForR8(parameters.getBackend())
+        .addInnerClasses(TracerTest.class)
+        .addKeepMainRule(Main.class)
+        .setMinApi(parameters.getApiLevel())
+        .apply(
+            b ->
+                b.getBuilder()
+                    .setTraceConsumer(
+                        new StringConsumer() {
+                          @Override
+                          public void accept(String string, DiagnosticsHandler handler) {
+                            trace.append(string);
+                          }
+                        }))
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutputLines("Hello, world!");
+
+    JsonObject json = new JsonParser().parse(trace.toString()).getAsJsonObject();
+    Set<String> spans = new HashSet<>();
+    Set<String> counters = new HashSet<>();
+    for (JsonElement element : json.getAsJsonArray("traceEvents")) {
+      JsonObject event = element.getAsJsonObject();
+      String phase = event.get("ph").getAsString();
+      if (phase.equals("X")) {
+        assertTrue(event.get("dur").getAsDouble() >= 0);
+        spans.add(event.get("name").getAsString());
+      } else if (phase.equals("C")) {
+        counters.add(event.get("name").getAsString());
+      }
+    }
+    assertTrue(spans.contains(Main.class.getTypeName() + ".main"));
+    assertTrue(spans.contains("IR conversion phase 1"));
+    assertTrue(spans.contains("Inlining"));
+    assertTrue(counters.stream().anyMatch(counter -> counter.startsWith("enqueuer.")));
+    assertTrue(counters.stream().anyMatch(counter -> counter.startsWith("inliner.inlined.")));
+    JsonObject inlineeBlocks =
+        json.getAsJsonObject("histograms").getAsJsonObject("inliner.inlinee-blocks");
+    assertTrue(inlineeBlocks.get("count").getAsLong() > 0);
+  }
+
+  @Test
+  public void testTraceIsWrittenInChunks() {
+    List<String> chunks = new ArrayList<>();
+    Tracer tracer =
+        Tracer.create(
+            new StringConsumer() {
+              @Override
+              public void accept(String string, DiagnosticsHandler handler) {
+                chunks.add(string);
+              }
+            });
+    int numberOfSpans = 10000;
+    for (int i = 0; i < numberOfSpans; i++) {
+      tracer.span("test", "span" + i, System.nanoTime());
+    }
+    tracer.finished(null);
+    assertTrue(chunks.size() > 1);
+    JsonObject json = new JsonParser().parse(String.join("", chunks)).getAsJsonObject();
+    // The thread name metadata event precedes the spans.
+    assertEquals(numberOfSpans + 1, json.getAsJsonArray("traceEvents").size());
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println(greeting());
+    }
+
+    static String greeting() {
+      return "Hello, world!";
+    }
+  }
+}
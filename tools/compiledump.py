@@ -233,6 +233,8 @@ def determine_class_file(args, build_properties):
     return args.classfile
   if 'classfile' in build_properties:
     return True
+  if build_properties.get('backend') == 'cf':
+    return True
   return None
 
 def download_distribution(args, version, temp):